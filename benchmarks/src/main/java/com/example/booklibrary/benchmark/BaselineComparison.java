@@ -0,0 +1,75 @@
+package com.example.booklibrary.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Matches two JMH JSON result files by benchmark, mode, thread count and parameters,
+ * and flags every benchmark whose score got worse by more than a relative threshold.
+ * Higher is better for throughput ("thrpt"); lower is better for the time-based modes.
+ */
+final class BaselineComparison {
+
+    private final List<String> lines = new ArrayList<>();
+    private int regressions;
+
+    private BaselineComparison() {
+    }
+
+    static BaselineComparison compare(JsonNode baseline, JsonNode current, double threshold) {
+        Map<String, JsonNode> baselineByKey = new LinkedHashMap<>();
+        for (JsonNode result : baseline) {
+            baselineByKey.put(key(result), result);
+        }
+
+        BaselineComparison comparison = new BaselineComparison();
+        for (JsonNode result : current) {
+            String key = key(result);
+            JsonNode previous = baselineByKey.get(key);
+            if (previous == null) {
+                comparison.lines.add(String.format("NEW        %s", key));
+                continue;
+            }
+            double before = previous.path("primaryMetric").path("score").asDouble();
+            double after = result.path("primaryMetric").path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(result.path("mode").asText());
+            // Positive change means better, whatever the mode
+            double change = before == 0 ? 0 : (higherIsBetter ? after - before : before - after) / before;
+            boolean regressed = change < -threshold;
+            if (regressed) {
+                comparison.regressions++;
+            }
+            comparison.lines.add(String.format("%-10s %s: %.3f -> %.3f %s (%+.1f%%)",
+                    regressed ? "REGRESSED" : "OK", key, before, after,
+                    result.path("primaryMetric").path("scoreUnit").asText(), change * 100));
+        }
+        return comparison;
+    }
+
+    boolean hasRegressions() {
+        return regressions > 0;
+    }
+
+    void print(PrintStream out) {
+        lines.forEach(out::println);
+        out.println(regressions == 0 ? "No regressions" : regressions + " regression(s)");
+    }
+
+    private static String key(JsonNode result) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText())
+                .append(" [").append(result.path("mode").asText())
+                .append(", threads=").append(result.path("threads").asInt());
+        JsonNode params = result.path("params");
+        for (Iterator<Map.Entry<String, JsonNode>> fields = params.fields(); fields.hasNext();) {
+            Map.Entry<String, JsonNode> param = fields.next();
+            key.append(", ").append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+        return key.append(']').toString();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.booklibrary.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * Runs the benchmarks once per thread count, writes all results to one JSON file in
+ * JMH's own format, and optionally compares them against a baseline file.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.example.booklibrary.benchmark.BenchmarkRunner \
+ *     [--threads 1,2,4] [--output results.json] [--baseline baseline.json] [--threshold 0.1] \
+ *     [--current results.json] [JMH options and benchmark patterns...]
+ * </pre>
+ * Thread counts default to powers of two up to the number of cores, plus the core count.
+ * With --current no benchmark runs and that file is compared against the baseline.
+ * Exits with status 2 when any benchmark regressed by more than the threshold.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        List<Integer> threadCounts = defaultThreadCounts();
+        Path output = Paths.get("benchmark-results.json");
+        Path baseline = null;
+        Path current = null;
+        double threshold = 0.10;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threadCounts = parseThreadCounts(args[++i]);
+                    break;
+                case "--output":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--current":
+                    current = Paths.get(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    jmhArgs.add(args[i]);
+            }
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        if (current == null) {
+            ArrayNode results = objectMapper.createArrayNode();
+            CommandLineOptions commandLine = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+            for (int threads : threadCounts) {
+                File runResult = File.createTempFile("jmh-", ".json");
+                try {
+                    new Runner(new OptionsBuilder()
+                            .parent(commandLine)
+                            .threads(threads)
+                            .resultFormat(ResultFormatType.JSON)
+                            .result(runResult.getPath())
+                            .build()).run();
+                    results.addAll((ArrayNode) objectMapper.readTree(runResult));
+                } finally {
+                    Files.deleteIfExists(runResult.toPath());
+                }
+            }
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), results);
+            System.out.println("Results written to " + output.toAbsolutePath());
+            current = output;
+        }
+
+        if (baseline != null) {
+            BaselineComparison comparison = BaselineComparison.compare(
+                    objectMapper.readTree(baseline.toFile()), objectMapper.readTree(current.toFile()), threshold);
+            comparison.print(System.out);
+            if (comparison.hasRegressions()) {
+                System.exit(2);
+            }
+        }
+    }
+
+    private static List<Integer> defaultThreadCounts() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> counts = new TreeSet<>();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(cores);
+        return new ArrayList<>(counts);
+    }
+
+    private static List<Integer> parseThreadCounts(String value) {
+        List<Integer> counts = new ArrayList<>();
+        for (String part : value.split(",")) {
+            counts.add(Integer.parseInt(part.trim()));
+        }
+        return counts;
+    }
+}
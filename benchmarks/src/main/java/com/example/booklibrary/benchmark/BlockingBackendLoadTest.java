@@ -0,0 +1,134 @@
+package com.example.booklibrary.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.example.booklibrary.controller.VirtualThreadWebConfiguration;
+import com.example.booklibrary.data.WalDataInitializer;
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.repository.ChangeLog;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+import com.example.booklibrary.search.BookSearchIndex;
+import com.example.booklibrary.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Request handling on a fixed pool of 200 platform threads, Tomcat's default, against one
+ * virtual thread per request, when every request blocks on a persistent backend: each one
+ * adds a book through BookService to a repository whose write-ahead log fsyncs before the
+ * call returns. Not a JMH benchmark, since the interesting output is the latency
+ * distribution under a fixed number of concurrent clients.
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.example.booklibrary.benchmark.BlockingBackendLoadTest \
+ *     [clients] [seconds] [platform,virtual]
+ * </pre>
+ * Every client sends its next request when the previous one completed; latency includes
+ * the time a request waits for a thread. The log is written to a temporary directory in
+ * the working directory, so it lands on the disk being measured. Virtual threads need
+ * Java 21; on older JVMs that mode is skipped.
+ */
+public final class BlockingBackendLoadTest {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    private final ExecutorService executor;
+    private final BookService service;
+    private final AtomicInteger nextBook = new AtomicInteger();
+    private final Recorder latencies = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+    private volatile boolean running = true;
+
+    private BlockingBackendLoadTest(ExecutorService executor, BookService service) {
+        this.executor = executor;
+        this.service = service;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String[] modes = (args.length > 2 ? args[2] : "platform,virtual").split(",");
+
+        for (String mode : modes) {
+            ExecutorService executor;
+            try {
+                executor = "virtual".equals(mode)
+                        ? VirtualThreadWebConfiguration.newVirtualThreadExecutor("request-")
+                        : Executors.newFixedThreadPool(PLATFORM_THREADS);
+            } catch (IllegalStateException e) {
+                System.out.printf("%s: skipped, %s%n", mode, e.getMessage());
+                continue;
+            }
+            run(mode, executor, clients, seconds);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String mode, ExecutorService executor, int clients, int seconds) throws Exception {
+        Path directory = Files.createTempDirectory(Path.of("."), "wal-benchmark-");
+        WalDataInitializer persistence = new WalDataInitializer(directory, Duration.ofHours(1));
+        BookEventPublisher events = new BookEventPublisher(new ObjectMapper(), 1024, 1, Duration.ofSeconds(15), null);
+        try {
+            InMemoryBookRepository repository = new InMemoryBookRepository(persistence);
+            BookService service = new BookService(repository, new BookSearchIndex(repository),
+                    new ChangeLog(repository, 100_000), events, Duration.ZERO, Duration.ofSeconds(5));
+            BlockingBackendLoadTest test = new BlockingBackendLoadTest(executor, service);
+
+            for (int i = 0; i < clients; i++) {
+                test.next();
+            }
+            Thread.sleep(WARMUP.toMillis());
+            test.latencies.reset();
+
+            long start = System.nanoTime();
+            TimeUnit.SECONDS.sleep(seconds);
+            Histogram histogram = test.latencies.getIntervalHistogram();
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            test.running = false;
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+
+            System.out.printf("%s threads, %d clients: %.0f saves/s, latency ms p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    mode, clients, histogram.getTotalCount() / elapsed,
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMaxValue() / 1e6);
+        } finally {
+            events.destroy();
+            persistence.destroy();
+            delete(directory);
+        }
+    }
+
+    private void next() {
+        long submitted = System.nanoTime();
+        CompletableFuture.runAsync(() -> service.addBook(Catalogs.book(nextBook.getAndIncrement())), executor)
+                .whenComplete((ignored, failure) -> {
+                    if (failure == null) {
+                        latencies.recordValue(Math.min(System.nanoTime() - submitted, TimeUnit.MINUTES.toNanos(1)));
+                    }
+                    if (running) {
+                        next();
+                    }
+                });
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
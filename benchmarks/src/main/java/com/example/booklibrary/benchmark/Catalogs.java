@@ -0,0 +1,30 @@
+package com.example.booklibrary.benchmark;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Deterministic synthetic catalog shared by the benchmarks.
+ */
+final class Catalogs {
+
+    private static final String[] WORDS = {
+        "Silent", "River", "Glass", "Winter", "Garden", "Shadow", "Empire", "Letters",
+        "Night", "Harbor", "Crown", "Orchard", "Storm", "Atlas", "Lantern", "Mirror"
+    };
+
+    private Catalogs() {
+    }
+
+    static String title(int id) {
+        return WORDS[id & 15] + " " + WORDS[(id >>> 4) & 15] + " " + id;
+    }
+
+    static String author(int id) {
+        // Roughly 50 books per author, like a catalog with prolific authors
+        return "Author " + (id / 50);
+    }
+
+    static Book book(int id) {
+        return new Book(title(id), author(id), 1800 + id % 225);
+    }
+}
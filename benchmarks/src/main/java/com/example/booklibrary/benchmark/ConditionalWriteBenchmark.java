@@ -0,0 +1,129 @@
+package com.example.booklibrary.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.ChangeLog;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+import com.example.booklibrary.search.BookSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes per second of InMemoryBookRepository with 64 threads: blind saves against
+ * read-modify-write updates through replaceIfVersion, retried until they win.
+ *
+ * <ul>
+ * <li>hot: every thread updates the same book, the worst case for both.</li>
+ * <li>disjoint: every thread updates a book of its own. With striped locks the threads
+ *     only share the ordered indexes, so throughput should scale with the cores.</li>
+ * <li>random: threads pick any of 65,536 books, as independent clients would.</li>
+ * </ul>
+ * With listeners=app the repository has the listeners the default application registers:
+ * the change log, the search index and the event publisher, through which every write
+ * runs. Nobody subscribes to the events, as for a server nobody listens to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class ConditionalWriteBenchmark {
+
+    private static final int CATALOG_SIZE = 1 << 16;
+
+    @Param({"hot", "disjoint", "random"})
+    private String contention;
+
+    @Param({"none", "app"})
+    private String listeners;
+
+    private BookRepository repository;
+    private BookEventPublisher events;
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryBookRepository(null);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            repository.save(Catalogs.book(i));
+        }
+        if ("app".equals(listeners)) {
+            new ChangeLog(repository, 100_000);
+            new BookSearchIndex(repository);
+            events = new BookEventPublisher(repository, new ObjectMapper(), 1024, 2, Duration.ofSeconds(15), null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (events != null) {
+            events.destroy();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int threadId = -1;
+    }
+
+    @Benchmark
+    public Book blindSave(Writer writer) {
+        Book book = update(Catalogs.title(pick(writer)), 0);
+        return events == null ? repository.save(book) : events.publishing(() -> repository.save(book));
+    }
+
+    @Benchmark
+    public Book compareAndSet(Writer writer) {
+        String title = Catalogs.title(pick(writer));
+        while (true) {
+            Book current = repository.findByTitle(title).orElseThrow();
+            Book update = update(title, current.getYear());
+            Book saved = events == null
+                    ? repository.replaceIfVersion(update, current.getVersion()).orElse(null)
+                    : events.publishing(() -> repository.replaceIfVersion(update, current.getVersion())).orElse(null);
+            if (saved != null) {
+                return saved;
+            }
+        }
+    }
+
+    private int pick(Writer writer) {
+        switch (contention) {
+            case "hot":
+                return 0;
+            case "disjoint":
+                if (writer.threadId < 0) {
+                    writer.threadId = threadIds.getAndIncrement();
+                }
+                return writer.threadId;
+            default:
+                return ThreadLocalRandom.current().nextInt(CATALOG_SIZE);
+        }
+    }
+
+    private static Book update(String title, int year) {
+        return new Book(title, "Author", 1800 + (year + 1) % 225);
+    }
+}
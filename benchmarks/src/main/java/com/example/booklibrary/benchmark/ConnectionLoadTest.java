@@ -0,0 +1,103 @@
+package com.example.booklibrary.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Closed-loop HTTP load against a running server with many concurrent connections,
+ * for comparing the servlet and reactive stacks. Not a JMH benchmark: the server runs
+ * in its own process, started for example with
+ *
+ * <pre>
+ * java -jar target/qlik-assignment-1.0-SNAPSHOT-exec.jar --spring.main.web-application-type=reactive
+ * java -cp benchmarks.jar com.example.booklibrary.benchmark.ConnectionLoadTest \
+ *     http://localhost:8080 10000 30 /books/1984
+ * </pre>
+ * Arguments: base URL, connections (default 10000), measured seconds (default 30) and
+ * path (default /books/1984). Every connection sends its next request as soon as the
+ * previous response arrived. Connections are opened over a ramp-up of ten seconds, which
+ * is not measured, so the listen backlog does not drop them.
+ */
+public final class ConnectionLoadTest {
+
+    private static final Duration RAMP_UP = Duration.ofSeconds(10);
+
+    private final HttpClient client;
+    private final HttpRequest request;
+    private final Recorder latencies = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean running = true;
+
+    private ConnectionLoadTest(HttpClient client, HttpRequest request) {
+        this.client = client;
+        this.request = request;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        String path = args.length > 3 ? args[3] : "/books/1984";
+
+        // Callbacks only record and resend, so a few threads keep up with any server
+        ExecutorService callbacks = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(callbacks)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+        ConnectionLoadTest test = new ConnectionLoadTest(client, request);
+
+        long pause = RAMP_UP.toNanos() / connections;
+        for (int i = 0; i < connections; i++) {
+            test.next();
+            if (pause > 0) {
+                TimeUnit.NANOSECONDS.sleep(pause);
+            }
+        }
+        test.latencies.reset();
+        test.errors.set(0);
+
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        Histogram histogram = test.latencies.getIntervalHistogram();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        test.running = false;
+
+        System.out.printf("%s with %d connections for %.0f s%n", request.uri(), connections, elapsed);
+        System.out.printf("requests/s: %.0f, errors: %d%n", histogram.getTotalCount() / elapsed, test.errors.get());
+        System.out.printf("latency ms: p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMaxValue() / 1e6);
+        callbacks.shutdownNow();
+        System.exit(0);
+    }
+
+    private void next() {
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            if (failure != null || response.statusCode() >= 400) {
+                errors.incrementAndGet();
+            } else {
+                latencies.recordValue(Math.min(System.nanoTime() - sent, TimeUnit.MINUTES.toNanos(1)));
+            }
+            if (running) {
+                next();
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.booklibrary.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.example.booklibrary.data.DumpLoader;
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+/**
+ * Time to bulk-load a catalog dump into an empty InMemoryBookRepository with DumpLoader,
+ * the startup time of library.data.initializer=dump. Not a JMH benchmark: a load happens
+ * once per process, and its cost includes growing the heap.
+ *
+ * <pre>
+ * java -Xmx8g -cp benchmarks.jar com.example.booklibrary.benchmark.DumpLoadMeasurement \
+ *     [books] [csv|ndjson] [threads]
+ * </pre>
+ * The dump is generated into the working directory first and deleted afterwards.
+ * Threads default to one per core.
+ */
+public final class DumpLoadMeasurement {
+
+    private DumpLoadMeasurement() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        String format = args.length > 1 ? args[1] : "csv";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Path dump = Files.createTempFile(Path.of("."), "books-", "." + format);
+        try {
+            write(dump, bookCount, format);
+            System.out.printf("dump: %d books, %d MB%n", bookCount, Files.size(dump) >> 20);
+
+            BookRepository repository = new InMemoryBookRepository(null);
+            long start = System.nanoTime();
+            long loaded = new DumpLoader(threads).load(dump, repository);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("loaded %d books on %d threads in %.2f s, %.0f books/s%n",
+                    loaded, threads, seconds, loaded / seconds);
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    private static void write(Path dump, int bookCount, String format) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(dump, StandardCharsets.UTF_8)) {
+            if ("csv".equals(format)) {
+                writer.write("title,author,year\n");
+            }
+            for (int i = 0; i < bookCount; i++) {
+                Book book = Catalogs.book(i);
+                if ("csv".equals(format)) {
+                    writer.write(book.getTitle() + "," + book.getAuthor() + "," + book.getYear() + "\n");
+                } else {
+                    writer.write("{\"title\":\"" + book.getTitle() + "\",\"author\":\"" + book.getAuthor()
+                            + "\",\"year\":" + book.getYear() + "}\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.booklibrary.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+/**
+ * Retained heap per book of a loaded InMemoryBookRepository, indexes included.
+ * Not a JMH benchmark: it loads the catalog once and compares used heap after full GCs.
+ *
+ * <pre>
+ * java -Xmx4g -cp benchmarks.jar com.example.booklibrary.benchmark.FootprintMeasurement [books]
+ * </pre>
+ * Every book is built from fresh strings, like books decoded from separate requests,
+ * so repeated authors are only shared if the repository deduplicates them.
+ */
+public final class FootprintMeasurement {
+
+    private static final int DEFAULT_BOOKS = 5_000_000;
+
+    private FootprintMeasurement() {
+    }
+
+    public static void main(String[] args) {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOOKS;
+
+        long before = usedHeapAfterGc();
+        BookRepository repository = new InMemoryBookRepository(null);
+        for (int i = 0; i < bookCount; i++) {
+            Book template = Catalogs.book(i);
+            repository.save(new Book(new String(template.getTitle()), new String(template.getAuthor()),
+                    template.getYear()));
+        }
+        long after = usedHeapAfterGc();
+
+        System.out.printf("books: %d%n", repository.count());
+        System.out.printf("retained heap: %d MB%n", (after - before) >> 20);
+        System.out.printf("bytes per book: %d%n", (after - before) / bookCount);
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.booklibrary.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.repository.ChangeLog;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+import com.example.booklibrary.search.BookSearchIndex;
+import com.example.booklibrary.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Books per second through BookService: one addBook call per book against one addBooks
+ * call for the whole feed. Both paths feed the search index. HTTP overhead, the largest
+ * cost of the single-item path, is not included here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+    private static final int FEED_SIZE = 100_000;
+
+    private List<Book> feed;
+    private BookService service;
+    private BookEventPublisher events;
+
+    @Setup(Level.Trial)
+    public void createFeed() {
+        feed = new ArrayList<>(FEED_SIZE);
+        for (int i = 0; i < FEED_SIZE; i++) {
+            feed.add(Catalogs.book(i));
+        }
+        // No subscribers, as for a server nobody listens to
+        events = new BookEventPublisher(new ObjectMapper(), 1024, 1, Duration.ofSeconds(15), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopEvents() {
+        events.destroy();
+    }
+
+    @Setup(Level.Invocation)
+    public void createService() {
+        InMemoryBookRepository repository = new InMemoryBookRepository(null);
+        service = new BookService(repository, new BookSearchIndex(repository), new ChangeLog(repository, 100_000), events,
+                Duration.ZERO, Duration.ofSeconds(5));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FEED_SIZE)
+    public Book singleItem() {
+        Book last = null;
+        for (Book book : feed) {
+            last = service.addBook(book);
+        }
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FEED_SIZE)
+    public BookBatchResult batch() {
+        return service.addBooks(feed);
+    }
+}
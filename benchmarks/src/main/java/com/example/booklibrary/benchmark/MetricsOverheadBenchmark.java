@@ -0,0 +1,76 @@
+package com.example.booklibrary.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.booklibrary.metrics.MeteredBookRepository;
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Cost MeteredBookRepository adds to findByTitle: the difference between the two
+ * benchmarks, which must stay below 100ns. Both read the same repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int QUERY_COUNT = 1 << 12;
+
+    private BookRepository plain;
+    private BookRepository metered;
+    private String[] titles;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plain = new InMemoryBookRepository(null);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            plain.save(Catalogs.book(i));
+        }
+        MeteredBookRepository meteredRepository = new MeteredBookRepository(plain);
+        meteredRepository.registerMeters(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        metered = meteredRepository;
+
+        titles = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            titles[i] = Catalogs.title(Math.floorMod(i * 7919, CATALOG_SIZE));
+        }
+    }
+
+    @Benchmark
+    public Optional<Book> findByTitle() {
+        return plain.findByTitle(titles[next()]);
+    }
+
+    @Benchmark
+    public Optional<Book> findByTitleMetered() {
+        return metered.findByTitle(titles[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (QUERY_COUNT - 1);
+        return cursor;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.booklibrary.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+/**
+ * Throughput of the basic InMemoryBookRepository operations as the catalog grows.
+ * All threads share one repository; run through BenchmarkRunner to sweep thread counts.
+ *
+ * The writes keep the catalog size stable: save replaces an existing book, and
+ * deleteByTitle puts the deleted book back, so it measures a delete plus an insert.
+ * The 10M catalog needs the large heap below; pass -p catalogSize=1000,100000 for a quick run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class RepositoryBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 12;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int catalogSize;
+
+    private BookRepository repository;
+    private String[] titles;
+    private Book[] books;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryBookRepository(null);
+        for (int i = 0; i < catalogSize; i++) {
+            repository.save(Catalogs.book(i));
+        }
+
+        titles = new String[QUERY_COUNT];
+        books = new Book[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            int id = Math.floorMod(i * 7919, catalogSize);
+            titles[i] = Catalogs.title(id);
+            books[i] = Catalogs.book(id);
+        }
+    }
+
+    /**
+     * Per-thread position in the query arrays. Threads start far apart so concurrent
+     * writers rarely touch the same title.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threads) {
+            position = threads.getThreadIndex() * (QUERY_COUNT / Math.max(1, threads.getThreadCount()));
+        }
+
+        int next() {
+            position = (position + 1) & (QUERY_COUNT - 1);
+            return position;
+        }
+    }
+
+    @Benchmark
+    public Optional<Book> findByTitle(Cursor cursor) {
+        return repository.findByTitle(titles[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<Book> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Book save(Cursor cursor) {
+        return repository.save(books[cursor.next()]);
+    }
+
+    @Benchmark
+    public Book deleteByTitle(Cursor cursor) {
+        int index = cursor.next();
+        repository.deleteByTitle(titles[index]);
+        return repository.save(books[index]);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.booklibrary.benchmark;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+import com.example.booklibrary.search.BookSearchIndex;
+
+/**
+ * BookSearchIndex against the naive alternative of filtering every book with contains().
+ * Run with -p catalogSize=5000000 and a large heap for the 5M-document target.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int catalogSize;
+
+    /** A selective title term, a prefix and a typo */
+    @Param({"lantern 4242", "harb", "lantren"})
+    private String query;
+
+    private BookRepository repository;
+    private BookSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryBookRepository(null);
+        searchIndex = new BookSearchIndex(repository);
+        for (int i = 0; i < catalogSize; i++) {
+            repository.save(Catalogs.book(i));
+        }
+    }
+
+    @Benchmark
+    public List<Book> invertedIndex() {
+        return searchIndex.search(query, 10);
+    }
+
+    @Benchmark
+    public List<Book> naiveStreamFilter() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return repository.findAll().stream()
+                .filter(book -> book.getTitle().toLowerCase(Locale.ROOT).contains(needle)
+                        || book.getAuthor().toLowerCase(Locale.ROOT).contains(needle))
+                .limit(10)
+                .collect(Collectors.toList());
+    }
+}
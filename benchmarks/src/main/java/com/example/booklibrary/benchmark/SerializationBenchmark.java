@@ -0,0 +1,75 @@
+package com.example.booklibrary.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cost of turning BookController responses into JSON bytes, with the ObjectMapper
+ * configured like the application's (indented output, see application.properties).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /** Books per list response: a default page and a larger catalog dump */
+    @Param({"100", "10000"})
+    private int responseSize;
+
+    private ObjectMapper objectMapper;
+    private Book book;
+    private List<Book> books;
+    private BookPage page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().indentOutput(true).build();
+        book = Catalogs.book(42);
+        books = new ArrayList<>(responseSize);
+        for (int i = 0; i < responseSize; i++) {
+            books.add(Catalogs.book(i));
+        }
+        page = new BookPage(books, "U2lsZW50IFJpdmVyIDQy");
+    }
+
+    /** GET /books/{title} */
+    @Benchmark
+    public byte[] singleBook() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(book);
+    }
+
+    /** GET /books */
+    @Benchmark
+    public byte[] bookList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(books);
+    }
+
+    /** GET /books?limit= */
+    @Benchmark
+    public byte[] bookPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
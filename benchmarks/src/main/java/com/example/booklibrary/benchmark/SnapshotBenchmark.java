@@ -0,0 +1,106 @@
+package com.example.booklibrary.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.persistence.CatalogSnapshotReader;
+import com.example.booklibrary.persistence.CatalogSnapshotWriter;
+import com.example.booklibrary.persistence.SnapshotCompression;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cost of moving the whole catalog between nodes: the binary snapshot of
+ * GET/PUT /books/snapshot against compact JSON, encoded to and decoded from memory
+ * so that only the CPU cost of the format is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SnapshotBenchmark {
+
+    @Param({"100000"})
+    private int catalogSize;
+
+    @Param({"NONE", "DEFLATE"})
+    private SnapshotCompression compression;
+
+    private ObjectMapper objectMapper;
+    private List<Book> books;
+    private byte[] json;
+    private byte[] snapshot;
+    // Stands in for the response stream, so neither format pays for a growing array
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        books = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            books.add(Catalogs.book(i));
+        }
+        // The repository streams books in title order
+        books.sort(Comparator.comparing(Book::getTitle));
+        json = objectMapper.writeValueAsBytes(books);
+        out = new ByteArrayOutputStream(json.length);
+        encodeSnapshot();
+        snapshot = out.toByteArray();
+        System.out.printf("%n%d books: JSON %d bytes, snapshot (%s) %d bytes%n",
+                catalogSize, json.length, compression, snapshot.length);
+    }
+
+    @Benchmark
+    public int encodeJson() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, books);
+        return out.size();
+    }
+
+    @Benchmark
+    public List<Book> decodeJson() throws IOException {
+        return objectMapper.readValue(json, new TypeReference<List<Book>>() { });
+    }
+
+    @Benchmark
+    public int encodeSnapshot() throws IOException {
+        out.reset();
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(out, compression);
+        for (Book book : books) {
+            writer.write(book);
+        }
+        writer.finish();
+        return out.size();
+    }
+
+    @Benchmark
+    public void decodeSnapshot(Blackhole blackhole) throws IOException {
+        CatalogSnapshotReader reader = new CatalogSnapshotReader(new ByteArrayInputStream(snapshot));
+        List<Book> block;
+        while ((block = reader.readBlock()) != null) {
+            blackhole.consume(block);
+        }
+    }
+}
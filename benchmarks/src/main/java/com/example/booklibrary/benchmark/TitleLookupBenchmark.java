@@ -0,0 +1,87 @@
+package com.example.booklibrary.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+/**
+ * Lookup latency of InMemoryBookRepository.findByTitle and suggestTitles as the catalog grows.
+ * A keyed lookup should report roughly the same time for every catalog size, and a
+ * suggestion should only grow with the logarithm of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TitleLookupBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 12;
+
+    @Param({"1000", "100000", "1000000"})
+    private int catalogSize;
+
+    private BookRepository repository;
+    private String[] hitQueries;
+    private String[] missQueries;
+    private String[] prefixQueries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryBookRepository(null);
+        for (int i = 0; i < catalogSize; i++) {
+            repository.save(Catalogs.book(i));
+        }
+
+        hitQueries = new String[QUERY_COUNT];
+        missQueries = new String[QUERY_COUNT];
+        prefixQueries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            int id = Math.floorMod(i * 7919, catalogSize);
+            // Callers rarely send the stored casing, so probe with a different one
+            hitQueries[i] = Catalogs.title(id).toUpperCase();
+            missQueries[i] = "Missing " + Catalogs.title(id);
+            // What a user has typed after a few keystrokes
+            prefixQueries[i] = Catalogs.title(id).substring(0, 9).toLowerCase();
+        }
+    }
+
+    @Benchmark
+    public Optional<Book> findByTitleHit() {
+        return repository.findByTitle(hitQueries[next()]);
+    }
+
+    @Benchmark
+    public Optional<Book> findByTitleMiss() {
+        return repository.findByTitle(missQueries[next()]);
+    }
+
+    @Benchmark
+    public List<String> suggestTitles() {
+        return repository.suggestTitles(prefixQueries[next()], 10);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (QUERY_COUNT - 1);
+        return cursor;
+    }
+}
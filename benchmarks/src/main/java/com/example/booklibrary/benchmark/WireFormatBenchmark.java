@@ -0,0 +1,102 @@
+package com.example.booklibrary.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.booklibrary.controller.BookJacksonModule;
+import com.example.booklibrary.model.Book;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Cost and size of a list of books in each content type GET /books negotiates: JSON,
+ * CBOR and Smile, written through BookJacksonModule ("prebuilt") or Jackson's reflective
+ * bean serializer ("bean"). Payloads are compact (no indentation) and written to a reused
+ * stream standing in for the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class WireFormatBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int catalogSize;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"prebuilt", "bean"})
+    private String serializers;
+
+    private ObjectMapper objectMapper;
+    private JavaType listType;
+    private List<Book> books;
+    private byte[] encoded;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper(factory(format))
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        if (serializers.equals("prebuilt")) {
+            objectMapper.registerModule(new BookJacksonModule());
+        }
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class);
+        books = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            books.add(Catalogs.book(i));
+        }
+        encoded = objectMapper.writeValueAsBytes(books);
+        out = new ByteArrayOutputStream(encoded.length);
+        System.out.printf("%n%d books as %s: %d bytes (%.1f per book)%n",
+                catalogSize, format, encoded.length, (double) encoded.length / catalogSize);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch (format) {
+            case "json":
+                return new JsonFactory();
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, books);
+        return out.size();
+    }
+
+    @Benchmark
+    public List<Book> decode() throws IOException {
+        return objectMapper.readValue(encoded, listType);
+    }
+}
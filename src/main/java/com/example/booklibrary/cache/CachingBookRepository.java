@@ -0,0 +1,312 @@
+package com.example.booklibrary.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookMutationListener;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.TitleNormalizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Read-through cache in front of a slower BookRepository, built on Caffeine's W-TinyLFU
+ * eviction so one-off lookups do not push out frequently read books.
+ *
+ * <ul>
+ * <li>findByTitle results are cached by title key, misses included: a 404 for an unknown
+ *     title is answered from the cache as long as no book with that title is saved.</li>
+ * <li>findAll and findPage results are cached by cursor and limit, bounded by the total
+ *     number of books they hold. A write only evicts the pages whose title range contains
+ *     the written title.</li>
+ * </ul>
+ * Invalidation is driven by BookMutationListener, so writes that bypass this decorator,
+ * such as log replay into the delegate, invalidate as well. Entries are dropped when the
+ * write is announced and again once it has completed, so a lookup that read the old value
+ * in between, in a store that announces writes before readers can see them, is not kept.
+ * The other queries are passed through uncached.
+ */
+public class CachingBookRepository implements BookRepository, BookMutationListener {
+
+    // Beyond this many titles in one bulk save, dropping the whole cache is cheaper
+    private static final int MAX_TRACKED_KEYS = 1024;
+
+    private final BookRepository delegate;
+    private final Cache<String, Optional<Book>> titles;
+    private final Cache<PageKey, CachedPage> pages;
+
+    // Bumped before every invalidation. A reader that saw it change while it was loading
+    // drops what it loaded, since the value may predate the write.
+    private final AtomicLong writes = new AtomicLong();
+    // Title keys written by the current thread's mutation, invalidated again when it completes;
+    // null once a bulk save wrote too many to track, which drops every cached title instead
+    private final ThreadLocal<List<String>> writtenKeys = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * @param delegate         The repository to cache
+     * @param maximumTitles    Maximum number of cached findByTitle results
+     * @param maximumPageBooks Maximum number of books across all cached pages
+     */
+    public CachingBookRepository(BookRepository delegate, long maximumTitles, long maximumPageBooks) {
+        this.delegate = delegate;
+        this.titles = Caffeine.newBuilder()
+                .maximumSize(maximumTitles)
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maximumPageBooks)
+                .<PageKey, CachedPage>weigher((key, page) -> page.books.size() + 1)
+                .recordStats()
+                .build();
+        delegate.addMutationListener(this);
+    }
+
+    /**
+     * @return The repository behind the cache
+     */
+    public BookRepository getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return The findByTitle cache, for statistics
+     */
+    public Cache<String, Optional<Book>> getTitleCache() {
+        return titles;
+    }
+
+    /**
+     * @return The findAll and findPage cache, for statistics
+     */
+    public Cache<?, ?> getPageCache() {
+        return pages;
+    }
+
+    @Override
+    public Optional<Book> findByTitle(String title) {
+        if (title == null || title.trim().isEmpty()) {
+            return Optional.empty();
+        }
+
+        String key = TitleNormalizer.normalize(title);
+        Optional<Book> cached = titles.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Not Cache.get(key, loader): the loader would run under a cache lock that a writer,
+        // holding the delegate's lock, may be waiting for
+        long seen = writes.get();
+        Optional<Book> loaded = delegate.findByTitle(title);
+        titles.put(key, loaded);
+        if (writes.get() != seen) {
+            titles.invalidate(key);
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return cachedPage(null, -1);
+    }
+
+    @Override
+    public List<Book> findPage(String afterTitle, int limit) {
+        return cachedPage(afterTitle, limit);
+    }
+
+    // limit -1 stands for findAll
+    private List<Book> cachedPage(String afterTitle, int limit) {
+        String afterKey = afterTitle == null ? null : TitleNormalizer.normalize(afterTitle);
+        PageKey key = new PageKey(afterKey, limit);
+        CachedPage cached = pages.getIfPresent(key);
+        if (cached != null) {
+            return cached.books;
+        }
+
+        long seen = writes.get();
+        List<Book> books = limit < 0 ? delegate.findAll() : delegate.findPage(afterTitle, limit);
+        // A short page runs to the end of the catalog, so any later title changes it
+        String lastKey = limit >= 0 && books.size() >= limit && !books.isEmpty()
+                ? TitleNormalizer.normalize(books.get(books.size() - 1).getTitle())
+                : null;
+        pages.put(key, new CachedPage(books, afterKey, lastKey));
+        if (writes.get() != seen) {
+            pages.invalidate(key);
+        }
+        return books;
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        return delegate.suggestTitles(prefix, limit);
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return delegate.findByAuthor(author);
+    }
+
+    @Override
+    public List<Book> findByYearBetween(int fromYear, int toYear) {
+        return delegate.findByYearBetween(fromYear, toYear);
+    }
+
+    @Override
+    public Book save(Book book) {
+        return delegate.save(book);
+    }
+
+    @Override
+    public Optional<Book> saveIfAbsent(Book book) {
+        return delegate.saveIfAbsent(book);
+    }
+
+    @Override
+    public Optional<Book> replaceIfVersion(Book book, long expectedVersion) {
+        return delegate.replaceIfVersion(book, expectedVersion);
+    }
+
+    @Override
+    public List<Book> saveAll(Collection<Book> books) {
+        return delegate.saveAll(books);
+    }
+
+    @Override
+    public int count() {
+        return delegate.count();
+    }
+
+    @Override
+    public boolean deleteByTitle(String title) {
+        return delegate.deleteByTitle(title);
+    }
+
+    @Override
+    public boolean deleteIfVersion(String title, long expectedVersion) {
+        return delegate.deleteIfVersion(title, expectedVersion);
+    }
+
+    @Override
+    public long getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+
+    @Override
+    public void addMutationListener(BookMutationListener listener) {
+        delegate.addMutationListener(listener);
+    }
+
+    @Override
+    public CompletionStage<Void> whenLoaded() {
+        return delegate.whenLoaded();
+    }
+
+    @Override
+    public void bookSaved(Book previous, Book saved) {
+        written(TitleNormalizer.normalize(saved.getTitle()));
+    }
+
+    @Override
+    public void bookDeleted(Book removed) {
+        written(TitleNormalizer.normalize(removed.getTitle()));
+    }
+
+    @Override
+    public void mutationCompleted() {
+        List<String> keys = writtenKeys.get();
+        writtenKeys.remove();
+        if (keys == null) {
+            writes.incrementAndGet();
+            titles.invalidateAll();
+            pages.invalidateAll();
+            return;
+        }
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    // Every cached book carries a stale version; dropped again once the write completes
+    @Override
+    public void versionsChanged() {
+        writtenKeys.set(null);
+        writes.incrementAndGet();
+        titles.invalidateAll();
+        pages.invalidateAll();
+    }
+
+    private void written(String key) {
+        invalidate(key);
+        List<String> keys = writtenKeys.get();
+        if (keys != null) {
+            if (keys.size() < MAX_TRACKED_KEYS) {
+                keys.add(key);
+            } else {
+                writtenKeys.set(null);
+            }
+        }
+    }
+
+    private void invalidate(String key) {
+        writes.incrementAndGet();
+        titles.invalidate(key);
+        // Bounded by the page cache size; pages are few compared to titles
+        pages.asMap().values().removeIf(page -> page.covers(key));
+    }
+
+    private static final class PageKey {
+        private final String afterKey;
+        private final int limit;
+
+        PageKey(String afterKey, int limit) {
+            this.afterKey = afterKey;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof PageKey)) return false;
+            PageKey other = (PageKey) obj;
+            return limit == other.limit && Objects.equals(afterKey, other.afterKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(afterKey) + limit;
+        }
+    }
+
+    /**
+     * A cached result with the range of title keys it was read from:
+     * after firstExclusive (or from the start) up to lastInclusive (or to the end).
+     */
+    private static final class CachedPage {
+        private final List<Book> books;
+        private final String firstExclusive;
+        private final String lastInclusive;
+
+        CachedPage(List<Book> books, String firstExclusive, String lastInclusive) {
+            this.books = List.copyOf(books);
+            this.firstExclusive = firstExclusive;
+            this.lastInclusive = lastInclusive;
+        }
+
+        boolean covers(String key) {
+            return (firstExclusive == null || key.compareTo(firstExclusive) > 0)
+                    && (lastInclusive == null || key.compareTo(lastInclusive) <= 0);
+        }
+    }
+}
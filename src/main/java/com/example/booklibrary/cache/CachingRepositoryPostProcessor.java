@@ -0,0 +1,42 @@
+package com.example.booklibrary.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Puts a CachingBookRepository in front of the active BookRepository when
+ * library.cache.enabled=true. Worth it for stores slower than the in-memory maps,
+ * such as the off-heap store. Runs before the metrics wrapper, so repository
+ * latency metrics include cache hits.
+ */
+@Component
+@ConditionalOnProperty(name = "library.cache.enabled", havingValue = "true")
+public class CachingRepositoryPostProcessor implements BeanPostProcessor, Ordered {
+
+    private final long maximumTitles;
+    private final long maximumPageBooks;
+
+    public CachingRepositoryPostProcessor(@Value("${library.cache.titles.maximum-size:100000}") long maximumTitles,
+            @Value("${library.cache.pages.maximum-books:100000}") long maximumPageBooks) {
+        this.maximumTitles = maximumTitles;
+        this.maximumPageBooks = maximumPageBooks;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof BookRepository && !(bean instanceof CachingBookRepository)) {
+            return new CachingBookRepository((BookRepository) bean, maximumTitles, maximumPageBooks);
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
@@ -1,68 +1,356 @@
 package com.example.booklibrary.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.booklibrary.controller.EncodedResponseCache.EncodedResponse;
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.exception.BookAlreadyExistsException;
 import com.example.booklibrary.exception.BookNotFoundException;
+import com.example.booklibrary.exception.BookVersionMismatchException;
+import com.example.booklibrary.exception.CatalogLoadingException;
 import com.example.booklibrary.exception.ErrorResponse;
 import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.model.BookChanges;
+import com.example.booklibrary.model.BookPage;
+import com.example.booklibrary.model.SnapshotImportResult;
+import com.example.booklibrary.persistence.CatalogSnapshotWriter;
+import com.example.booklibrary.persistence.SnapshotCompression;
+import com.example.booklibrary.repository.TitleNormalizer;
 import com.example.booklibrary.service.BookService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * REST Controller for book library operations.
  * Handles HTTP requests and returns JSON responses.
+ * Serves the servlet stack; ReactiveBookController takes over with
+ * spring.main.web-application-type=reactive.
  */
 @RestController
 @RequestMapping("/books")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BookController {
     
+    // Key of the GET /books body in the EncodedResponseCache; pages are keyed by their parameters
+    private static final String ALL_BOOKS = "all";
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    // Content types of the negotiated bodies, in the order of the message converters
+    private static final List<MediaType> PRODUCIBLE = List.of(MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR, SMILE);
+    
     private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final BookEventPublisher eventPublisher;
+    private final EncodedResponseCache responseCache;
+    // One compact JSON object per line, flushed by the servlet buffer rather than per book
+    private final ObjectWriter ndjsonWriter;
+    // Versions start over when the process restarts, so ETags of an earlier run must not match
+    private final String etagEpoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
     
     /**
      * Constructor injection for better testability
      */
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, ObjectMapper objectMapper, BookEventPublisher eventPublisher,
+            EncodedResponseCache responseCache) {
         this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.responseCache = responseCache;
+        this.ndjsonWriter = objectMapper.writerFor(Book.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
     
     /**
      * GET /books - Returns all books sorted by title
+     * Like every catalog read, answers 304 Not Modified without reading or serializing
+     * any book when If-None-Match holds the ETag of the current catalog version.
+     * The JSON body comes from the EncodedResponseCache, gzipped if the client accepts
+     * it, so until the catalog changes a request costs one write of a cached array.
+     * Each content type has an ETag of its own, and responses vary by Accept.
      *
-     * @return ResponseEntity with list of books and HTTP 200 status
+     * @param accept The Accept header, checked for whether JSON is wanted
+     * @param acceptEncoding The Accept-Encoding header, checked for gzip
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with list of books and HTTP 200 status, or null after a 304
      */
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
+    public ResponseEntity<?> getAllBooks(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        MediaType contentType = negotiate(accept);
+        if (MediaType.APPLICATION_JSON.equals(contentType)) {
+            return cachedJson(ALL_BOOKS, acceptEncoding, request, bookService::getAllBooks);
+        }
+        if (checkNotModified(request, catalogETag(contentType))) {
+            return null;
+        }
         List<Book> books = bookService.getAllBooks();
-        return ResponseEntity.ok(books);
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(books);
+    }
+    
+    
+    /**
+     * GET /books/stream - Streams all books sorted by title as NDJSON
+     * Each book is written straight to the response as it is read from the repository,
+     * so memory use does not depend on the catalog size. A slow client blocks the
+     * writing thread on the socket instead of letting the response pile up in memory.
+     *
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the streaming body and HTTP 200 status, or null after a 304
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks(WebRequest request) {
+        if (request.checkNotModified(catalogETag())) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Book> books = bookService.streamAllBooks();
+                    JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                Iterator<Book> iterator = books.iterator();
+                while (iterator.hasNext()) {
+                    ndjsonWriter.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    /**
+     * GET /books/snapshot?compression={none|deflate} - Streams the whole catalog in the
+     * binary snapshot format (see CatalogSnapshotWriter), written block by block as the
+     * books are read. Far cheaper to produce and parse than the JSON of GET /books, for
+     * copying the catalog between nodes.
+     *
+     * @param compression The compression of the blocks (default none)
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the streaming body and HTTP 200 status, or null after a 304
+     */
+    @GetMapping(value = "/snapshot", produces = CatalogSnapshotWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> getSnapshot(
+            @RequestParam(defaultValue = "none") String compression, WebRequest request) {
+        SnapshotCompression blockCompression = SnapshotCompression.of(compression);
+        if (request.checkNotModified(catalogETag())) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> bookService.exportSnapshot(outputStream, blockCompression);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(CatalogSnapshotWriter.MEDIA_TYPE)).body(body);
+    }
+    
+    /**
+     * PUT /books/snapshot - Replaces the catalog with a binary snapshot, read and saved
+     * block by block while the body arrives
+     *
+     * @param body The request body stream
+     * @return ResponseEntity with the number of books imported and removed, and HTTP 200 status
+     * @throws IOException if the body cannot be read
+     */
+    @PutMapping(value = "/snapshot", consumes = CatalogSnapshotWriter.MEDIA_TYPE)
+    public ResponseEntity<SnapshotImportResult> putSnapshot(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookService.importSnapshot(body));
+    }
+    
+    /**
+     * GET /books/changes?since={sequence}&limit={n} - Returns the saves and deletes after a
+     * position of the change feed, so replicas stay in sync at a cost proportional to churn.
+     * Without since, or when since is no longer retained, the answer has resync set: the
+     * client reloads GET /books and continues from the returned next.
+     *
+     * @param since The next value of the previous answer
+     * @param limit The maximum number of changes (default 1000)
+     * @return ResponseEntity with the changes, oldest first, and the next position
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<BookChanges> getChanges(@RequestParam(required = false) Long since,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.getChanges(since, limit));
+    }
+    
+    /**
+     * GET /books/events - Pushes saves and deletes as Server-Sent Events
+     * Events are "saved" (the book), "deleted" (the title) and "batch" (books were added in
+     * bulk and are not listed). The connection holds no thread while idle. A client that
+     * cannot keep up is disconnected and catches up through GET /books/changes.
+     *
+     * @return The event stream, open until the client leaves or the request times out
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseBodyEmitter streamEvents() {
+        return eventPublisher.subscribe();
+    }
+    
+    /**
+     * GET /books/search?q={query}&limit={n} - Full-text search over titles and authors
+     *
+     * @param q The query; the last word also matches as a prefix and small typos are tolerated
+     * @param limit The maximum number of results (default 10)
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the matching books, best match first, or null after a 304
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Book>> searchBooks(@RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request) {
+        // Before the ETag check, so invalid arguments get 400 and never 304
+        bookService.validateSearchRequest(q, limit);
+        if (checkNotModified(request, catalogETag(negotiate(accept)))) {
+            return null;
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.searchBooks(q, limit));
+    }
+    
+    /**
+     * GET /books/suggest?prefix={prefix}&limit={n} - Autocompletes titles
+     *
+     * @param prefix The beginning of a title (case-insensitive)
+     * @param limit The maximum number of titles (default 10)
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the matching titles in alphabetical order, or null after a 304
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggestTitles(@RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request) {
+        bookService.validateSuggestRequest(prefix, limit);
+        if (checkNotModified(request, catalogETag(negotiate(accept)))) {
+            return null;
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.suggestTitles(prefix, limit));
+    }
+    
+    /**
+     * GET /books?limit={n}&after={cursor} - Returns one page of books sorted by title
+     *
+     * @param limit The maximum number of books on the page
+     * @param after The nextCursor of the previous page, omitted for the first page
+     * @param accept The Accept header; JSON pages are cached like GET /books
+     * @param acceptEncoding The Accept-Encoding header, checked for gzip
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the page and the cursor of the next one, or null after a 304
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> getBooksPage(@RequestParam int limit,
+            @RequestParam(required = false) String after,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        bookService.validatePageRequest(after, limit);
+        MediaType contentType = negotiate(accept);
+        if (MediaType.APPLICATION_JSON.equals(contentType)) {
+            return cachedJson(Arrays.asList(limit, after), acceptEncoding, request,
+                    () -> bookService.getBooksPage(after, limit));
+        }
+        if (checkNotModified(request, catalogETag(contentType))) {
+            return null;
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.getBooksPage(after, limit));
+    }
+    
+    
+    /**
+     * GET /books?author={author} - Returns the books of an author sorted by title
+     *
+     * @param author The author to search for (case-insensitive)
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the author's books and HTTP 200 status, or null after a 304
+     */
+    @GetMapping(params = "author")
+    public ResponseEntity<List<Book>> getBooksByAuthor(@RequestParam String author,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request) {
+        bookService.validateAuthor(author);
+        if (checkNotModified(request, catalogETag(negotiate(accept)))) {
+            return null;
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.getBooksByAuthor(author));
+    }
+    
+    /**
+     * GET /books?yearFrom={from}&yearTo={to} - Returns the books published in a year range
+     *
+     * @param yearFrom The first year of the range (inclusive)
+     * @param yearTo The last year of the range (inclusive)
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the books sorted by year and title, and HTTP 200 status,
+     *         or null after a 304
+     */
+    @GetMapping(params = {"yearFrom", "yearTo"})
+    public ResponseEntity<List<Book>> getBooksByYearRange(@RequestParam int yearFrom, @RequestParam int yearTo,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request) {
+        bookService.validateYearRange(yearFrom, yearTo);
+        if (checkNotModified(request, catalogETag(negotiate(accept)))) {
+            return null;
+        }
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(bookService.getBooksByYearRange(yearFrom, yearTo));
     }
     
     /**
      * GET /books/{title} - Returns a single book by title
+     * The ETag comes from the version of the book, so it only changes when this book does,
+     * and from the content type.
      *
      * @param title The title of the book to find
-     * @return ResponseEntity with the book if found
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @param request The request, checked for If-None-Match
+     * @return ResponseEntity with the book if found, or null after a 304
      * @throws BookNotFoundException if the book is not found
      */
     @GetMapping("/{title}")
-    public ResponseEntity<Book> getBookByTitle(@PathVariable String title) {
+    public ResponseEntity<Book> getBookByTitle(@PathVariable String title,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request) {
         Optional<Book> book = bookService.getBookByTitle(title);
         
         if (book.isPresent()) {
-            return ResponseEntity.ok(book.get());
+            if (checkNotModified(request, bookETag(book.get(), negotiate(accept)))) {
+                return null;
+            }
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(book.get());
         } else {
             throw new BookNotFoundException("Book with title '" + title + "' not found");
         }
@@ -72,15 +360,108 @@ public class BookController {
     /**
      * POST /books - Adds a new book
      * The book details are provided in the request body as a JSON object.
+     * A title that already exists is answered with 409 Conflict and the ETag of the
+     * stored book; PUT /books/{title} replaces a book.
      * 
      * @param book The book object deserialized from the request body.
-     * @return ResponseEntity with the created book and HTTP 201 status
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @return ResponseEntity with the created book, its ETag and HTTP 201 status
      */
     @PostMapping
-    public ResponseEntity<Book> addBook(@RequestBody Book book) {
+    public ResponseEntity<Book> addBook(@RequestBody Book book,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         // The exception handler deals with validation errors
         Book savedBook = bookService.addBook(book);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedBook);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(bookETag(savedBook, negotiate(accept))).body(savedBook);
+    }
+    
+    /**
+     * PUT /books/{title} - Adds or replaces the book with this title
+     * With If-Match the book is only replaced while it still has one of the given ETags,
+     * so a client cannot overwrite a change it has not seen; If-Match: * only requires
+     * that the book exists. A failed condition is answered with 412 Precondition Failed
+     * and the ETag of the stored book, if any.
+     * 
+     * @param title The title of the book, which must match the title in the body
+     * @param book The new state of the book
+     * @param ifMatch The If-Match header, or null to save unconditionally; the ETag of
+     *        any content type of the book matches
+     * @param accept The Accept header, which selects the content type and its ETag
+     * @return ResponseEntity with the saved book, its ETag and HTTP 200 status
+     */
+    @PutMapping("/{title}")
+    public ResponseEntity<Book> putBook(@PathVariable String title, @RequestBody Book book,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (book.getTitle() != null && !book.getTitle().trim().isEmpty()
+                && !TitleNormalizer.normalize(book.getTitle()).equals(TitleNormalizer.normalize(title))) {
+            throw new IllegalArgumentException("Book title must match the title in the path");
+        }
+        Book savedBook = ifMatch == null
+                ? bookService.saveBook(book)
+                : bookService.replaceBook(book, matchedVersion(title, ifMatch));
+        return ResponseEntity.ok().eTag(bookETag(savedBook, negotiate(accept))).body(savedBook);
+    }
+    
+    /**
+     * POST /books/batch - Adds many books in one request
+     * The books are provided as a JSON array.
+     * 
+     * @param books The books deserialized from the request body
+     * @return ResponseEntity with totals and a result per book, and HTTP 200 status
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookBatchResult> addBooks(@RequestBody List<Book> books) {
+        return ResponseEntity.ok(bookService.addBooks(books));
+    }
+    
+    /**
+     * POST /books/batch - Adds many books in one request
+     * The books are provided as NDJSON, one JSON object per line, and saved in chunks
+     * while the body is read, see BookService.addBooks(Iterator).
+     * 
+     * @param body The request body stream
+     * @return ResponseEntity with totals and a result per book, and HTTP 200 status
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BookBatchResult> addBooksFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<Book> lines = objectMapper.readerFor(Book.class).readValues(body)) {
+            return ResponseEntity.ok(bookService.addBooks(ndjsonBooks(lines)));
+        } catch (JsonProcessingException e) {
+            throw invalidNdjson(e);
+        }
+    }
+    
+    // The lines as a plain Iterator; a malformed line is a bad request
+    private static Iterator<Book> ndjsonBooks(MappingIterator<Book> lines) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return lines.hasNextValue();
+                } catch (JsonProcessingException e) {
+                    throw invalidNdjson(e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public Book next() {
+                try {
+                    return lines.nextValue();
+                } catch (JsonProcessingException e) {
+                    throw invalidNdjson(e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+    
+    private static IllegalArgumentException invalidNdjson(JsonProcessingException e) {
+        return new IllegalArgumentException("Invalid NDJSON body: " + e.getOriginalMessage());
     }
     
     /**
@@ -97,6 +478,186 @@ public class BookController {
         return ResponseEntity.noContent().build();
     }
     
+    /**
+     * Strong ETag of every representation derived from the whole catalog.
+     * Read before the data, so a write racing with the request can only make the
+     * tag older than the body, which costs the client one extra download later.
+     */
+    private String catalogETag() {
+        return catalogETag(MediaType.APPLICATION_JSON);
+    }
+    
+    private String catalogETag(MediaType contentType) {
+        return catalogETag(bookService.getCatalogVersion(), contentType, false);
+    }
+    
+    /**
+     * Each content type, and the gzipped body, is a representation of its own, so it
+     * gets a tag of its own.
+     */
+    private String catalogETag(long version, MediaType contentType, boolean gzip) {
+        return "\"" + etagEpoch + "-" + version + representation(contentType) + (gzip ? "-gzip" : "") + "\"";
+    }
+    
+    // JSON, also tagged when nothing is acceptable and the request ends in a 406, has no suffix
+    private static String representation(MediaType contentType) {
+        if (MediaType.APPLICATION_CBOR.equals(contentType)) {
+            return "-cbor";
+        }
+        return SMILE.equals(contentType) ? "-smile" : "";
+    }
+    
+    /**
+     * WebRequest.checkNotModified for a response that varies by Accept; the 304 carries
+     * the same Vary header as the body it stands for.
+     */
+    private static boolean checkNotModified(WebRequest request, String etag, String... vary) {
+        if (!request.checkNotModified(etag)) {
+            return false;
+        }
+        HttpServletResponse response = request instanceof NativeWebRequest
+                ? ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class)
+                : null;
+        if (response != null) {
+            response.setHeader(HttpHeaders.VARY, vary.length == 0 ? HttpHeaders.ACCEPT : String.join(", ", vary));
+        }
+        return true;
+    }
+    
+    /**
+     * Answers a catalog read with its JSON body from the EncodedResponseCache.
+     */
+    private ResponseEntity<byte[]> cachedJson(Object query, String acceptEncoding, WebRequest request,
+            Supplier<?> body) {
+        long version = bookService.getCatalogVersion();
+        boolean acceptsGzip = acceptsGzip(acceptEncoding);
+        // Without gzip the tag is known before the body is; with it, it depends on whether
+        // the body is large enough to be sent gzipped
+        if (!acceptsGzip && checkNotModified(request, catalogETag(version, MediaType.APPLICATION_JSON, false),
+                HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)) {
+            return null;
+        }
+        EncodedResponse response = responseCache.get(version, query, () -> {
+            try {
+                return objectMapper.writeValueAsBytes(body.get());
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        boolean gzip = acceptsGzip && response.getGzip() != null;
+        if (acceptsGzip && checkNotModified(request, catalogETag(version, MediaType.APPLICATION_JSON, gzip),
+                HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.getGzip());
+        }
+        return builder.body(response.getIdentity());
+    }
+    
+    /**
+     * The content type content negotiation would pick for an Accept header, or null if
+     * none is acceptable. Same rule as Spring MVC: every pairing of an accepted type with a
+     * type the converters produce, ranked by specificity and quality, and the first wins;
+     * JSON is the first converter, so it wins ties and a wildcard.
+     */
+    static MediaType negotiate(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            // Left to the regular negotiation to answer
+            return null;
+        }
+        List<MediaType> candidates = new ArrayList<>();
+        for (MediaType type : accepted) {
+            for (MediaType producible : PRODUCIBLE) {
+                if (type.isCompatibleWith(producible)) {
+                    candidates.add(producible.copyQualityValue(type));
+                }
+            }
+        }
+        MediaType.sortBySpecificityAndQuality(candidates);
+        if (candidates.isEmpty() || candidates.get(0).getQualityValue() == 0) {
+            return null;
+        }
+        for (MediaType producible : PRODUCIBLE) {
+            if (producible.equalsTypeAndSubtype(candidates.get(0))) {
+                return producible;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * True if an Accept-Encoding header allows gzip, by name or through *.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            return Double.parseDouble(parameter.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Strong ETag of a single stored book.
+     */
+    private String bookETag(Book book) {
+        return bookETag(book, MediaType.APPLICATION_JSON);
+    }
+    
+    private String bookETag(Book book, MediaType contentType) {
+        return "\"" + etagEpoch + "-" + book.getVersion() + representation(contentType) + "\"";
+    }
+    
+    /**
+     * Version of the stored book if If-Match names its ETag or is *, otherwise 0, which
+     * matches no stored book. The replace itself compares versions again atomically,
+     * so a write after this read still fails the condition.
+     */
+    private long matchedVersion(String title, String ifMatch) {
+        Optional<Book> current = bookService.getBookByTitle(title);
+        if (current.isEmpty()) {
+            return 0;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return current.get().getVersion();
+            }
+            // Weak ETags never match: If-Match uses strong comparison
+            for (MediaType contentType : PRODUCIBLE) {
+                if (trimmed.equals(bookETag(current.get(), contentType))) {
+                    return current.get().getVersion();
+                }
+            }
+        }
+        return 0;
+    }
+    
     /**
      * Exception handler for IllegalArgumentException
      * Returns structured error response with HTTP 400 Bad Request for invalid input
@@ -113,6 +674,43 @@ public class BookController {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
     
+    /**
+     * Exception handler for BookAlreadyExistsException
+     * Returns structured error response with HTTP 409 Conflict and the stored book's ETag
+     */
+    @ExceptionHandler(BookAlreadyExistsException.class)
+    public ResponseEntity<ErrorResponse> handleBookAlreadyExistsException(
+            BookAlreadyExistsException e, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            "Conflict",
+            e.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return withETag(ResponseEntity.status(HttpStatus.CONFLICT), e.getCurrent()).body(errorResponse);
+    }
+    
+    /**
+     * Exception handler for BookVersionMismatchException
+     * Returns structured error response with HTTP 412 Precondition Failed and the stored
+     * book's ETag, so the client can re-read or retry against the current version
+     */
+    @ExceptionHandler(BookVersionMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleBookVersionMismatchException(
+            BookVersionMismatchException e, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.PRECONDITION_FAILED.value(),
+            "Precondition Failed",
+            e.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return withETag(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED), e.getCurrent()).body(errorResponse);
+    }
+    
+    private ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, Book current) {
+        return current == null ? response : response.eTag(bookETag(current));
+    }
+    
     /**
      * Exception handler for BookNotFoundException
      * Returns structured error response with HTTP 404 Not Found
@@ -128,4 +726,22 @@ public class BookController {
         );
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
+    
+    /**
+     * Exception handler for CatalogLoadingException
+     * Returns structured error response with HTTP 503 Service Unavailable and Retry-After
+     */
+    @ExceptionHandler(CatalogLoadingException.class)
+    public ResponseEntity<ErrorResponse> handleCatalogLoadingException(
+            CatalogLoadingException e, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Service Unavailable",
+            e.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(errorResponse);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.example.booklibrary.controller;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.model.Book;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Hand-written Jackson serializer and deserializer for Book, used by every ObjectMapper
+ * of the application: JSON as well as the CBOR and Smile converters of
+ * BinaryContentConfiguration.
+ *
+ * Jackson's bean serializer reads each property through reflection and matches each
+ * incoming field name against a property table; these write and read the three fields
+ * directly, with the field names encoded once. The result is the same as the bean
+ * serializer's: title, author and year in that order, nulls included, the version left
+ * out, and unknown fields handled as the DeserializationContext is configured.
+ */
+@Component
+public final class BookJacksonModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString AUTHOR = new SerializedString("author");
+    private static final SerializedString YEAR = new SerializedString("year");
+
+    public BookJacksonModule() {
+        super("BookJacksonModule");
+        addSerializer(Book.class, new BookSerializer());
+        addDeserializer(Book.class, new BookDeserializer());
+    }
+
+    static final class BookSerializer extends StdSerializer<Book> {
+
+        private static final long serialVersionUID = 1L;
+
+        BookSerializer() {
+            super(Book.class);
+        }
+
+        @Override
+        public void serialize(Book book, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(book);
+            generator.writeFieldName(TITLE);
+            generator.writeString(book.getTitle());
+            generator.writeFieldName(AUTHOR);
+            generator.writeString(book.getAuthor());
+            generator.writeFieldName(YEAR);
+            generator.writeNumber(book.getYear());
+            generator.writeEndObject();
+        }
+    }
+
+    static final class BookDeserializer extends StdDeserializer<Book> {
+
+        private static final long serialVersionUID = 1L;
+
+        BookDeserializer() {
+            super(Book.class);
+        }
+
+        @Override
+        public Book deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                token = parser.nextToken();
+            }
+            if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+                return (Book) context.handleUnexpectedToken(Book.class, parser);
+            }
+            String title = null;
+            String author = null;
+            int year = 0;
+            for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "title":
+                        title = parser.currentToken() == JsonToken.VALUE_NULL ? null : _parseString(parser, context);
+                        break;
+                    case "author":
+                        author = parser.currentToken() == JsonToken.VALUE_NULL ? null : _parseString(parser, context);
+                        break;
+                    case "year":
+                        year = _parseIntPrimitive(parser, context);
+                        break;
+                    default:
+                        handleUnknownProperty(parser, context, Book.class, name);
+                }
+            }
+            return new Book(title, author, year);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.booklibrary.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Response bodies of catalog listings as they go over the wire: the JSON bytes, and the
+ * same bytes gzipped when that is worth it. A repeated GET /books or GET /books?limit=
+ * is then answered with one write of a cached array, without reading a book or calling
+ * Jackson or the compressor.
+ *
+ * Entries are keyed by the catalog version read before the body was built, so a save or
+ * delete, which bumps the version, makes every entry unreachable; a new version drops the
+ * older entries outright. A body built while a write was in progress may be newer than
+ * its version, never older, so a cached body is never staler than its key. Bodies are
+ * bounded by their total size in bytes and evicted by Caffeine's W-TinyLFU, which keeps
+ * the popular pages when there are more than fit.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EncodedResponseCache {
+
+    // Below this gzip saves too little to be worth a Content-Encoding; Tomcat's threshold too
+    static final int MIN_GZIP_BYTES = 2048;
+
+    private final Cache<Key, EncodedResponse> responses;
+    private final AtomicLong latestVersion = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param maximumSize Maximum total size of the cached bodies, 0 to cache nothing
+     */
+    public EncodedResponseCache(@Value("${library.response-cache.maximum-size:64MB}") DataSize maximumSize) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .<Key, EncodedResponse>weigher((key, response) -> response.size())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the encoded body of a query at a catalog version, encoding it on a miss.
+     * Concurrent misses for the same body wait for one encoding instead of repeating it.
+     *
+     * @param version The catalog version, read before the body is built
+     * @param query Identifies the body within the version, such as the page parameters
+     * @param encoder Builds the body; it is called at most once per miss
+     * @return The encoded body
+     */
+    public EncodedResponse get(long version, Object query, Supplier<byte[]> encoder) {
+        long latest = latestVersion.get();
+        if (version < latest) {
+            // Read before a write another request has already seen; not worth keeping
+            return EncodedResponse.of(encoder.get());
+        }
+        if (version > latest && latestVersion.compareAndSet(latest, version)) {
+            responses.asMap().keySet().removeIf(key -> key.version < version);
+        }
+        return responses.get(new Key(version, query), key -> EncodedResponse.of(encoder.get()));
+    }
+
+    /**
+     * @return The cache, for statistics
+     */
+    public Cache<?, ?> getCache() {
+        return responses;
+    }
+
+    /**
+     * A response body, plain and possibly gzipped.
+     */
+    public static final class EncodedResponse {
+
+        private final byte[] identity;
+        private final byte[] gzip;
+
+        private EncodedResponse(byte[] identity, byte[] gzip) {
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        static EncodedResponse of(byte[] identity) {
+            return new EncodedResponse(identity, identity.length < MIN_GZIP_BYTES ? null : gzip(identity));
+        }
+
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+                gzip.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+
+        /**
+         * @return The body as encoded
+         */
+        public byte[] getIdentity() {
+            return identity;
+        }
+
+        /**
+         * @return The body gzipped, or null if it is too small to be worth compressing
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        int size() {
+            return identity.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    private static final class Key {
+        private final long version;
+        private final Object query;
+
+        Key(long version, Object query) {
+            this.version = version;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return version == other.version && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(version) + query.hashCode();
+        }
+    }
+}
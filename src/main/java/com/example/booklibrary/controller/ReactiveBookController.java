@@ -0,0 +1,400 @@
+package com.example.booklibrary.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.booklibrary.exception.BookAlreadyExistsException;
+import com.example.booklibrary.exception.BookNotFoundException;
+import com.example.booklibrary.exception.BookVersionMismatchException;
+import com.example.booklibrary.exception.CatalogLoadingException;
+import com.example.booklibrary.exception.ErrorResponse;
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.model.BookChanges;
+import com.example.booklibrary.model.BookPage;
+import com.example.booklibrary.repository.ReactiveBookRepository;
+import com.example.booklibrary.repository.TitleNormalizer;
+import com.example.booklibrary.service.BookService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive counterpart of BookController, active with spring.main.web-application-type=reactive.
+ * Serves the same endpoints from Netty's event loops, so an idle or slow connection
+ * costs no thread. Validation, search and the change feed go through the same
+ * BookService; writes run on Reactor's bounded elastic scheduler because a save may
+ * wait for the write-ahead log. GET /books/events is only offered by the servlet stack.
+ */
+@RestController
+@RequestMapping("/books")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookController {
+
+    // Books per buffer when streaming: large enough to amortize the write, small enough
+    // that demand from a slow client is honoured promptly
+    private static final int BOOKS_PER_CHUNK = 256;
+
+    private final BookService bookService;
+    private final ReactiveBookRepository repository;
+    private final ObjectWriter bookWriter;
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    // Versions start over when the process restarts, so ETags of an earlier run must not match
+    private final String etagEpoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    @Autowired
+    public ReactiveBookController(BookService bookService, ReactiveBookRepository repository,
+            ObjectMapper objectMapper) {
+        this.bookService = bookService;
+        this.repository = repository;
+        this.bookWriter = objectMapper.writerFor(Book.class).without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * GET /books - Streams all books sorted by title as one JSON array
+     * Books are read and encoded as the connection asks for more, so neither the list nor
+     * the response is ever held in memory as a whole.
+     *
+     * @param exchange The exchange, checked for If-None-Match
+     * @return The encoded array in chunks, or nothing after a 304
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getAllBooks(ServerWebExchange exchange) {
+        if (exchange.checkNotModified(catalogETag())) {
+            return Flux.empty();
+        }
+        return encode(repository.findAll(), false);
+    }
+
+    /**
+     * GET /books/stream - Streams all books sorted by title as NDJSON
+     *
+     * @param exchange The exchange, checked for If-None-Match
+     * @return One compact JSON object per line, in chunks, or nothing after a 304
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DataBuffer> streamAllBooks(ServerWebExchange exchange) {
+        if (exchange.checkNotModified(catalogETag())) {
+            return Flux.empty();
+        }
+        return encode(repository.findAll(), true);
+    }
+
+    /**
+     * GET /books/changes?since={sequence}&limit={n} - Returns the changes after a position
+     * of the change feed, see BookController
+     */
+    @GetMapping("/changes")
+    public Mono<BookChanges> getChanges(@RequestParam(required = false) Long since,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return Mono.fromSupplier(() -> bookService.getChanges(since, limit));
+    }
+
+    /**
+     * GET /books/search?q={query}&limit={n} - Full-text search over titles and authors
+     */
+    @GetMapping("/search")
+    public Mono<List<Book>> searchBooks(@RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit, ServerWebExchange exchange) {
+        // Before the ETag check, so invalid arguments get 400 and never 304
+        bookService.validateSearchRequest(q, limit);
+        if (exchange.checkNotModified(catalogETag())) {
+            return Mono.empty();
+        }
+        return repository.read(() -> bookService.searchBooks(q, limit));
+    }
+
+    /**
+     * GET /books/suggest?prefix={prefix}&limit={n} - Autocompletes titles
+     */
+    @GetMapping("/suggest")
+    public Mono<List<String>> suggestTitles(@RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit, ServerWebExchange exchange) {
+        bookService.validateSuggestRequest(prefix, limit);
+        if (exchange.checkNotModified(catalogETag())) {
+            return Mono.empty();
+        }
+        return repository.read(() -> bookService.suggestTitles(prefix, limit));
+    }
+
+    /**
+     * GET /books?limit={n}&after={cursor} - Returns one page of books sorted by title
+     */
+    @GetMapping(params = "limit")
+    public Mono<BookPage> getBooksPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, ServerWebExchange exchange) {
+        bookService.validatePageRequest(after, limit);
+        if (exchange.checkNotModified(catalogETag())) {
+            return Mono.empty();
+        }
+        return repository.read(() -> bookService.getBooksPage(after, limit));
+    }
+
+    /**
+     * GET /books?author={author} - Returns the books of an author sorted by title
+     */
+    @GetMapping(params = "author")
+    public Mono<List<Book>> getBooksByAuthor(@RequestParam String author, ServerWebExchange exchange) {
+        bookService.validateAuthor(author);
+        if (exchange.checkNotModified(catalogETag())) {
+            return Mono.empty();
+        }
+        return repository.read(() -> bookService.getBooksByAuthor(author));
+    }
+
+    /**
+     * GET /books?yearFrom={from}&yearTo={to} - Returns the books published in a year range
+     */
+    @GetMapping(params = {"yearFrom", "yearTo"})
+    public Mono<List<Book>> getBooksByYearRange(@RequestParam int yearFrom,
+            @RequestParam int yearTo, ServerWebExchange exchange) {
+        bookService.validateYearRange(yearFrom, yearTo);
+        if (exchange.checkNotModified(catalogETag())) {
+            return Mono.empty();
+        }
+        return repository.read(() -> bookService.getBooksByYearRange(yearFrom, yearTo));
+    }
+
+    /**
+     * GET /books/{title} - Returns a single book by title
+     *
+     * @throws BookNotFoundException (as an error signal) if the book is not found
+     */
+    @GetMapping("/{title}")
+    public Mono<Book> getBookByTitle(@PathVariable String title, ServerWebExchange exchange) {
+        return repository.findByTitle(title)
+                // While the catalog loads, BookService waits for the loader, off the event loop
+                .switchIfEmpty(Mono.defer(() -> bookService.isCatalogLoaded()
+                        ? Mono.empty()
+                        : Mono.fromCallable(() -> bookService.getBookByTitle(title).orElse(null))
+                                .subscribeOn(Schedulers.boundedElastic())))
+                .switchIfEmpty(Mono.error(() -> new BookNotFoundException("Book with title '" + title + "' not found")))
+                .filter(book -> !exchange.checkNotModified(bookETag(book)));
+    }
+
+    /**
+     * POST /books - Adds a new book, or answers 409 Conflict if the title exists
+     *
+     * @return The created book, its ETag and HTTP 201 status
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Book>> addBook(@RequestBody Book book) {
+        return write(() -> bookService.addBook(book))
+                .map(saved -> ResponseEntity.status(HttpStatus.CREATED).eTag(bookETag(saved)).body(saved));
+    }
+
+    /**
+     * PUT /books/{title} - Adds or replaces the book with this title, with If-Match
+     * only while it still has one of the given ETags, see BookController
+     *
+     * @return The saved book, its ETag and HTTP 200 status
+     */
+    @PutMapping("/{title}")
+    public Mono<ResponseEntity<Book>> putBook(@PathVariable String title, @RequestBody Book book,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (book.getTitle() != null && !book.getTitle().trim().isEmpty()
+                && !TitleNormalizer.normalize(book.getTitle()).equals(TitleNormalizer.normalize(title))) {
+            return Mono.error(new IllegalArgumentException("Book title must match the title in the path"));
+        }
+        return write(() -> ifMatch == null
+                        ? bookService.saveBook(book)
+                        : bookService.replaceBook(book, matchedVersion(title, ifMatch)))
+                .map(saved -> ResponseEntity.ok().eTag(bookETag(saved)).body(saved));
+    }
+
+    /**
+     * POST /books/batch - Adds many books given as a JSON array
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<BookBatchResult> addBooks(@RequestBody List<Book> books) {
+        return write(() -> bookService.addBooks(books));
+    }
+
+    /**
+     * POST /books/batch - Adds many books given as NDJSON, saved in chunks as the body
+     * arrives so the batch is never held as a whole; more than MAX_BATCH_SIZE books
+     * answers 400
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<BookBatchResult> addBooksFromNdjson(@RequestBody Flux<Book> books) {
+        // Closing the stream cancels the body if the service stops reading early
+        return write(() -> {
+            try (Stream<Book> decoded = books.toStream(BOOKS_PER_CHUNK)) {
+                return bookService.addBooks(decoded.iterator());
+            }
+        });
+    }
+
+    /**
+     * DELETE /books/{title} - Deletes a book by title
+     *
+     * @return HTTP 204 No Content if deleted
+     */
+    @DeleteMapping("/{title}")
+    public Mono<ResponseEntity<Void>> deleteBookByTitle(@PathVariable String title) {
+        return write(() -> {
+            bookService.deleteBookByTitle(title);
+            return ResponseEntity.noContent().<Void>build();
+        });
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgumentException(
+            IllegalArgumentException e, ServerHttpRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            "Bad Request",
+            e.getMessage(),
+            request.getPath().value()
+        );
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    @ExceptionHandler(BookAlreadyExistsException.class)
+    public ResponseEntity<ErrorResponse> handleBookAlreadyExistsException(
+            BookAlreadyExistsException e, ServerHttpRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            "Conflict",
+            e.getMessage(),
+            request.getPath().value()
+        );
+        return withETag(ResponseEntity.status(HttpStatus.CONFLICT), e.getCurrent()).body(errorResponse);
+    }
+
+    @ExceptionHandler(BookVersionMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleBookVersionMismatchException(
+            BookVersionMismatchException e, ServerHttpRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.PRECONDITION_FAILED.value(),
+            "Precondition Failed",
+            e.getMessage(),
+            request.getPath().value()
+        );
+        return withETag(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED), e.getCurrent()).body(errorResponse);
+    }
+
+    @ExceptionHandler(BookNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleBookNotFoundException(
+            BookNotFoundException e, ServerHttpRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.NOT_FOUND.value(),
+            "Not Found",
+            e.getMessage(),
+            request.getPath().value()
+        );
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+
+    @ExceptionHandler(CatalogLoadingException.class)
+    public ResponseEntity<ErrorResponse> handleCatalogLoadingException(
+            CatalogLoadingException e, ServerHttpRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Service Unavailable",
+            e.getMessage(),
+            request.getPath().value()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(errorResponse);
+    }
+
+    // Saves may block on the write-ahead log, so they never run on an event loop
+    private static <T> Mono<T> write(Callable<T> write) {
+        return Mono.fromCallable(write).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // A JSON array, or with ndjson one object per line
+    private Flux<DataBuffer> encode(Flux<Book> books, boolean ndjson) {
+        boolean[] first = {true};
+        Flux<DataBuffer> body = books.buffer(BOOKS_PER_CHUNK).map(chunk -> {
+            StringBuilder text = new StringBuilder(chunk.size() * 64);
+            for (Book book : chunk) {
+                if (!ndjson) {
+                    text.append(first[0] ? '[' : ',');
+                }
+                first[0] = false;
+                text.append(toJson(book));
+                if (ndjson) {
+                    text.append('\n');
+                }
+            }
+            return bufferFactory.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        });
+        if (ndjson) {
+            return body;
+        }
+        // An empty catalog still needs the opening bracket
+        return body.concatWith(Mono.fromSupplier(() -> bufferFactory.wrap(
+                (first[0] ? "[]" : "]").getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private String toJson(Book book) {
+        try {
+            return bookWriter.writeValueAsString(book);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + book, e);
+        }
+    }
+
+    private String catalogETag() {
+        return "\"" + etagEpoch + "-" + repository.getCatalogVersion() + "\"";
+    }
+
+    private String bookETag(Book book) {
+        return "\"" + etagEpoch + "-" + book.getVersion() + "\"";
+    }
+
+    // Same rules as BookController.matchedVersion; runs on the write scheduler
+    private long matchedVersion(String title, String ifMatch) {
+        Optional<Book> current = bookService.getBookByTitle(title);
+        if (current.isEmpty()) {
+            return 0;
+        }
+        String etag = bookETag(current.get());
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return current.get().getVersion();
+            }
+        }
+        return 0;
+    }
+
+    private ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, Book current) {
+        return current == null ? response : response.eTag(bookETag(current));
+    }
+}
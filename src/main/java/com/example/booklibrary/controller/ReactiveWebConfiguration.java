@@ -0,0 +1,44 @@
+package com.example.booklibrary.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.booklibrary.cache.CachingBookRepository;
+import com.example.booklibrary.metrics.MeteredBookRepository;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.OffHeapBookRepository;
+import com.example.booklibrary.repository.ReactiveBookRepository;
+
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Beans of the reactive stack, active with spring.main.web-application-type=reactive.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfiguration {
+
+    /**
+     * Serves the reactive stack from Netty's event loops. Spring Boot would otherwise pick
+     * Tomcat, which is on the classpath for the servlet stack.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public ReactiveBookRepository reactiveBookRepository(BookRepository repository) {
+        BookRepository store = repository instanceof MeteredBookRepository
+                ? ((MeteredBookRepository) repository).getDelegate()
+                : repository;
+        if (store instanceof CachingBookRepository) {
+            store = ((CachingBookRepository) store).getDelegate();
+        }
+        // Page faults on the mapped files would stall an event loop
+        return new ReactiveBookRepository(repository,
+                store instanceof OffHeapBookRepository ? Schedulers.boundedElastic() : null);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.booklibrary.controller;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs servlet requests on virtual threads instead of Tomcat's pool of 200 platform threads,
+ * enabled with library.virtual-threads.enabled=true on Java 21 or later.
+ *
+ * A request blocked on the disk, such as a save waiting for the write-ahead log, then
+ * holds a virtual thread that costs a few hundred bytes instead of a pool slot, so the
+ * number of requests in progress is bounded by server.tomcat.max-connections alone.
+ * Streamed responses (GET /books/stream) run on virtual threads as well.
+ *
+ * The request path is free of pinning: the repositories, the search index, the change log
+ * and the write-ahead log guard their state with java.util.concurrent locks, and the
+ * fsync a write waits for happens after the repository has released them.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "library.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadWebConfiguration {
+
+    // shutdownNow: close would wait for long-running streams
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService requestExecutor() {
+        return newVirtualThreadExecutor("request-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService requestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncConfigurer(ExecutorService requestExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(requestExecutor));
+            }
+        };
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task. The project
+     * compiles for Java 17, so the Java 21 API is called reflectively.
+     *
+     * @param namePrefix Prefix of the thread names, followed by a counter
+     * @return The executor
+     * @throws IllegalStateException if the JVM has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, this is Java "
+                    + Runtime.version().feature(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create a virtual thread executor", e);
+        }
+    }
+}
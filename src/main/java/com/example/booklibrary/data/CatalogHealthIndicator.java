@@ -0,0 +1,45 @@
+package com.example.booklibrary.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Reports whether the startup data is in, as "catalog" in /actuator/health and in the
+ * readiness group (/actuator/health/readiness): OUT_OF_SERVICE while it loads in the
+ * background and DOWN if loading failed, so a load balancer only routes to a node that
+ * serves the whole catalog. Liveness is not affected, a loading node is healthy.
+ */
+@Component
+public class CatalogHealthIndicator implements HealthIndicator {
+
+    private final BookRepository repository;
+
+    public CatalogHealthIndicator(BookRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Health health() {
+        CompletableFuture<Void> loaded = repository.whenLoaded().toCompletableFuture();
+        Health.Builder health;
+        if (!loaded.isDone()) {
+            health = Health.outOfService();
+        } else {
+            Throwable failure = loaded.handle((ignored, e) -> e).join();
+            if (failure == null) {
+                health = Health.up();
+            } else {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                health = Health.down().withDetail("error", cause.toString());
+            }
+        }
+        return health.withDetail("books", repository.count()).build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.booklibrary.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Parses title,author,year lines. Fields may be quoted as in RFC 4180, with "" for a
+ * quote inside a quoted field, but a record must fit on one line. An empty author is
+ * stored as none. A first line of title,author,year is a header and skipped.
+ */
+final class CsvRecordParser extends DumpRecordParser {
+
+    private static final byte[] HEADER = "title,author,year".getBytes(StandardCharsets.US_ASCII);
+
+    // Position after the field last read: its separator, or the end of the line
+    private int cursor;
+
+    @Override
+    Book parse(ByteBuffer buffer, int from, int to) {
+        cursor = from;
+        String title = field(buffer, to);
+        expectSeparator(buffer, to);
+        String author = field(buffer, to);
+        expectSeparator(buffer, to);
+        int yearStart = cursor;
+        while (cursor < to && buffer.get(cursor) != ',') {
+            cursor++;
+        }
+        if (cursor != to) {
+            throw new IllegalArgumentException("Expected 3 fields");
+        }
+        int year = parseYear(buffer, yearStart, to);
+        if (title.isEmpty()) {
+            throw new IllegalArgumentException("Missing title");
+        }
+        return new Book(title, author.isEmpty() ? null : author, year);
+    }
+
+    @Override
+    boolean isHeader(ByteBuffer buffer, int from, int to) {
+        if (to - from != HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if ((buffer.get(from + i) | 0x20) != HEADER[i] && buffer.get(from + i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String field(ByteBuffer buffer, int to) {
+        int start = cursor;
+        if (start < to && buffer.get(start) == '"') {
+            return quotedField(buffer, to);
+        }
+        while (cursor < to && buffer.get(cursor) != ',') {
+            cursor++;
+        }
+        return decode(buffer, start, cursor);
+    }
+
+    private String quotedField(ByteBuffer buffer, int to) {
+        // Unescaped into the scratch array as we go; "" becomes one quote
+        int position = cursor + 1;
+        int length = 0;
+        byte[] bytes = scratch(to - position);
+        while (true) {
+            if (position >= to) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            byte b = buffer.get(position++);
+            if (b == '"') {
+                if (position < to && buffer.get(position) == '"') {
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            bytes[length++] = b;
+        }
+        cursor = position;
+        if (cursor < to && buffer.get(cursor) != ',') {
+            throw new IllegalArgumentException("Unexpected character after quoted field");
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void expectSeparator(ByteBuffer buffer, int to) {
+        if (cursor >= to || buffer.get(cursor) != ',') {
+            throw new IllegalArgumentException("Expected 3 fields");
+        }
+        cursor++;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.booklibrary.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Loads the catalog from a CSV or NDJSON dump, library.data.dump-file, on startup with
+ * DumpLoader. Enabled with library.data.initializer=dump.
+ *
+ * Either way the application only reports readiness (/actuator/health/readiness) once
+ * every book is in: loading runs while the repository is created, or in the background
+ * with library.data.async-load=true while CatalogHealthIndicator reports OUT_OF_SERVICE.
+ */
+@Component
+@ConditionalOnProperty(name = "library.data.initializer", havingValue = "dump")
+public class DumpDataInitializer implements DataInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpDataInitializer.class);
+
+    private final Path file;
+    private final int parallelism;
+
+    /**
+     * @param parallelism Threads parsing the dump, 0 for one per core
+     */
+    public DumpDataInitializer(@Value("${library.data.dump-file}") Path file,
+            @Value("${library.data.dump-parallelism:0}") int parallelism) {
+        this.file = file;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void initializeData(BookRepository repository) {
+        long start = System.nanoTime();
+        long loaded;
+        try {
+            loaded = new DumpLoader(parallelism).load(file, repository);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the catalog from " + file, e);
+        }
+        log.info("Loaded {} books from {} in {} ms on {} threads", loaded, file,
+                (System.nanoTime() - start) / 1_000_000, parallelism);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.booklibrary.data;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Bulk-loads a catalog dump, one book per line as CSV (.csv) or JSON (.ndjson, .jsonl),
+ * with every core parsing.
+ *
+ * The file is memory-mapped and split into chunks of equal size, which are parsed in
+ * parallel on a fork-join pool and saved in batches through saveAll. A chunk owns the
+ * lines that start inside it, reading past its end to finish the last one, so no line is
+ * parsed twice or cut. There are several chunks per thread, so a chunk of long lines does
+ * not leave the other threads idle at the end.
+ *
+ * Chunks are saved concurrently: when a title appears more than once in the dump, which
+ * of the books is kept is unspecified.
+ */
+public final class DumpLoader {
+
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final long MIN_CHUNK_BYTES = 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Large enough to amortize a saveAll, small enough that a chunk's books do not all pile up
+    private static final int BATCH_SIZE = 16_384;
+
+    private final int parallelism;
+    private final long maxChunkBytes;
+
+    /**
+     * @param parallelism Number of threads parsing
+     */
+    public DumpLoader(int parallelism) {
+        this(parallelism, MAX_CHUNK_BYTES);
+    }
+
+    /**
+     * @param maxChunkBytes Size of a chunk of a large file; smaller files get smaller chunks
+     */
+    DumpLoader(int parallelism, long maxChunkBytes) {
+        if (parallelism <= 0 || maxChunkBytes <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        this.parallelism = parallelism;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * Saves every book of the dump to the repository.
+     *
+     * @param file The dump
+     * @param repository Repository to save the books to
+     * @return Number of books read
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the format is unknown or a line is malformed
+     */
+    public long load(Path file, BookRepository repository) throws IOException {
+        // Fails on an unknown format before any thread starts
+        DumpRecordParser.forFile(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkBytes = Math.min(maxChunkBytes,
+                    Math.max(MIN_CHUNK_BYTES, size / (parallelism * CHUNKS_PER_THREAD)));
+            List<Callable<Long>> chunks = new ArrayList<>();
+            for (long start = 0; start < size; start += chunkBytes) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(size, start + chunkBytes);
+                chunks.add(() -> loadChunk(file, channel, chunkStart, chunkEnd, repository));
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                long loaded = 0;
+                for (Future<Long> chunk : pool.invokeAll(chunks)) {
+                    loaded += chunk.get();
+                }
+                return loaded;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading " + file);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException("Cannot load " + file, cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private long loadChunk(Path file, FileChannel channel, long start, long end, BookRepository repository)
+            throws IOException {
+        // Mapped from the byte before the chunk to tell whether a line starts at its first byte,
+        // and up to 2 GB past it, the most one mapping can hold, to finish its last line
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(channel.size(), mapStart + Integer.MAX_VALUE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buffer.limit();
+        int chunkEnd = (int) (end - mapStart);
+
+        int position = 0;
+        if (start > 0) {
+            // The line in progress belongs to the previous chunk
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        DumpRecordParser parser = DumpRecordParser.forFile(file);
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        long loaded = 0;
+        while (position < chunkEnd) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && mapEnd < channel.size()) {
+                throw new IllegalArgumentException("Line at byte " + (mapStart + position) + " of " + file
+                        + " is longer than 2 GB");
+            }
+            int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (contentEnd > position && !(start == 0 && position == 0 && parser.isHeader(buffer, 0, contentEnd))) {
+                try {
+                    batch.add(parser.parse(buffer, position, contentEnd));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Malformed line at byte " + (mapStart + position)
+                            + " of " + file + ": " + e.getMessage(), e);
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    repository.saveAll(batch);
+                    loaded += batch.size();
+                    batch.clear();
+                }
+            }
+            position = lineEnd + 1;
+        }
+        if (!batch.isEmpty()) {
+            repository.saveAll(batch);
+            loaded += batch.size();
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.booklibrary.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Parses one line of a catalog dump straight from the mapped file.
+ *
+ * Parsers work on absolute positions of the buffer and only allocate the strings and
+ * the book they return; bytes of a string are copied into a reused scratch array first.
+ * A parser is not thread-safe, so every loading task uses its own.
+ */
+abstract class DumpRecordParser {
+
+    private byte[] scratch = new byte[256];
+
+    /**
+     * @param file The dump file
+     * @return A new parser for the format given by the file extension
+     * @throws IllegalArgumentException if the extension names no supported format
+     */
+    static DumpRecordParser forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return new CsvRecordParser();
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return new NdjsonRecordParser();
+        }
+        throw new IllegalArgumentException("Unknown dump format of " + file + ", expected .csv, .ndjson or .jsonl");
+    }
+
+    /**
+     * @param buffer The mapped file
+     * @param from   Position of the first byte of the line
+     * @param to     Position after the last byte, without the line break
+     * @return The book on the line
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    abstract Book parse(ByteBuffer buffer, int from, int to);
+
+    /**
+     * @return Whether the first line of the file is a header rather than a record
+     */
+    boolean isHeader(ByteBuffer buffer, int from, int to) {
+        return false;
+    }
+
+    /**
+     * Decodes UTF-8 bytes of the buffer.
+     */
+    final String decode(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        buffer.get(from, scratch(length), 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The scratch array, grown to hold at least length bytes
+     */
+    final byte[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+
+    /**
+     * Parses a year of ASCII digits, surrounded by optional spaces.
+     */
+    static int parseYear(ByteBuffer buffer, int from, int to) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        if (from == to || to - from > 9) {
+            throw new IllegalArgumentException("Invalid year");
+        }
+        int year = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid year");
+            }
+            year = year * 10 + digit;
+        }
+        return year;
+    }
+}
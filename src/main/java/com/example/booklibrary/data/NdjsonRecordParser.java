@@ -0,0 +1,244 @@
+package com.example.booklibrary.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Parses lines holding one JSON object each, with the properties title, author and year
+ * as Jackson writes a Book. Other properties, such as version, are skipped, whatever
+ * their value. Only strings containing escapes go through a StringBuilder.
+ */
+final class NdjsonRecordParser extends DumpRecordParser {
+
+    private static final byte[] TITLE = "title".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AUTHOR = "author".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] YEAR = "year".getBytes(StandardCharsets.US_ASCII);
+
+    private int cursor;
+
+    @Override
+    Book parse(ByteBuffer buffer, int from, int to) {
+        cursor = from;
+        String title = null;
+        String author = null;
+        int year = -1;
+
+        skipWhitespace(buffer, to);
+        expect(buffer, to, '{');
+        skipWhitespace(buffer, to);
+        if (peek(buffer, to) == '}') {
+            cursor++;
+        } else {
+            while (true) {
+                expect(buffer, to, '"');
+                int keyStart = cursor;
+                skipString(buffer, to);
+                int keyEnd = cursor - 1;
+                skipWhitespace(buffer, to);
+                expect(buffer, to, ':');
+                skipWhitespace(buffer, to);
+                if (matches(buffer, keyStart, keyEnd, TITLE)) {
+                    title = stringOrNull(buffer, to);
+                } else if (matches(buffer, keyStart, keyEnd, AUTHOR)) {
+                    author = stringOrNull(buffer, to);
+                } else if (matches(buffer, keyStart, keyEnd, YEAR)) {
+                    int yearStart = cursor;
+                    while (cursor < to && isDigit(buffer.get(cursor))) {
+                        cursor++;
+                    }
+                    year = parseYear(buffer, yearStart, cursor);
+                } else {
+                    skipValue(buffer, to);
+                }
+                skipWhitespace(buffer, to);
+                byte next = peek(buffer, to);
+                cursor++;
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw new IllegalArgumentException("Expected , or } at column " + (cursor - 1 - from));
+                }
+                skipWhitespace(buffer, to);
+            }
+        }
+        skipWhitespace(buffer, to);
+        if (cursor != to) {
+            throw new IllegalArgumentException("Unexpected content after the object");
+        }
+        if (title == null || title.isEmpty()) {
+            throw new IllegalArgumentException("Missing title");
+        }
+        if (year < 0) {
+            throw new IllegalArgumentException("Missing year");
+        }
+        return new Book(title, author, year);
+    }
+
+    private String stringOrNull(ByteBuffer buffer, int to) {
+        if (peek(buffer, to) == 'n') {
+            expectLiteral(buffer, to, "null");
+            return null;
+        }
+        expect(buffer, to, '"');
+        int start = cursor;
+        while (true) {
+            byte b = peek(buffer, to);
+            if (b == '"') {
+                cursor++;
+                return decode(buffer, start, cursor - 1);
+            }
+            if (b == '\\') {
+                return escapedString(buffer, to, start);
+            }
+            cursor++;
+        }
+    }
+
+    /**
+     * Continues a string at its first escape; the bytes before it are plain UTF-8.
+     */
+    private String escapedString(ByteBuffer buffer, int to, int start) {
+        StringBuilder builder = new StringBuilder(decode(buffer, start, cursor));
+        int run = cursor;
+        while (true) {
+            byte b = peek(buffer, to);
+            if (b == '"') {
+                builder.append(decode(buffer, run, cursor));
+                cursor++;
+                return builder.toString();
+            }
+            if (b != '\\') {
+                cursor++;
+                continue;
+            }
+            builder.append(decode(buffer, run, cursor));
+            cursor++;
+            byte escape = peek(buffer, to);
+            cursor++;
+            switch (escape) {
+                case '"': builder.append('"'); break;
+                case '\\': builder.append('\\'); break;
+                case '/': builder.append('/'); break;
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    if (to - cursor < 4) {
+                        throw new IllegalArgumentException("Truncated \\u escape");
+                    }
+                    int c = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(buffer.get(cursor++), 16);
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("Invalid \\u escape");
+                        }
+                        c = c * 16 + digit;
+                    }
+                    builder.append((char) c);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid escape \\" + (char) escape);
+            }
+            run = cursor;
+        }
+    }
+
+    private void skipValue(ByteBuffer buffer, int to) {
+        byte b = peek(buffer, to);
+        if (b == '"') {
+            cursor++;
+            skipString(buffer, to);
+        } else if (b == '{' || b == '[') {
+            // Strings are skipped whole, so brackets inside them are not counted
+            int depth = 0;
+            do {
+                b = peek(buffer, to);
+                cursor++;
+                if (b == '"') {
+                    skipString(buffer, to);
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        } else {
+            // Number, true, false or null
+            int start = cursor;
+            while (cursor < to && b != ',' && b != '}' && b != ' ' && b != '\t') {
+                b = ++cursor < to ? buffer.get(cursor) : 0;
+            }
+            if (cursor == start) {
+                throw new IllegalArgumentException("Missing value");
+            }
+        }
+    }
+
+    /**
+     * Moves the cursor after the closing quote of the string it is in.
+     */
+    private void skipString(ByteBuffer buffer, int to) {
+        while (true) {
+            byte b = peek(buffer, to);
+            cursor++;
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                peek(buffer, to);
+                cursor++;
+            }
+        }
+    }
+
+    private void skipWhitespace(ByteBuffer buffer, int to) {
+        while (cursor < to) {
+            byte b = buffer.get(cursor);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return;
+            }
+            cursor++;
+        }
+    }
+
+    private void expect(ByteBuffer buffer, int to, char expected) {
+        if (peek(buffer, to) != expected) {
+            throw new IllegalArgumentException("Expected " + expected);
+        }
+        cursor++;
+    }
+
+    private void expectLiteral(ByteBuffer buffer, int to, String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            expect(buffer, to, literal.charAt(i));
+        }
+    }
+
+    private byte peek(ByteBuffer buffer, int to) {
+        if (cursor >= to) {
+            throw new IllegalArgumentException("Unexpected end of line");
+        }
+        return buffer.get(cursor);
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, int to, byte[] key) {
+        if (to - from != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(from + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
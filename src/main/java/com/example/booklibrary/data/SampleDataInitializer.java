@@ -1,5 +1,6 @@
 package com.example.booklibrary.data;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import com.example.booklibrary.model.Book;
@@ -7,8 +8,10 @@ import com.example.booklibrary.repository.BookRepository;
 
 /**
  * Initializes the repository with sample books for testing and demo.
+ * This is the default; set library.data.initializer to choose another initializer.
  */
 @Component
+@ConditionalOnProperty(name = "library.data.initializer", havingValue = "sample", matchIfMissing = true)
 public class SampleDataInitializer implements DataInitializer {
     
     @Override
@@ -0,0 +1,53 @@
+package com.example.booklibrary.data;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.persistence.CatalogSnapshotReader;
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Loads the catalog from a binary snapshot, library.data.snapshot-file, as written by
+ * GET /books/snapshot. Enabled with library.data.initializer=snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "library.data.initializer", havingValue = "snapshot")
+public class SnapshotDataInitializer implements DataInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotDataInitializer.class);
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+
+    private final Path file;
+
+    public SnapshotDataInitializer(@Value("${library.data.snapshot-file}") Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void initializeData(BookRepository repository) {
+        long start = System.nanoTime();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_BYTES)) {
+            CatalogSnapshotReader reader = new CatalogSnapshotReader(in);
+            List<Book> block;
+            while ((block = reader.readBlock()) != null) {
+                repository.saveAll(block);
+            }
+            log.info("Loaded {} books from {} in {} ms", reader.getBooksRead(), file,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the catalog from " + file, e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.booklibrary.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.persistence.WriteAheadLog;
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Restores the repository from the write-ahead log on startup and keeps logging every
+ * change to it afterwards, with a snapshot written periodically to bound replay time.
+ * Enabled with library.data.initializer=wal.
+ */
+@Component
+@ConditionalOnProperty(name = "library.data.initializer", havingValue = "wal")
+public class WalDataInitializer implements DataInitializer, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(WalDataInitializer.class);
+
+    private final Path directory;
+    private final Duration snapshotInterval;
+    private WriteAheadLog writeAheadLog;
+    private ScheduledExecutorService scheduler;
+
+    public WalDataInitializer(@Value("${library.persistence.directory:data}") Path directory,
+            @Value("${library.persistence.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public void initializeData(BookRepository repository) {
+        try {
+            writeAheadLog = WriteAheadLog.open(directory);
+            writeAheadLog.recover(repository);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover the catalog from " + directory, e);
+        }
+        repository.addMutationListener(writeAheadLog);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> snapshot(repository), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void snapshot(BookRepository repository) {
+        try {
+            writeAheadLog.snapshot(repository);
+        } catch (IOException | RuntimeException e) {
+            // The log still holds every change; try again at the next interval
+            log.error("Cannot write snapshot to {}", directory, e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.booklibrary.events;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookMutationListener;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.TitleNormalizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Fans catalog changes out to Server-Sent Events subscribers.
+ *
+ * Publishing never blocks on a client, nor waits for the subscribers at all: the writer
+ * only appends the raw change to a shared queue. A small pool of drain threads renders
+ * each change once, offers it to every subscriber's queue of pending events and writes
+ * those queues out. Idle subscribers hold no thread, only their async request.
+ *
+ * <ul>
+ * <li>Queues are keyed by title, so a burst of changes to one book that arrives while
+ *     the subscriber is still being written to collapses into the latest change.</li>
+ * <li>Everything pending for a subscriber goes out in one write.</li>
+ * <li>A subscriber whose queue reaches its capacity has fallen too far behind; it is
+ *     disconnected and is expected to reconnect and catch up through the change feed.</li>
+ * </ul>
+ * "saved" and "deleted" events are queued from the repository's mutation callbacks,
+ * which run under the lock of the title, like the change feed records them. Two racing
+ * writes of one title are therefore queued in the order they were applied; the shared
+ * queue is fanned out by one drain thread at a time, in that order, so the coalesced
+ * event is always the latest state. Only writes run through publishing are published;
+ * bulk writers send one "batch" event instead.
+ */
+@Component
+public class BookEventPublisher implements BookMutationListener, DisposableBean {
+
+    // Never a normalized title, which is trimmed
+    private static final String BATCH_KEY = " batch";
+    private static final String HEARTBEAT_KEY = " heartbeat";
+    private static final String HEARTBEAT_FRAME = ": keep-alive\n\n";
+    // Sent on subscribe so the response headers go out right away; clients retry after 3 s
+    private static final String HELLO_FRAME = "retry: 3000\n\n";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Changes not yet offered to the subscribers, in the order they were published
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    // Set while a drain thread fans out the events; only one does at a time
+    private final AtomicBoolean fanningOut = new AtomicBoolean();
+    private final ObjectWriter writer;
+    private final int queueCapacity;
+    private final Long timeoutMillis;
+    private final ScheduledExecutorService executor;
+    // Set on the thread while a write runs through publishing
+    private final ThreadLocal<Boolean> publishing = new ThreadLocal<>();
+
+    /**
+     * Creates a publisher for the writes to a repository.
+     *
+     * @param repository        The repository whose writes are published
+     * @param objectMapper      Mapper for the event payloads
+     * @param queueCapacity     Maximum number of distinct pending events per subscriber
+     * @param threads           Number of threads writing to subscribers
+     * @param heartbeatInterval Interval of the keep-alive comments sent to idle subscribers
+     * @param timeout           Time after which a subscription ends and the client reconnects,
+     *                          or null for the MVC async request timeout
+     */
+    @Autowired
+    public BookEventPublisher(BookRepository repository, ObjectMapper objectMapper,
+            @Value("${library.events.queue-capacity:1024}") int queueCapacity,
+            @Value("${library.events.threads:2}") int threads,
+            @Value("${library.events.heartbeat-interval:15s}") Duration heartbeatInterval,
+            @Value("${library.events.timeout:#{null}}") Duration timeout) {
+        this(objectMapper, queueCapacity, threads, heartbeatInterval, timeout);
+        repository.addMutationListener(this);
+    }
+
+    /**
+     * Creates a publisher that is fed through bookSaved and bookDeleted.
+     *
+     * @param objectMapper      Mapper for the event payloads
+     * @param queueCapacity     Maximum number of distinct pending events per subscriber
+     * @param threads           Number of threads writing to subscribers
+     * @param heartbeatInterval Interval of the keep-alive comments sent to idle subscribers
+     * @param timeout           Time after which a subscription ends and the client reconnects,
+     *                          or null for the MVC async request timeout
+     */
+    public BookEventPublisher(ObjectMapper objectMapper, int queueCapacity, int threads,
+            Duration heartbeatInterval, Duration timeout) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Event queue capacity must be positive");
+        }
+        // Each event is one data line, so no line breaks inside the JSON
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout == null ? null : timeout.toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "book-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = heartbeatInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a subscription that receives every change published from now on.
+     *
+     * @return The emitter to return from the request handler
+     */
+    public ResponseBodyEmitter subscribe() {
+        EventStreamEmitter emitter = new EventStreamEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.offer(HEARTBEAT_KEY, HELLO_FRAME);
+        return emitter;
+    }
+
+    /**
+     * @return The number of open subscriptions
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Runs a write and publishes the saves and deletes it applies as "saved" and
+     * "deleted" events, as they are applied.
+     *
+     * @param write The write, which calls the repository on this thread
+     * @return What the write returned
+     */
+    public <T> T publishing(Supplier<T> write) {
+        publishing.set(Boolean.TRUE);
+        try {
+            return write.get();
+        } finally {
+            publishing.remove();
+        }
+    }
+
+    /**
+     * Publishes a "saved" event with the book as data, if the write runs through publishing.
+     */
+    @Override
+    public void bookSaved(Book previous, Book saved) {
+        if (publishing.get() != null && !subscribers.isEmpty()) {
+            publish(new Event(TitleNormalizer.normalize(saved.getTitle()), "saved", saved));
+        }
+    }
+
+    /**
+     * Publishes a "deleted" event with the title as data, if the write runs through publishing.
+     */
+    @Override
+    public void bookDeleted(Book removed) {
+        if (publishing.get() != null && !subscribers.isEmpty()) {
+            publish(new Event(TitleNormalizer.normalize(removed.getTitle()), "deleted", Map.of("title", removed.getTitle())));
+        }
+    }
+
+    /**
+     * Publishes a "batch" event: many books changed at once and are not sent one by one.
+     *
+     * @param saved The number of books saved
+     */
+    public void booksSaved(int saved) {
+        if (!subscribers.isEmpty()) {
+            publish(new Event(BATCH_KEY, "batch", Map.of("saved", saved)));
+        }
+    }
+
+    // Called under the title lock for saves and deletes, so it only queues
+    private void publish(Event event) {
+        events.add(event);
+        scheduleFanOut();
+    }
+
+    private void scheduleFanOut() {
+        if (fanningOut.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::fanOut);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; destroy completes the emitters
+            }
+        }
+    }
+
+    // Titles are keyed like the repository does, so two spellings of one title coalesce
+    private void fanOut() {
+        try {
+            Event event;
+            while ((event = events.poll()) != null) {
+                if (subscribers.isEmpty()) {
+                    continue;
+                }
+                String frame = frame(event.name, event.data);
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(event.key, frame);
+                }
+            }
+        } finally {
+            fanningOut.set(false);
+        }
+        // An event queued after the queue looked empty, but before the flag was cleared
+        if (!events.isEmpty()) {
+            scheduleFanOut();
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerIfIdle(HEARTBEAT_KEY, HEARTBEAT_FRAME);
+        }
+    }
+
+    private String frame(String name, Object data) {
+        try {
+            return "event: " + name + "\ndata: " + writer.writeValueAsString(data) + "\n\n";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + name + " event", e);
+        }
+    }
+
+    /**
+     * Ends every subscription and stops the drain threads.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static final class Event {
+        private final String key;
+        private final String name;
+        private final Object data;
+
+        Event(String key, String name, Object data) {
+            this.key = key;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private final class Subscriber {
+        private final EventStreamEmitter emitter;
+        private final Lock lock = new ReentrantLock();
+        // Guarded by lock; frames by coalescing key, in order of first arrival
+        private final LinkedHashMap<String, String> pending = new LinkedHashMap<>();
+        private boolean draining;
+        private boolean closed;
+
+        Subscriber(EventStreamEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(String key, String frame) {
+            boolean schedule;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (pending.size() >= queueCapacity && !pending.containsKey(key)) {
+                    // Completed by the drain thread, which is the only one writing to the emitter
+                    closed = true;
+                    pending.clear();
+                } else {
+                    pending.put(key, frame);
+                }
+                schedule = !draining;
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            if (schedule) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; destroy completes the emitter
+                }
+            }
+        }
+
+        void offerIfIdle(String key, String frame) {
+            lock.lock();
+            try {
+                if (draining || !pending.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            offer(key, frame);
+        }
+
+        private void drain() {
+            while (true) {
+                StringBuilder frames = new StringBuilder();
+                boolean overflowed;
+                lock.lock();
+                try {
+                    overflowed = closed;
+                    if (!overflowed && pending.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    for (String frame : pending.values()) {
+                        frames.append(frame);
+                    }
+                    pending.clear();
+                } finally {
+                    lock.unlock();
+                }
+                if (overflowed) {
+                    subscribers.remove(this);
+                    emitter.complete();
+                    return;
+                }
+                try {
+                    emitter.sendFrames(frames.toString());
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away or the request ended; onError or onCompletion follows
+                    subscribers.remove(this);
+                    lock.lock();
+                    try {
+                        pending.clear();
+                        closed = true;
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.booklibrary.events;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+/**
+ * text/event-stream response that is written in whole frames.
+ * SseEmitter writes and flushes every event in three parts; here the frames of all
+ * events a subscriber has pending are rendered up front and go out in one write.
+ */
+class EventStreamEmitter extends ResponseBodyEmitter {
+
+    private static final MediaType EVENT_STREAM = new MediaType("text", "event-stream", StandardCharsets.UTF_8);
+    private static final MediaType UTF8_TEXT = new MediaType("text", "plain", StandardCharsets.UTF_8);
+
+    EventStreamEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        super.extendResponse(outputMessage);
+        if (outputMessage.getHeaders().getContentType() == null) {
+            outputMessage.getHeaders().setContentType(EVENT_STREAM);
+        }
+    }
+
+    /**
+     * Writes and flushes already formatted event-stream text.
+     *
+     * @param frames One or more complete frames, each ending with a blank line
+     * @throws IOException if the client has gone away
+     */
+    void sendFrames(String frames) throws IOException {
+        send(frames, UTF8_TEXT);
+    }
+}
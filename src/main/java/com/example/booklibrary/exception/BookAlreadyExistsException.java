@@ -0,0 +1,29 @@
+package com.example.booklibrary.exception;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Exception raised when a book is added under a title the library already holds.
+ */
+public class BookAlreadyExistsException extends RuntimeException {
+    
+    private final transient Book current;
+    
+    /**
+     * Constructs a new BookAlreadyExistsException.
+     *
+     * @param message the detail message naming the title
+     * @param current the book stored under the title, or null if it was deleted meanwhile
+     */
+    public BookAlreadyExistsException(String message, Book current) {
+        super(message);
+        this.current = current;
+    }
+    
+    /**
+     * @return The book stored under the title, or null if it was deleted meanwhile
+     */
+    public Book getCurrent() {
+        return current;
+    }
+}
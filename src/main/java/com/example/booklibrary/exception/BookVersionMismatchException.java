@@ -0,0 +1,30 @@
+package com.example.booklibrary.exception;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Exception raised when a conditional change was based on a version of a book that is
+ * no longer the stored one.
+ */
+public class BookVersionMismatchException extends RuntimeException {
+    
+    private final transient Book current;
+    
+    /**
+     * Constructs a new BookVersionMismatchException.
+     *
+     * @param message the detail message naming the title
+     * @param current the book stored now, or null if there is none
+     */
+    public BookVersionMismatchException(String message, Book current) {
+        super(message);
+        this.current = current;
+    }
+    
+    /**
+     * @return The book stored now, or null if there is none
+     */
+    public Book getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.booklibrary.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception raised when a request cannot be answered correctly before the catalog has
+ * finished loading in the background, such as a lookup of a title not loaded yet.
+ */
+public class CatalogLoadingException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    
+    /**
+     * Constructs a new CatalogLoadingException.
+     *
+     * @param message the detail message
+     * @param retryAfter how long the client should wait before trying again
+     */
+    public CatalogLoadingException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    /**
+     * @return How long the client should wait before trying again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
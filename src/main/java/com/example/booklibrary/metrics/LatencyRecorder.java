@@ -0,0 +1,158 @@
+package com.example.booklibrary.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Latency distribution for calls on a hot path, cheaper to record into than a Micrometer Timer.
+ *
+ * Recording is one wait-free write into an HdrHistogram Recorder plus LongAdders; no window
+ * is rotated on the caller's thread. Scrapes drain the recorder into a ring of
+ * {@value #WINDOWS} windows of 20 seconds each, so the percentiles cover roughly the last
+ * minute, like Micrometer's own distribution statistics.
+ *
+ * For the cheapest operations even the two clock reads around a call are significant, so a
+ * recorder can time only a random sample of calls. Every call is still counted; the total
+ * time is then extrapolated from the sample, and percentiles come from the sample alone.
+ */
+final class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final int WINDOWS = 3;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(20);
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final int sampleMask;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    // Guarded by lock, not a monitor, so a scrape on a virtual thread does not pin its carrier;
+    // only touched by scrapes
+    private final Lock lock = new ReentrantLock();
+    private final Histogram[] windows = new Histogram[WINDOWS];
+    private final Histogram merged = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private Histogram interval;
+    private int currentWindow;
+    private long windowStart = System.nanoTime();
+
+    /**
+     * Recorder that times every call.
+     */
+    LatencyRecorder() {
+        this(1);
+    }
+
+    /**
+     * @param sampleEvery Time one call in this many on average; must be a power of two
+     */
+    LatencyRecorder(int sampleEvery) {
+        if (Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("sampleEvery must be a power of two");
+        }
+        sampleMask = sampleEvery - 1;
+        for (int i = 0; i < WINDOWS; i++) {
+            windows[i] = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    /**
+     * @return Whether the caller should time this call and pass it to record; otherwise
+     *         it must call skip
+     */
+    boolean sample() {
+        return sampleMask == 0 || (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    void record(long nanos) {
+        recorder.recordValue(Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+        calls.increment();
+        totalNanos.add(nanos * (sampleMask + 1));
+    }
+
+    void skip() {
+        calls.increment();
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    /**
+     * Registers name.calls, name.seconds (total time), name.latency{quantile} and name.max,
+     * all tagged with tags.
+     */
+    void register(MeterRegistry registry, String name, Tags tags) {
+        FunctionCounter.builder(name + ".calls", calls, LongAdder::sum)
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder(name + ".seconds", totalNanos, adder -> adder.sum() / 1e9)
+                .tags(tags)
+                .baseUnit("seconds")
+                .register(registry);
+        for (double quantile : QUANTILES) {
+            Gauge.builder(name + ".latency", this, recorder -> recorder.quantileSeconds(quantile))
+                    .tags(tags)
+                    .tag("quantile", Double.toString(quantile))
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+        Gauge.builder(name + ".max", this, LatencyRecorder::maxSeconds)
+                .tags(tags)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    double quantileSeconds(double quantile) {
+        lock.lock();
+        try {
+            drain();
+            return merged.getValueAtPercentile(quantile * 100) / 1e9;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    double maxSeconds() {
+        lock.lock();
+        try {
+            drain();
+            return merged.getMaxValue() / 1e9;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock
+    private void drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        long now = System.nanoTime();
+        // Windows that ended without a scrape are emptied as well
+        for (int elapsed = 0; now - windowStart >= WINDOW_NANOS && elapsed < WINDOWS; elapsed++) {
+            currentWindow = (currentWindow + 1) % WINDOWS;
+            windows[currentWindow].reset();
+            windowStart += WINDOW_NANOS;
+        }
+        if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+        }
+        windows[currentWindow].add(interval);
+
+        merged.reset();
+        for (Histogram window : windows) {
+            merged.add(window);
+        }
+    }
+}
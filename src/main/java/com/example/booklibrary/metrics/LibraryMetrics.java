@@ -0,0 +1,63 @@
+package com.example.booklibrary.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.cache.CachingBookRepository;
+import com.example.booklibrary.controller.EncodedResponseCache;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.search.BookSearchIndex;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Publishes the repository meters, the repository cache statistics when caching is
+ * enabled, the response cache statistics on the servlet stack, and size gauges for the
+ * catalog and its search index.
+ * Gauges are sampled at scrape time.
+ */
+@Component
+public class LibraryMetrics implements MeterBinder {
+
+    private final BookRepository repository;
+    private final BookSearchIndex searchIndex;
+    private final ObjectProvider<EncodedResponseCache> responseCache;
+
+    public LibraryMetrics(BookRepository repository, BookSearchIndex searchIndex,
+            ObjectProvider<EncodedResponseCache> responseCache) {
+        this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        BookRepository unmetered = repository;
+        if (repository instanceof MeteredBookRepository) {
+            MeteredBookRepository metered = (MeteredBookRepository) repository;
+            metered.registerMeters(registry);
+            // Read the delegate so scrapes do not show up in the repository timers
+            unmetered = metered.getDelegate();
+        }
+        if (unmetered instanceof CachingBookRepository) {
+            CachingBookRepository cache = (CachingBookRepository) unmetered;
+            // cache.gets{result=hit|miss}, cache.evictions, cache.size and friends
+            CaffeineCacheMetrics.monitor(registry, cache.getTitleCache(), "books.titles");
+            CaffeineCacheMetrics.monitor(registry, cache.getPageCache(), "books.pages");
+            unmetered = cache.getDelegate();
+        }
+        responseCache.ifAvailable(cache -> CaffeineCacheMetrics.monitor(registry, cache.getCache(), "books.responses"));
+        Gauge.builder("library.repository.books", unmetered, BookRepository::count)
+                .description("Books in the repository")
+                .register(registry);
+        Gauge.builder("library.search.documents", searchIndex, BookSearchIndex::size)
+                .description("Books in the full-text search index")
+                .register(registry);
+        Gauge.builder("library.search.terms", searchIndex, BookSearchIndex::termCount)
+                .description("Distinct terms in the full-text search index")
+                .register(registry);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.booklibrary.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookMutationListener;
+import com.example.booklibrary.repository.BookRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * BookRepository decorator that times every method and counts findByTitle hits and misses.
+ *
+ * Meters, all tagged with the repository method:
+ * <ul>
+ * <li>library.repository.calls, .seconds, .latency{quantile=0.5|0.99|0.999} and .max:
+ *     call count, total time and HdrHistogram percentiles, see LatencyRecorder</li>
+ * <li>library.repository.lookups{result=hit|miss}: findByTitle outcomes</li>
+ * </ul>
+ * Micrometer Timers cost several hundred nanoseconds per call on findByTitle, so calls
+ * only write to HdrHistogram recorders and LongAdders, and findByTitle times a sample of
+ * its calls; see MetricsOverheadBenchmark.
+ */
+public class MeteredBookRepository implements BookRepository {
+
+    private static final String PREFIX = "library.repository";
+
+    private final BookRepository delegate;
+
+    private final LatencyRecorder findAllLatency = new LatencyRecorder();
+    private final LatencyRecorder streamAllLatency = new LatencyRecorder();
+    private final LatencyRecorder findPageLatency = new LatencyRecorder();
+    // The hot path: 1 in 8 calls is timed, see LatencyRecorder
+    private final LatencyRecorder findByTitleLatency = new LatencyRecorder(8);
+    private final LatencyRecorder suggestTitlesLatency = new LatencyRecorder();
+    private final LatencyRecorder findByAuthorLatency = new LatencyRecorder();
+    private final LatencyRecorder findByYearBetweenLatency = new LatencyRecorder();
+    private final LatencyRecorder saveLatency = new LatencyRecorder();
+    private final LatencyRecorder saveIfAbsentLatency = new LatencyRecorder();
+    private final LatencyRecorder replaceIfVersionLatency = new LatencyRecorder();
+    private final LatencyRecorder saveAllLatency = new LatencyRecorder();
+    private final LatencyRecorder countLatency = new LatencyRecorder();
+    private final LatencyRecorder deleteByTitleLatency = new LatencyRecorder();
+    private final LatencyRecorder deleteIfVersionLatency = new LatencyRecorder();
+
+    // Misses are the remaining findByTitle calls, which saves an increment per call
+    private final LongAdder titleHits = new LongAdder();
+
+    public MeteredBookRepository(BookRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Registers the meters; recording works before this, values simply are not published.
+     *
+     * @param registry The registry to publish to
+     */
+    public void registerMeters(MeterRegistry registry) {
+        register(registry, "findAll", findAllLatency);
+        register(registry, "streamAll", streamAllLatency);
+        register(registry, "findPage", findPageLatency);
+        register(registry, "findByTitle", findByTitleLatency);
+        register(registry, "suggestTitles", suggestTitlesLatency);
+        register(registry, "findByAuthor", findByAuthorLatency);
+        register(registry, "findByYearBetween", findByYearBetweenLatency);
+        register(registry, "save", saveLatency);
+        register(registry, "saveIfAbsent", saveIfAbsentLatency);
+        register(registry, "replaceIfVersion", replaceIfVersionLatency);
+        register(registry, "saveAll", saveAllLatency);
+        register(registry, "count", countLatency);
+        register(registry, "deleteByTitle", deleteByTitleLatency);
+        register(registry, "deleteIfVersion", deleteIfVersionLatency);
+
+        FunctionCounter.builder(PREFIX + ".lookups", titleHits, LongAdder::sum)
+                .description("findByTitle calls that found a book")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".lookups", this, repository -> repository.findByTitleLatency.calls() - repository.titleHits.sum())
+                .description("findByTitle calls that found no book")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    /**
+     * @return The repository that does the actual work
+     */
+    public BookRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            findAllLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        // Times opening the stream; consuming it is timed by the endpoint that does so
+        long start = System.nanoTime();
+        try {
+            return delegate.streamAll();
+        } finally {
+            streamAllLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Book> findPage(String afterTitle, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findPage(afterTitle, limit);
+        } finally {
+            findPageLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<Book> findByTitle(String title) {
+        Optional<Book> book;
+        if (findByTitleLatency.sample()) {
+            long start = System.nanoTime();
+            book = delegate.findByTitle(title);
+            findByTitleLatency.record(System.nanoTime() - start);
+        } else {
+            book = delegate.findByTitle(title);
+            findByTitleLatency.skip();
+        }
+        if (book.isPresent()) {
+            titleHits.increment();
+        }
+        return book;
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.suggestTitles(prefix, limit);
+        } finally {
+            suggestTitlesLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByAuthor(author);
+        } finally {
+            findByAuthorLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Book> findByYearBetween(int fromYear, int toYear) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findByYearBetween(fromYear, toYear);
+        } finally {
+            findByYearBetweenLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Book save(Book book) {
+        long start = System.nanoTime();
+        try {
+            return delegate.save(book);
+        } finally {
+            saveLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<Book> saveIfAbsent(Book book) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveIfAbsent(book);
+        } finally {
+            saveIfAbsentLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<Book> replaceIfVersion(Book book, long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.replaceIfVersion(book, expectedVersion);
+        } finally {
+            replaceIfVersionLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Book> saveAll(Collection<Book> books) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveAll(books);
+        } finally {
+            saveAllLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int count() {
+        long start = System.nanoTime();
+        try {
+            return delegate.count();
+        } finally {
+            countLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean deleteByTitle(String title) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteByTitle(title);
+        } finally {
+            deleteByTitleLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean deleteIfVersion(String title, long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteIfVersion(title, expectedVersion);
+        } finally {
+            deleteIfVersionLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long getCatalogVersion() {
+        // Not timed: one volatile read, done by every conditional request
+        return delegate.getCatalogVersion();
+    }
+
+    @Override
+    public void addMutationListener(BookMutationListener listener) {
+        delegate.addMutationListener(listener);
+    }
+
+    @Override
+    public CompletionStage<Void> whenLoaded() {
+        return delegate.whenLoaded();
+    }
+
+    private static void register(MeterRegistry registry, String method, LatencyRecorder latency) {
+        latency.register(registry, PREFIX, Tags.of("method", method));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.booklibrary.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Wraps whichever BookRepository implementation is active in a MeteredBookRepository,
+ * so every component that injects the repository goes through the meters.
+ * LibraryMetrics publishes the meters once the MeterRegistry exists; asking for the
+ * registry here would make it depend on the repository it is about to bind.
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor, Ordered {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof BookRepository && !(bean instanceof MeteredBookRepository)) {
+            return new MeteredBookRepository((BookRepository) bean);
+        }
+        return bean;
+    }
+
+    // Outermost wrapper, so the meters see what callers see
+    @Override
+    public int getOrder() {
+        return 10;
+    }
+}
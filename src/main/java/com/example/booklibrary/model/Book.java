@@ -2,19 +2,25 @@ package com.example.booklibrary.model;
 
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Represents a book in the library system.
+ * Instances are immutable, so the repository can store and hand out the same
+ * instance to every thread without defensive copies.
+ *
+ * The version is assigned by the repository when the book is stored and changes with
+ * every save of the title. It is not part of the JSON form or of equality.
  */
-public class Book {
-    private String title;
-    private String author;
-    private int year;
-
-    /**
-     * Default constructor required for JSON serialization/deserialization
-     */
-    public Book() {
-    }
+public final class Book {
+    private final String title;
+    private final String author;
+    private final int year;
+    private final long version;
+    // Precomputed: books are never modified, and hashing then needs no boxing or varargs array
+    private final int hash;
 
     /**
      * Constructor with all required fields
@@ -23,34 +29,45 @@ public class Book {
      * @param author The book author (cannot be null or empty)
      * @param year   The publication year
      */
-    public Book(String title, String author, int year) {
+    @JsonCreator
+    public Book(@JsonProperty("title") String title,
+                @JsonProperty("author") String author,
+                @JsonProperty("year") int year) {
+        this(title, author, year, 0);
+    }
+
+    /**
+     * Constructor for repositories handing out a stored book
+     *
+     * @param title   The book title
+     * @param author  The book author
+     * @param year    The publication year
+     * @param version The version the repository assigned, 0 if the book is not stored
+     */
+    public Book(String title, String author, int year, long version) {
         this.title = title;
         this.author = author;
         this.year = year;
+        this.version = version;
+        // Same value Objects.hash(title, author, year) returned before
+        this.hash = 31 * (31 * (31 + Objects.hashCode(title)) + Objects.hashCode(author)) + year;
     }
 
     public String getTitle() {
         return title;
     }
 
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
     public String getAuthor() {
         return author;
     }
 
-    public void setAuthor(String author) {
-        this.author = author;
-    }
-
     public int getYear() {
         return year;
     }
 
-    public void setYear(int year) {
-        this.year = year;
+    @JsonIgnore
+    public long getVersion() {
+        return version;
     }
 
     @Override
@@ -58,7 +75,8 @@ public class Book {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Book book = (Book) obj;
-        return year == book.year &&
+        return hash == book.hash &&
+               year == book.year &&
                Objects.equals(title, book.title) &&
                Objects.equals(author, book.author);
     }
@@ -66,7 +84,7 @@ public class Book {
     // Needed for correct behavior in hash-based collections like HashMap or HashSet.
     @Override
     public int hashCode() {
-        return Objects.hash(title, author, year);
+        return hash;
     }
 
     @Override
@@ -77,4 +95,4 @@ public class Book {
                ", year=" + year +
                '}';
     }
-}
\ No newline at end of file
+}
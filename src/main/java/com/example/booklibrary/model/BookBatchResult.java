@@ -0,0 +1,69 @@
+package com.example.booklibrary.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch insert: totals plus one result per submitted book, in request order.
+ */
+public class BookBatchResult {
+    private final int saved;
+    private final int rejected;
+    private final List<Item> items;
+
+    public BookBatchResult(int saved, int rejected, List<Item> items) {
+        this.saved = saved;
+        this.rejected = rejected;
+        this.items = items;
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * Result for a single book of the batch.
+     */
+    public static class Item {
+        private final int index;
+        private final String title;
+        private final boolean saved;
+        private final String error;
+
+        /**
+         * @param index The position of the book in the request
+         * @param title The title of the book, or null if the entry was null
+         * @param saved Whether the book was saved
+         * @param error Why the book was rejected, invalid or its title already stored, otherwise null
+         */
+        public Item(int index, String title, boolean saved, String error) {
+            this.index = index;
+            this.title = title;
+            this.saved = saved;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public boolean isSaved() {
+            return saved;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.booklibrary.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One save or delete from the change feed, numbered in the order it was applied.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookChange {
+
+    /**
+     * Kind of mutation.
+     */
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String title;
+    private final Book book;
+
+    /**
+     * @param sequence The position of the change in the feed
+     * @param type     Whether the book was saved or deleted
+     * @param title    The title of the affected book
+     * @param book     The book as saved, or null for a delete
+     */
+    public BookChange(long sequence, Type type, String title, Book book) {
+        this.sequence = sequence;
+        this.type = type;
+        this.title = title;
+        this.book = book;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+}
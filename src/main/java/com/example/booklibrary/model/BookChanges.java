@@ -0,0 +1,37 @@
+package com.example.booklibrary.model;
+
+import java.util.List;
+
+/**
+ * A slice of the change feed together with the sequence to ask from next.
+ * When resync is set the requested position is no longer retained: the client must
+ * reload the whole catalog and then follow the feed from next.
+ */
+public class BookChanges {
+    private final List<BookChange> changes;
+    private final long next;
+    private final boolean resync;
+
+    /**
+     * @param changes The changes after the requested sequence, oldest first
+     * @param next    The sequence to pass as since in the following request
+     * @param resync  Whether the client has to reload the catalog first
+     */
+    public BookChanges(List<BookChange> changes, long next, boolean resync) {
+        this.changes = changes;
+        this.next = next;
+        this.resync = resync;
+    }
+
+    public List<BookChange> getChanges() {
+        return changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public boolean isResync() {
+        return resync;
+    }
+}
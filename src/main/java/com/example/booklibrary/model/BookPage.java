@@ -0,0 +1,28 @@
+package com.example.booklibrary.model;
+
+import java.util.List;
+
+/**
+ * A page of books in title order together with the cursor of the next page.
+ */
+public class BookPage {
+    private final List<Book> books;
+    private final String nextCursor;
+
+    /**
+     * @param books      The books on this page
+     * @param nextCursor Opaque cursor for the following page, or null if this is the last page
+     */
+    public BookPage(List<Book> books, String nextCursor) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.booklibrary.model;
+
+/**
+ * Outcome of replacing the catalog with a snapshot.
+ */
+public class SnapshotImportResult {
+    private final long imported;
+    private final long removed;
+
+    /**
+     * @param imported The number of books read from the snapshot and saved
+     * @param removed The number of books deleted because the snapshot does not hold them
+     */
+    public SnapshotImportResult(long imported, long removed) {
+        this.imported = imported;
+        this.removed = removed;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.booklibrary.persistence;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Reads a snapshot written by CatalogSnapshotWriter one block at a time.
+ *
+ * Blocks are read into one reused array and decoded in place: apart from the books
+ * themselves, the only allocations are the strings, and every author's name is
+ * decoded once for the whole snapshot. A block whose checksum does not match, a
+ * truncated stream or a malformed payload is reported as an IllegalArgumentException;
+ * blocks returned before it were intact.
+ */
+public final class CatalogSnapshotReader {
+
+    // Far above what the writer produces; anything larger is a corrupt length field
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+
+    private final DataInputStream in;
+    private final Inflater inflater;
+    private final CRC32C crc = new CRC32C();
+    private final List<String> authors = new ArrayList<>();
+    private byte[] stored = new byte[CatalogSnapshotWriter.BLOCK_BYTES];
+    private byte[] payload = new byte[CatalogSnapshotWriter.BLOCK_BYTES + 4096];
+    private byte[] title = new byte[256];
+    private int position;
+    private int limit;
+    private long booksRead;
+    private boolean ended;
+
+    /**
+     * Reads and checks the header.
+     *
+     * @param in Stream to read from; it is not closed
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the stream is not a snapshot of a known version
+     */
+    public CatalogSnapshotReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        try {
+            byte[] magic = new byte[CatalogSnapshotWriter.MAGIC.length];
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, CatalogSnapshotWriter.MAGIC)) {
+                throw new IllegalArgumentException("Not a catalog snapshot");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != CatalogSnapshotWriter.VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version);
+            }
+            SnapshotCompression compression = SnapshotCompression.ofId(this.in.readUnsignedByte());
+            this.inflater = compression == SnapshotCompression.DEFLATE ? new Inflater(true) : null;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated snapshot header");
+        }
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @return The books of the block in snapshot order, or null after the last block
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the snapshot is corrupt or truncated
+     */
+    public List<Book> readBlock() throws IOException {
+        if (ended) {
+            return null;
+        }
+        try {
+            int payloadLength = in.readInt();
+            if (payloadLength == CatalogSnapshotWriter.END_OF_BLOCKS) {
+                long expected = in.readLong();
+                if (expected != booksRead) {
+                    throw new IllegalArgumentException("Snapshot holds " + booksRead + " books, its trailer says "
+                            + expected);
+                }
+                end();
+                return null;
+            }
+            int storedLength = in.readInt();
+            int checksum = in.readInt();
+            if (payloadLength <= 0 || payloadLength > MAX_BLOCK_BYTES || storedLength <= 0
+                    || storedLength > MAX_BLOCK_BYTES) {
+                throw new IllegalArgumentException("Corrupt snapshot block length");
+            }
+            if (stored.length < storedLength) {
+                stored = new byte[storedLength];
+            }
+            in.readFully(stored, 0, storedLength);
+            crc.reset();
+            crc.update(stored, 0, storedLength);
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalArgumentException("Snapshot block " + booksRead + " fails its checksum");
+            }
+            load(payloadLength, storedLength);
+            List<Book> books = decodeBlock();
+            booksRead += books.size();
+            return books;
+        } catch (EOFException e) {
+            end();
+            throw new IllegalArgumentException("Truncated snapshot after " + booksRead + " books");
+        } catch (IllegalArgumentException | IOException e) {
+            end();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of books returned so far
+     */
+    public long getBooksRead() {
+        return booksRead;
+    }
+
+    private void load(int payloadLength, int storedLength) {
+        if (inflater == null) {
+            if (payloadLength != storedLength) {
+                throw new IllegalArgumentException("Corrupt snapshot block length");
+            }
+            // Decoded where it was read
+            byte[] swap = payload;
+            payload = stored;
+            stored = swap;
+        } else {
+            if (payload.length < payloadLength) {
+                payload = new byte[payloadLength];
+            }
+            inflater.reset();
+            inflater.setInput(stored, 0, storedLength);
+            try {
+                if (inflater.inflate(payload, 0, payloadLength) != payloadLength) {
+                    throw new IllegalArgumentException("Corrupt snapshot block length");
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("Corrupt compressed snapshot block");
+            }
+        }
+        position = 0;
+        limit = payloadLength;
+    }
+
+    private List<Book> decodeBlock() {
+        int bookCount = readCount();
+        int newAuthors = readCount();
+        for (int i = 0; i < newAuthors; i++) {
+            int length = readCount();
+            checkRemaining(length);
+            authors.add(new String(payload, position, length, StandardCharsets.UTF_8));
+            position += length;
+        }
+
+        List<Book> books = new ArrayList<>(Math.min(bookCount, limit));
+        int titleLength = 0;
+        for (int i = 0; i < bookCount; i++) {
+            int shared = readCount();
+            int suffix = readCount();
+            if (shared > titleLength) {
+                throw new IllegalArgumentException("Corrupt snapshot title");
+            }
+            checkRemaining(suffix);
+            titleLength = shared + suffix;
+            if (title.length < titleLength) {
+                title = Arrays.copyOf(title, Math.max(titleLength, title.length * 2));
+            }
+            System.arraycopy(payload, position, title, shared, suffix);
+            position += suffix;
+            if (titleLength == 0) {
+                throw new IllegalArgumentException("Corrupt snapshot title");
+            }
+
+            int authorRef = readCount();
+            if (authorRef > authors.size()) {
+                throw new IllegalArgumentException("Corrupt snapshot author reference");
+            }
+            String author = authorRef == 0 ? null : authors.get(authorRef - 1);
+            int zigZag = (int) readVarint();
+            int year = (zigZag >>> 1) ^ -(zigZag & 1);
+            books.add(new Book(new String(title, 0, titleLength, StandardCharsets.UTF_8), author, year));
+        }
+        if (position != limit) {
+            throw new IllegalArgumentException("Corrupt snapshot block");
+        }
+        return books;
+    }
+
+    private int readCount() {
+        long value = readVarint();
+        // A ten-byte varint reaches the sign bit
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corrupt snapshot block");
+        }
+        return (int) value;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Corrupt snapshot block");
+            }
+            byte b = payload[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt snapshot varint");
+    }
+
+    private void checkRemaining(int length) {
+        if (length > limit - position) {
+            throw new IllegalArgumentException("Corrupt snapshot block");
+        }
+    }
+
+    private void end() {
+        ended = true;
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.booklibrary.persistence;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Writes the whole catalog in the compact binary snapshot format, block by block as
+ * the books arrive, so memory use does not depend on the catalog size.
+ *
+ * <pre>
+ * header  "BKSN", byte version (1), byte compression (see SnapshotCompression)
+ * block*  int payload length, int stored length, int CRC32C of the stored bytes,
+ *         stored bytes: the payload, deflated if the header says so
+ * end     int -1, long number of books in the snapshot
+ * </pre>
+ * A payload is
+ * <pre>
+ * varint  books
+ * varint  authors new in this block, each a varint byte length and UTF-8 bytes
+ * books   varint bytes shared with the previous title of the block,
+ *         varint length and UTF-8 bytes of the rest of the title,
+ *         varint author: 0 for none, otherwise 1 + index in the dictionary,
+ *         zig-zag varint year
+ * </pre>
+ * Authors form one dictionary for the whole snapshot, indexed in order of first use,
+ * so a prolific author's name is stored once. Titles arrive sorted from the repository
+ * and share long prefixes, which front coding stores once per neighbour. Integers are
+ * big-endian.
+ */
+public final class CatalogSnapshotWriter {
+
+    /** Media type of the snapshot in HTTP requests and responses */
+    public static final String MEDIA_TYPE = "application/vnd.booklibrary.snapshot";
+
+    static final byte[] MAGIC = {'B', 'K', 'S', 'N'};
+    static final int VERSION = 1;
+    static final int END_OF_BLOCKS = -1;
+    // Large enough to amortize framing and give deflate context, small enough to stay in cache
+    static final int BLOCK_BYTES = 128 * 1024;
+
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final CRC32C crc = new CRC32C();
+
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private final SnapshotBuffer newAuthors = new SnapshotBuffer(4096);
+    private final SnapshotBuffer records = new SnapshotBuffer(BLOCK_BYTES + 1024);
+    private final SnapshotBuffer payload = new SnapshotBuffer(BLOCK_BYTES + 4096);
+    private byte[] compressed = new byte[BLOCK_BYTES];
+    // Titles are encoded into these two arrays in turn instead of a new array per book
+    private byte[] title = new byte[256];
+    private byte[] previousTitle = new byte[256];
+    private int previousTitleLength;
+    private int newAuthorCount;
+    private int booksInBlock;
+    private long booksWritten;
+
+    /**
+     * Writes the header.
+     *
+     * @param out Stream to write to; it is flushed by finish but not closed
+     * @param compression Compression of the blocks
+     * @throws IOException if the stream cannot be written
+     */
+    public CatalogSnapshotWriter(OutputStream out, SnapshotCompression compression) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.deflater = compression == SnapshotCompression.DEFLATE ? new Deflater(Deflater.BEST_SPEED, true) : null;
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeByte(compression.id());
+    }
+
+    /**
+     * Adds a book, writing a block once enough books are buffered.
+     *
+     * @param book The book, which must have a title
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(Book book) throws IOException {
+        int titleLength = encodeTitle(book.getTitle());
+        int shared = 0;
+        int limit = Math.min(titleLength, previousTitleLength);
+        while (shared < limit && title[shared] == previousTitle[shared]) {
+            shared++;
+        }
+        records.writeVarint(shared);
+        records.writeVarint(titleLength - shared);
+        records.write(title, shared, titleLength - shared);
+        records.writeVarint(authorRef(book.getAuthor()));
+        records.writeSignedVarint(book.getYear());
+        byte[] swap = previousTitle;
+        previousTitle = title;
+        previousTitleLength = titleLength;
+        title = swap;
+
+        booksInBlock++;
+        if (records.length() + newAuthors.length() >= BLOCK_BYTES) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the last block and the end marker and flushes the stream.
+     *
+     * @return The number of books written
+     * @throws IOException if the stream cannot be written
+     */
+    public long finish() throws IOException {
+        try {
+            if (booksInBlock > 0) {
+                writeBlock();
+            }
+            out.writeInt(END_OF_BLOCKS);
+            out.writeLong(booksWritten);
+            out.flush();
+            return booksWritten;
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Encodes a title as UTF-8 into the title array, as String.getBytes would, without
+     * allocating; unpaired surrogates become '?' like there.
+     */
+    private int encodeTitle(String value) {
+        int chars = value.length();
+        if (title.length < chars * 3) {
+            title = new byte[chars * 3];
+        }
+        byte[] bytes = title;
+        int length = 0;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[length++] = '?';
+            } else {
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return length;
+    }
+
+    private int authorRef(String author) {
+        if (author == null) {
+            return 0;
+        }
+        Integer id = authorIds.get(author);
+        if (id == null) {
+            id = authorIds.size();
+            authorIds.put(author, id);
+            byte[] bytes = author.getBytes(StandardCharsets.UTF_8);
+            newAuthors.writeVarint(bytes.length);
+            newAuthors.write(bytes, 0, bytes.length);
+            newAuthorCount++;
+        }
+        return id + 1;
+    }
+
+    private void writeBlock() throws IOException {
+        payload.reset();
+        payload.writeVarint(booksInBlock);
+        payload.writeVarint(newAuthorCount);
+        payload.writeBuffer(newAuthors);
+        payload.writeBuffer(records);
+
+        byte[] stored = payload.array();
+        int storedLength = payload.length();
+        if (deflater != null) {
+            storedLength = deflate(stored, storedLength);
+            stored = compressed;
+        }
+        crc.reset();
+        crc.update(stored, 0, storedLength);
+        out.writeInt(payload.length());
+        out.writeInt(storedLength);
+        out.writeInt((int) crc.getValue());
+        out.write(stored, 0, storedLength);
+
+        booksWritten += booksInBlock;
+        booksInBlock = 0;
+        newAuthorCount = 0;
+        newAuthors.reset();
+        records.reset();
+        // Every block is front-coded on its own, so a reader never needs an earlier title
+        previousTitleLength = 0;
+    }
+
+    private int deflate(byte[] input, int length) {
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int produced = 0;
+        while (!deflater.finished()) {
+            if (produced == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            produced += deflater.deflate(compressed, produced, compressed.length - produced);
+        }
+        return produced;
+    }
+}
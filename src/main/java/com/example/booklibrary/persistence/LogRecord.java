@@ -0,0 +1,163 @@
+package com.example.booklibrary.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * One entry of the write-ahead log or of a snapshot.
+ *
+ * On disk every record is framed as
+ * <pre>
+ * int    payload length
+ * int    CRC32C of the payload
+ * byte   type (SAVE or DELETE)
+ * string title
+ * string author   (SAVE only, length -1 for null)
+ * int    year     (SAVE only)
+ * </pre>
+ * where a string is an int byte length followed by UTF-8 bytes. The checksum lets
+ * recovery detect a record torn by a crash and stop there.
+ */
+final class LogRecord {
+
+    static final byte SAVE = 1;
+    static final byte DELETE = 2;
+
+    static final int HEADER_BYTES = 8;
+    // Far above any real book; anything larger is a corrupt length field
+    static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+    final byte type;
+    final Book book;
+
+    private LogRecord(byte type, Book book) {
+        this.type = type;
+        this.book = book;
+    }
+
+    static LogRecord save(Book book) {
+        return new LogRecord(SAVE, book);
+    }
+
+    static LogRecord delete(String title) {
+        return new LogRecord(DELETE, new Book(title, null, 0));
+    }
+
+    /**
+     * @return The exact number of bytes encode will write, header included
+     */
+    int encodedSize(byte[] title, byte[] author) {
+        int size = HEADER_BYTES + 1 + 4 + title.length;
+        if (type == SAVE) {
+            size += 4 + (author == null ? 0 : author.length) + 4;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the framed record into a buffer, which must have room for encodedSize bytes.
+     */
+    void encode(ByteBuffer target, byte[] title, byte[] author) {
+        int start = target.position();
+        target.position(start + HEADER_BYTES);
+        target.put(type);
+        target.putInt(title.length).put(title);
+        if (type == SAVE) {
+            if (author == null) {
+                target.putInt(-1);
+            } else {
+                target.putInt(author.length).put(author);
+            }
+            target.putInt(book.getYear());
+        }
+        int end = target.position();
+
+        CRC32C crc = new CRC32C();
+        ByteBuffer payload = target.duplicate();
+        payload.position(start + HEADER_BYTES).limit(end);
+        crc.update(payload);
+        target.putInt(start, end - start - HEADER_BYTES);
+        target.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Encodes the record into a fresh buffer sized for it.
+     */
+    ByteBuffer encode() {
+        byte[] title = book.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[] author = book.getAuthor() == null ? null : book.getAuthor().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(title, author));
+        encode(buffer, title, author);
+        return buffer.flip();
+    }
+
+    /**
+     * Reads the record starting at the buffer position.
+     * On success the position moves past the record; otherwise it is left unchanged.
+     *
+     * @return The record, or null if the buffer holds only part of one or its checksum is wrong
+     */
+    static LogRecord decode(ByteBuffer source) {
+        int start = source.position();
+        if (source.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = source.getInt(start);
+        int checksum = source.getInt(start + 4);
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES || source.remaining() < HEADER_BYTES + length) {
+            return null;
+        }
+
+        ByteBuffer payload = source.duplicate();
+        payload.position(start + HEADER_BYTES).limit(start + HEADER_BYTES + length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        try {
+            byte type = payload.get();
+            String title = readString(payload);
+            LogRecord record;
+            if (type == SAVE) {
+                String author = readString(payload);
+                record = new LogRecord(SAVE, new Book(title, author, payload.getInt()));
+            } else if (type == DELETE) {
+                record = delete(title);
+            } else {
+                return null;
+            }
+            source.position(start + HEADER_BYTES + length);
+            return record;
+        } catch (RuntimeException e) {
+            // A checksum collision on garbage; treat like a torn record
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the buffer starts with a header whose payload does not fit the buffer,
+     * meaning more bytes must be read before the record can be decoded.
+     */
+    static boolean needsMoreBytes(ByteBuffer source) {
+        if (source.remaining() < HEADER_BYTES) {
+            return true;
+        }
+        int length = source.getInt(source.position());
+        return length > 0 && length <= MAX_PAYLOAD_BYTES && source.remaining() < HEADER_BYTES + length;
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.booklibrary.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte array for encoding a snapshot block, reused from block to block.
+ * Unlike ByteArrayOutputStream it is unsynchronized and exposes its array, so the
+ * block can be checksummed, deflated and written without another copy.
+ */
+final class SnapshotBuffer {
+
+    private byte[] data;
+    private int length;
+
+    SnapshotBuffer(int capacity) {
+        data = new byte[capacity];
+    }
+
+    byte[] array() {
+        return data;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    void write(byte[] bytes, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(bytes, offset, data, length, count);
+        length += count;
+    }
+
+    void writeBuffer(SnapshotBuffer other) {
+        write(other.data, 0, other.length);
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint: 7 bits per byte, low bits first.
+     */
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Writes a signed value zig-zag encoded, so small negative values stay short.
+     */
+    void writeSignedVarint(int value) {
+        writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + extra, data.length * 2));
+        }
+    }
+}
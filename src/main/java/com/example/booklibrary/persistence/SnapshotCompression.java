@@ -0,0 +1,47 @@
+package com.example.booklibrary.persistence;
+
+import java.util.Locale;
+
+/**
+ * Compression of the blocks of a catalog snapshot, recorded in its header.
+ */
+public enum SnapshotCompression {
+
+    /** Blocks are stored as encoded; the fastest choice on a fast network */
+    NONE(0),
+
+    /** Blocks are deflated at the fastest level, which still halves most catalogs */
+    DEFLATE(1);
+
+    private final int id;
+
+    SnapshotCompression(int id) {
+        this.id = id;
+    }
+
+    int id() {
+        return id;
+    }
+
+    static SnapshotCompression ofId(int id) {
+        for (SnapshotCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unknown snapshot compression " + id);
+    }
+
+    /**
+     * @param name The name, case-insensitive, such as deflate
+     * @return The compression
+     * @throws IllegalArgumentException if there is no compression of that name
+     */
+    public static SnapshotCompression of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Snapshot compression must be none or deflate");
+        }
+    }
+}
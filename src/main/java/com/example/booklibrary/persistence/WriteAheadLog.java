@@ -0,0 +1,460 @@
+package com.example.booklibrary.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookMutationListener;
+import com.example.booklibrary.repository.BookRepository;
+
+/**
+ * Append-only log of repository mutations with periodic snapshots, all through FileChannel.
+ *
+ * The directory holds numbered segments (wal-N.log) and snapshots (snapshot-N.bin).
+ * snapshot-N contains the whole catalog and is followed by segments N, N+1, ...;
+ * recovery loads the newest snapshot and replays those segments in order.
+ *
+ * Writes use group commit: records are encoded and added to a lock-free queue while the
+ * title lock is held, which keeps the records of a title in apply order without making
+ * writers of other titles wait. When the writer then waits for durability, the first
+ * waiter becomes the leader and writes and fsyncs everything queued so far, so
+ * concurrent writers share one fsync.
+ *
+ * The log stops at its first I/O error: a failed write may have left part of the buffer
+ * in the segment and taken records off the queue, so nothing is written after it. Every
+ * later wait for durability, and so every later write, fails with that error. Writes
+ * are applied in memory before the log sees them, so the process should be restarted,
+ * which recovers the records that were fsynced.
+ */
+public final class WriteAheadLog implements BookMutationListener, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+
+    private final Path directory;
+
+    // Records not written yet, in the order they were appended
+    private final Queue<PendingRecord> pending = new ConcurrentLinkedQueue<>();
+    // The last record each thread appended, which mutationCompleted waits for
+    private final ThreadLocal<PendingRecord> lastAppended = new ThreadLocal<>();
+    // Held for every write to the files and every change of segment
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Guarded by flushLock
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private long writtenSequence;
+    private FileChannel segment;
+    private long segmentId;
+
+    private volatile long durableSequence;
+    // The first error writing the log, after which it writes nothing; set under flushLock
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the log in a directory, creating the directory if needed.
+     * Call recover before appending.
+     *
+     * @param directory The directory holding segments and snapshots
+     * @return The log
+     * @throws IOException if the directory cannot be created
+     */
+    public static WriteAheadLog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new WriteAheadLog(directory);
+    }
+
+    /**
+     * Loads the newest snapshot and replays the segments after it into the repository,
+     * then starts a new segment for further writes. A torn record at the end of the last
+     * segment, left by a crash during a write, is cut off.
+     *
+     * @param repository The repository to fill
+     * @return The number of books loaded from the snapshot plus records replayed
+     * @throws IOException if the files cannot be read
+     */
+    public long recover(BookRepository repository) throws IOException {
+        long snapshotId = newest(SNAPSHOT);
+        long loaded = 0;
+        if (snapshotId >= 0) {
+            List<Book> books = new ArrayList<>();
+            readRecords(snapshotFile(snapshotId), false, record -> books.add(record.book));
+            repository.saveAll(books);
+            loaded += books.size();
+        }
+
+        List<Long> segments = ids(SEGMENT);
+        long lastId = Math.max(snapshotId, 0);
+        for (Iterator<Long> iterator = segments.iterator(); iterator.hasNext();) {
+            long id = iterator.next();
+            if (id < snapshotId) {
+                continue;
+            }
+            long[] replayed = new long[1];
+            readRecords(segmentFile(id), !iterator.hasNext(), record -> {
+                if (record.type == LogRecord.SAVE) {
+                    repository.save(record.book);
+                } else {
+                    repository.deleteByTitle(record.book.getTitle());
+                }
+                replayed[0]++;
+            });
+            loaded += replayed[0];
+            lastId = Math.max(lastId, id);
+        }
+
+        flushLock.lock();
+        try {
+            openSegment(lastId + 1);
+        } finally {
+            flushLock.unlock();
+        }
+        log.info("Recovered {} records from {} (snapshot {})", loaded, directory, snapshotId);
+        return loaded;
+    }
+
+    @Override
+    public void bookSaved(Book previous, Book saved) {
+        append(LogRecord.save(saved));
+    }
+
+    @Override
+    public void bookDeleted(Book removed) {
+        append(LogRecord.delete(removed.getTitle()));
+    }
+
+    @Override
+    public void mutationCompleted() {
+        PendingRecord last = lastAppended.get();
+        if (last != null) {
+            lastAppended.remove();
+            awaitDurable(last);
+        }
+    }
+
+    /**
+     * Queues a record without waiting for it to reach the disk.
+     *
+     * @return The queued record, to wait for with awaitDurable
+     */
+    PendingRecord append(LogRecord record) {
+        PendingRecord queued = new PendingRecord(record.encode());
+        // A failed log takes nothing more; awaitDurable reports the failure instead
+        if (failure == null) {
+            pending.add(queued);
+        }
+        lastAppended.set(queued);
+        return queued;
+    }
+
+    /**
+     * Blocks until a record, and with it every record queued before, has been fsynced.
+     *
+     * @throws UncheckedIOException if writing the log fails now or failed before
+     */
+    void awaitDurable(PendingRecord record) {
+        if (record.isDurable(durableSequence)) {
+            return;
+        }
+        checkNotFailed();
+        flushLock.lock();
+        try {
+            checkNotFailed();
+            // Whoever held the lock before us may already have flushed our record
+            if (!record.isDurable(durableSequence)) {
+                flush();
+            }
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException("Cannot write the write-ahead log", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the repository and drops the segments it makes redundant.
+     * Writers keep going while the snapshot is taken.
+     *
+     * @param repository The repository to snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot(BookRepository repository) throws IOException {
+        // Roll first: the snapshot must be followed by every segment that can hold a
+        // write it might have missed, including records of the segment being closed
+        // whose books were not yet visible when the iteration passed them.
+        long coveredFrom;
+        flushLock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("The write-ahead log has failed", failure);
+            }
+            coveredFrom = roll();
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        } finally {
+            flushLock.unlock();
+        }
+
+        Path temporary = directory.resolve("snapshot-" + coveredFrom + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                Stream<Book> books = repository.streamAll()) {
+            ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                ByteBuffer record = LogRecord.save(iterator.next()).encode();
+                if (out.remaining() < record.remaining()) {
+                    writeFully(channel, out.flip());
+                    out.clear();
+                }
+                if (record.remaining() > out.capacity()) {
+                    writeFully(channel, record);
+                } else {
+                    out.put(record);
+                }
+            }
+            writeFully(channel, out.flip());
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotFile(coveredFrom), StandardCopyOption.ATOMIC_MOVE);
+
+        for (long id : ids(SNAPSHOT)) {
+            if (id < coveredFrom) {
+                Files.deleteIfExists(snapshotFile(id));
+            }
+        }
+        for (long id : ids(SEGMENT)) {
+            if (id < coveredFrom) {
+                Files.deleteIfExists(segmentFile(id));
+            }
+        }
+        log.info("Wrote snapshot {} to {}", coveredFrom, directory);
+    }
+
+    /**
+     * Flushes buffered records, unless the log has failed, and closes the current segment.
+     */
+    @Override
+    public void close() throws IOException {
+        flushLock.lock();
+        try {
+            if (segment != null) {
+                try {
+                    if (failure == null) {
+                        flush();
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                    throw e;
+                } finally {
+                    segment.close();
+                    segment = null;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Caller holds flushLock; keeps the first error
+    private void fail(IOException e) {
+        if (failure == null) {
+            log.error("Write-ahead log in {} failed; writes fail until restart", directory, e);
+            failure = e;
+            pending.clear();
+        }
+    }
+
+    private void checkNotFailed() {
+        IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Cannot write the write-ahead log", failed);
+        }
+    }
+
+    // Caller holds flushLock
+    private void flush() throws IOException {
+        writePending(segment);
+        segment.force(false);
+        durableSequence = writtenSequence;
+
+        if (segment.size() > MAX_SEGMENT_BYTES) {
+            roll();
+        }
+    }
+
+    /**
+     * Writes the records queued so far to the current segment and switches further
+     * writes to a new one. Writers never wait for this: they only queue records, so the
+     * file I/O here holds up no title lock. Caller holds flushLock.
+     *
+     * @return The id of the old segment
+     */
+    private long roll() throws IOException {
+        FileChannel previous = segment;
+        long previousId = segmentId;
+        FileChannel next = FileChannel.open(segmentFile(previousId + 1), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        writePending(previous);
+        previous.force(false);
+        durableSequence = writtenSequence;
+        previous.close();
+        segment = next;
+        segmentId = previousId + 1;
+        return previousId;
+    }
+
+    // Caller holds flushLock; numbers the records in the order they are written
+    private void writePending(FileChannel target) throws IOException {
+        PendingRecord record;
+        while ((record = pending.poll()) != null) {
+            ByteBuffer encoded = record.encoded;
+            if (buffer.remaining() < encoded.remaining()) {
+                writeFully(target, buffer.flip());
+                buffer.clear();
+            }
+            if (encoded.remaining() > buffer.capacity()) {
+                writeFully(target, encoded);
+            } else {
+                buffer.put(encoded);
+            }
+            record.sequence = ++writtenSequence;
+        }
+        writeFully(target, buffer.flip());
+        buffer.clear();
+    }
+
+    // Caller holds flushLock
+    private void openSegment(long id) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segment = FileChannel.open(segmentFile(id), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentId = id;
+    }
+
+    private void readRecords(Path file, boolean truncateTornTail, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+            long validEnd = 0;
+            boolean eof = false;
+            while (true) {
+                if (!eof && channel.read(in) < 0) {
+                    eof = true;
+                }
+                in.flip();
+                int before = in.position();
+                LogRecord record;
+                while ((record = LogRecord.decode(in)) != null) {
+                    handler.handle(record);
+                    validEnd += in.position() - before;
+                    before = in.position();
+                }
+                if (eof || !LogRecord.needsMoreBytes(in)) {
+                    break;
+                }
+                if (in.position() == 0 && in.limit() == in.capacity()) {
+                    // A single record larger than the buffer
+                    ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                    in = larger.put(in);
+                } else {
+                    in.compact();
+                }
+            }
+            if (validEnd < channel.size()) {
+                if (!truncateTornTail) {
+                    throw new IOException("Corrupt record in " + file + " at offset " + validEnd);
+                }
+                log.warn("Truncating torn write-ahead log tail of {} at offset {}", file, validEnd);
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private long newest(Pattern pattern) throws IOException {
+        List<Long> ids = ids(pattern);
+        return ids.isEmpty() ? -1 : ids.get(ids.size() - 1);
+    }
+
+    private List<Long> ids(Pattern pattern) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Path segmentFile(long id) {
+        return directory.resolve("wal-" + id + ".log");
+    }
+
+    private Path snapshotFile(long id) {
+        return directory.resolve("snapshot-" + id + ".bin");
+    }
+
+    /**
+     * An encoded record waiting in the queue. Its sequence is assigned when it is written,
+     * so records are durable up to the last sequence fsynced.
+     */
+    static final class PendingRecord {
+        private final ByteBuffer encoded;
+        // 0 until written
+        private volatile long sequence;
+
+        PendingRecord(ByteBuffer encoded) {
+            this.encoded = encoded;
+        }
+
+        boolean isDurable(long durableSequence) {
+            long written = sequence;
+            return written != 0 && written <= durableSequence;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordHandler {
+        void handle(LogRecord record) throws IOException;
+    }
+}
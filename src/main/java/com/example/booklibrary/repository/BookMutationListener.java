@@ -0,0 +1,47 @@
+package com.example.booklibrary.repository;
+
+import com.example.booklibrary.model.Book;
+
+/**
+ * Callback for components that keep derived state in step with a BookRepository.
+ * bookSaved and bookDeleted are called while the repository holds the lock of the
+ * affected title, after the change is visible to readers, so callbacks for one title
+ * arrive in the order the writes were applied.
+ * They must be fast and must not call back into the repository. Nor should they take a
+ * lock shared by all titles, which would make writers of unrelated titles wait for each
+ * other: queue the change or reserve a sequence instead, and do the shared work in
+ * mutationCompleted, which runs once the title lock is released.
+ */
+public interface BookMutationListener {
+
+    /**
+     * Called after a book was saved.
+     *
+     * @param previous The book previously stored under the same title, or null
+     * @param saved    The book now stored
+     */
+    void bookSaved(Book previous, Book saved);
+
+    /**
+     * Called after a book was deleted.
+     *
+     * @param removed The book that was removed
+     */
+    void bookDeleted(Book removed);
+
+    /**
+     * Called on the writing thread once a save, delete or bulk save has finished and
+     * its locks are released. Unlike the other callbacks this one may block, for
+     * example to wait until the change is durable.
+     */
+    default void mutationCompleted() {
+    }
+
+    /**
+     * Called under the repository's write lock when the versions of all stored books
+     * changed at once, as when a store compacts and its versions are record positions.
+     * Books read before carry versions that no longer match.
+     */
+    default void versionsChanged() {
+    }
+}
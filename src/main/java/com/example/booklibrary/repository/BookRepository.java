@@ -1,7 +1,10 @@
 package com.example.booklibrary.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
 
 import com.example.booklibrary.model.Book;
 
@@ -17,6 +20,23 @@ public interface BookRepository {
      */
     List<Book> findAll();
     
+    /**
+     * Streams all books sorted by title without collecting them first.
+     * The stream is lazily evaluated and weakly consistent with concurrent writes.
+     *
+     * @return Stream of all books
+     */
+    Stream<Book> streamAll();
+    
+    /**
+     * Retrieves a page of books in title order, starting after the given title.
+     *
+     * @param afterTitle The title to start after (exclusive), or null to start from the first book
+     * @param limit The maximum number of books to return
+     * @return List of at most limit books sorted by title
+     */
+    List<Book> findPage(String afterTitle, int limit);
+    
     /**
      * Finds a book by its title.
      *
@@ -25,14 +45,72 @@ public interface BookRepository {
      */
     Optional<Book> findByTitle(String title);
     
+    /**
+     * Suggests titles that start with a prefix (case-insensitive), in title order.
+     *
+     * @param prefix The prefix typed so far
+     * @param limit The maximum number of titles to return
+     * @return List of at most limit matching titles
+     */
+    List<String> suggestTitles(String prefix, int limit);
+    
+    /**
+     * Finds all books by an author (case-insensitive), sorted by title.
+     *
+     * @param author The author to search for
+     * @return List of the author's books, empty if there are none
+     */
+    List<Book> findByAuthor(String author);
+    
+    /**
+     * Finds all books published within a range of years, sorted by year and then title.
+     *
+     * @param fromYear The first year of the range (inclusive)
+     * @param toYear The last year of the range (inclusive)
+     * @return List of books published in the range, empty if there are none
+     */
+    List<Book> findByYearBetween(int fromYear, int toYear);
+    
     /**
      * Saves a book to the repository.
      *
      * @param book The book to save
-     * @return The saved book
+     * @return The saved book, carrying the version assigned to it
      */
     Book save(Book book);
     
+    /**
+     * Saves a book only if no book with its title is stored, atomically with respect to
+     * other writes of the same title.
+     *
+     * @param book The book to save
+     * @return The saved book carrying its version, or empty if the title is taken
+     */
+    Optional<Book> saveIfAbsent(Book book);
+    
+    /**
+     * Replaces a book only if the stored book with its title still has the version the
+     * caller read, atomically with respect to other writes of the same title.
+     *
+     * @param book The new state of the book
+     * @param expectedVersion The version of the stored book the change is based on
+     * @return The saved book carrying its new version, or empty if the title is not
+     *         stored or has another version
+     * @throws IllegalArgumentException if expectedVersion is not positive
+     */
+    Optional<Book> replaceIfVersion(Book book, long expectedVersion);
+    
+    /**
+     * Saves many books as one bulk operation.
+     * When the same title appears more than once, the last occurrence wins.
+     *
+     * @param books The books to save
+     * @return The stored books with their versions, one per distinct title, ordered by
+     *         normalized title like findAll
+     * @throws IllegalArgumentException if any book or title is null or empty; nothing is saved then
+     */
+    List<Book> saveAll(Collection<Book> books);
+    
     /**
      * Returns the total number of books in the repository.
      *
@@ -47,4 +125,40 @@ public interface BookRepository {
      * @return true if the book was deleted, false if not found
      */
     boolean deleteByTitle(String title);
+    
+    /**
+     * Deletes a book only if the stored one still has the version the caller read,
+     * atomically with respect to other writes of the same title.
+     *
+     * @param title The title of the book to delete
+     * @param expectedVersion The version of the stored book the delete is based on
+     * @return true if the book was deleted, false if it is not stored or has another version
+     * @throws IllegalArgumentException if expectedVersion is not positive
+     */
+    boolean deleteIfVersion(String title, long expectedVersion);
+    
+    /**
+     * Returns the version of the whole catalog. It increases once a save, delete or bulk
+     * save is visible to readers, so a result read after this call is at least as new
+     * as the version returned.
+     *
+     * @return The catalog version
+     */
+    long getCatalogVersion();
+    
+    /**
+     * Registers a listener that is notified of every save and delete.
+     *
+     * @param listener The listener to notify
+     */
+    void addMutationListener(BookMutationListener listener);
+    
+    /**
+     * Tells when the startup data of the DataInitializer is in. Complete when the
+     * repository is created unless it loads in the background; until then a title that
+     * is not found may only not have been loaded yet.
+     *
+     * @return A stage that completes once loading finished, exceptionally if it failed
+     */
+    CompletionStage<Void> whenLoaded();
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.example.booklibrary.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookChange;
+import com.example.booklibrary.model.BookChanges;
+
+/**
+ * Bounded history of the saves and deletes applied to a BookRepository, for replicas
+ * that follow the catalog instead of downloading it again.
+ *
+ * Changes are numbered in the order they were applied and kept in a ring buffer of a
+ * fixed capacity; once a change is overwritten, clients behind it are told to resync.
+ * A change is recorded after the repository applied it, so a full read taken after
+ * latestSequence returned S already contains every change up to S.
+ *
+ * Recording takes no lock, since it runs under the repository's title lock: the writer
+ * reserves the next sequence and then stores the change in its slot. Readers stop at a
+ * slot whose change is still being stored and pick it up on their next request.
+ */
+@Component
+public class ChangeLog implements BookMutationListener {
+
+    // A replica may still hold a sequence of an earlier run. Each run starts its sequences at
+    // its start time in seconds times 2^20, so those are older than anything retained unless
+    // the earlier run averaged a million changes per second. Stays below 2^53 for JavaScript.
+    private static final int SEQUENCES_PER_SECOND_SHIFT = 20;
+
+    private final AtomicReferenceArray<BookChange> ring;
+    private final long firstSequence;
+    // The newest reserved sequence; its change may not be in the ring yet
+    private final AtomicLong latest;
+
+    /**
+     * Creates a log that records the changes of a repository from now on.
+     *
+     * @param repository The repository to follow
+     * @param capacity   The number of changes retained
+     */
+    @Autowired
+    public ChangeLog(BookRepository repository, @Value("${library.changes.capacity:100000}") int capacity) {
+        this(capacity, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) << SEQUENCES_PER_SECOND_SHIFT);
+        repository.addMutationListener(this);
+    }
+
+    /**
+     * Creates a log that is fed through bookSaved and bookDeleted.
+     *
+     * @param capacity     The number of changes retained
+     * @param lastSequence The sequence the log reports before the first change
+     */
+    public ChangeLog(int capacity, long lastSequence) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Change log capacity must be positive");
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.firstSequence = lastSequence + 1;
+        this.latest = new AtomicLong(lastSequence);
+    }
+
+    @Override
+    public void bookSaved(Book previous, Book saved) {
+        append(BookChange.Type.SAVED, saved.getTitle(), saved);
+    }
+
+    @Override
+    public void bookDeleted(Book removed) {
+        append(BookChange.Type.DELETED, removed.getTitle(), null);
+    }
+
+    private void append(BookChange.Type type, String title, Book book) {
+        long sequence = latest.incrementAndGet();
+        ring.set(slot(sequence), new BookChange(sequence, type, title, book));
+    }
+
+    /**
+     * @return The sequence of the newest change, the position a client starts from after
+     *         reading the whole catalog
+     */
+    public long latestSequence() {
+        return latest.get();
+    }
+
+    /**
+     * Returns the changes applied after a sequence, oldest first.
+     *
+     * @param since The sequence of the last change the client has applied, or null if it has none
+     * @param limit The maximum number of changes to return
+     * @return The changes, or a resync answer if since is null, in the future or no longer retained
+     */
+    public BookChanges changesSince(Long since, int limit) {
+        long newest = latest.get();
+        long oldest = Math.max(firstSequence, newest - ring.length() + 1);
+        if (since == null || since > newest || since < oldest - 1) {
+            return new BookChanges(List.of(), newest, true);
+        }
+        long last = Math.min(newest, since + limit);
+        List<BookChange> changes = new ArrayList<>((int) (last - since));
+        for (long sequence = since + 1; sequence <= last; sequence++) {
+            BookChange change = ring.get(slot(sequence));
+            if (change == null || change.getSequence() < sequence) {
+                // Reserved but still being stored
+                break;
+            }
+            if (change.getSequence() > sequence) {
+                // Overwritten by writers that lapped the ring while we read
+                return new BookChanges(List.of(), latest.get(), true);
+            }
+            changes.add(change);
+        }
+        return new BookChanges(changes, since + changes.size(), false);
+    }
+
+    private int slot(long sequence) {
+        return (int) Math.floorMod(sequence, (long) ring.length());
+    }
+}
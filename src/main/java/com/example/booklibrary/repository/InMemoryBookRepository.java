@@ -1,12 +1,32 @@
 package com.example.booklibrary.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import com.example.booklibrary.data.DataInitializer;
@@ -16,11 +36,40 @@ import com.example.booklibrary.model.Book;
  * In-memory implementation of BookRepository.
  * Uses thread-safe collections for concurrent access.
  * Filled with sample data by DataInitializer.
+ * Used unless the offheap profile selects OffHeapBookRepository.
  */
 @Repository
+@Profile("!offheap")
 public class InMemoryBookRepository implements BookRepository {
-    // Used instead of Lock
+    private static final Logger log = LoggerFactory.getLogger(InMemoryBookRepository.class);
+
+    // Writers of one title serialize on its stripe, so the map, the sorted map and both
+    // indexes change together. Under the stripe the listeners only queue their work or
+    // reserve a sequence, so writers of other stripes meet in the concurrent collections
+    // and in whatever shared state the listeners update after the stripe is released
+    private static final int LOCK_STRIPES = 1024;
+    // Versions of stored books are positive, so 0 asks for an absent title
+    private static final long ANY_VERSION = -1;
+
+    // Keyed by TitleNormalizer.normalize(title)
     private final Map<String, Book> books = new ConcurrentHashMap<>();
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    // Same entries ordered by key, kept in step with books so findAll never sorts
+    private final NavigableMap<String, Book> sortedBooks = new ConcurrentSkipListMap<>();
+    // Normalized author -> keys of that author's books
+    private final Map<String, Set<String>> authorIndex = new ConcurrentHashMap<>();
+    // (year, key) pairs so a year range is a contiguous sub-set
+    private final NavigableSet<YearKey> yearIndex = new ConcurrentSkipListSet<>();
+    private final List<BookMutationListener> listeners = new CopyOnWriteArrayList<>();
+    // Prolific authors would otherwise hold one copy of their name per book
+    private final WeakInterner authors = new WeakInterner();
+    // Source of book versions, drawn under the title lock
+    private final AtomicLong writeSequence = new AtomicLong();
+    // Bumped only after a write is applied, so a reader never pairs it with older data
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    // Completed once the initializer returned; see whenLoaded
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
 
     /**
      * Constructor that initializes the repository with data using the provided
@@ -29,10 +78,33 @@ public class InMemoryBookRepository implements BookRepository {
      * @param dataInitializer for initializing data (can be null to
      *                        skip initialization)
      */
-    @Autowired(required = false)
     public InMemoryBookRepository(DataInitializer dataInitializer) {
-        if (dataInitializer != null) {
+        this(dataInitializer, false);
+    }
+
+    /**
+     * Constructor that initializes the repository with data, either before it returns or
+     * on a background thread while the repository already serves requests
+     *
+     * @param dataInitializer for initializing data (can be null to
+     *                        skip initialization)
+     * @param asyncLoad       whether to load in the background
+     */
+    @Autowired(required = false)
+    public InMemoryBookRepository(DataInitializer dataInitializer,
+            @Value("${library.data.async-load:false}") boolean asyncLoad) {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        if (dataInitializer == null) {
+            loaded.complete(null);
+        } else if (asyncLoad) {
+            Thread loader = new Thread(() -> initializeInBackground(dataInitializer), "catalog-loader");
+            loader.setDaemon(true);
+            loader.start();
+        } else {
             initializeData(dataInitializer);
+            loaded.complete(null);
         }
     }
 
@@ -40,12 +112,108 @@ public class InMemoryBookRepository implements BookRepository {
         dataInitializer.initializeData(this);
     }
 
+    private void initializeInBackground(DataInitializer dataInitializer) {
+        long start = System.nanoTime();
+        try {
+            initializeData(dataInitializer);
+            log.info("Loaded {} books in the background in {} ms", count(), (System.nanoTime() - start) / 1_000_000);
+            loaded.complete(null);
+        } catch (RuntimeException | Error e) {
+            // Keeps serving what was loaded; readiness reports the failure
+            log.error("Loading the catalog failed after {} books", count(), e);
+            loaded.completeExceptionally(e);
+        }
+    }
+
     @Override
     public List<Book> findAll() {
-        return books.values()
-                .stream()
-                .sorted(Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER))
-                .toList();
+        // Linear walk of the already ordered index
+        return List.copyOf(sortedBooks.values());
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return sortedBooks.values().stream();
+    }
+
+    @Override
+    public List<Book> findPage(String afterTitle, int limit) {
+        NavigableMap<String, Book> tail = afterTitle == null
+                ? sortedBooks
+                : sortedBooks.tailMap(TitleNormalizer.normalize(afterTitle), false);
+
+        // Seek is O(log n), the walk stops after limit entries
+        List<Book> page = new ArrayList<>(Math.min(limit, 256));
+        for (Book book : tail.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(book);
+        }
+        return page;
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return List.of();
+        }
+
+        // Keys are trimmed, but a trailing space typed by the user still narrows the match
+        String from = TitleNormalizer.normalize(prefix);
+        if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            from += " ";
+        }
+        // Every key starting with the prefix sorts between from and from + U+FFFF
+        List<String> titles = new ArrayList<>(Math.min(limit, 64));
+        for (Book book : sortedBooks.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            if (titles.size() >= limit) {
+                break;
+            }
+            titles.add(book.getTitle());
+        }
+        return titles;
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        if (author == null || author.trim().isEmpty()) {
+            return List.of();
+        }
+
+        String authorKey = TitleNormalizer.normalize(author);
+        // Index entries are title keys, so sorting them sorts the result by title
+        List<String> keys = new ArrayList<>(authorIndex.getOrDefault(authorKey, Set.of()));
+        keys.sort(Comparator.naturalOrder());
+        List<Book> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Book book = books.get(key);
+            // Skip entries caught between a map update and its index update
+            if (book != null && book.getAuthor() != null
+                    && TitleNormalizer.normalize(book.getAuthor()).equals(authorKey)) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Book> findByYearBetween(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            return List.of();
+        }
+
+        NavigableSet<YearKey> range = toYear == Integer.MAX_VALUE
+                ? yearIndex.tailSet(new YearKey(fromYear, null), true)
+                : yearIndex.subSet(new YearKey(fromYear, null), true, new YearKey(toYear + 1, null), false);
+        List<Book> result = new ArrayList<>();
+        for (YearKey yearKey : range) {
+            Book book = books.get(yearKey.key);
+            if (book != null && book.getYear() == yearKey.year) {
+                result.add(book);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -55,11 +223,8 @@ public class InMemoryBookRepository implements BookRepository {
             return Optional.empty();
         }
 
-        // Case-insensitive search
-        return books.values()
-                .stream()
-                .filter(book -> book.getTitle().equalsIgnoreCase(title.trim()))
-                .findFirst();
+        // Case-insensitive lookup is a direct probe on the normalized key
+        return Optional.ofNullable(books.get(TitleNormalizer.normalize(title)));
     }
 
     @Override
@@ -68,9 +233,114 @@ public class InMemoryBookRepository implements BookRepository {
             throw new IllegalArgumentException("Book and title cannot be null or empty");
         }
 
-        String key = book.getTitle().toLowerCase().trim();
-        books.put(key, book);
-        return book;
+        String key = TitleNormalizer.normalize(book.getTitle());
+        Book stored = put(key, compact(key, book), ANY_VERSION);
+        catalogVersion.incrementAndGet();
+        completeMutation();
+        return stored;
+    }
+
+    @Override
+    public Optional<Book> saveIfAbsent(Book book) {
+        return saveIfVersion(book, 0);
+    }
+
+    @Override
+    public Optional<Book> replaceIfVersion(Book book, long expectedVersion) {
+        if (expectedVersion <= 0) {
+            throw new IllegalArgumentException("Expected version must be positive");
+        }
+        return saveIfVersion(book, expectedVersion);
+    }
+
+    private Optional<Book> saveIfVersion(Book book, long expectedVersion) {
+        if (book == null || book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book and title cannot be null or empty");
+        }
+
+        String key = TitleNormalizer.normalize(book.getTitle());
+        Book stored = put(key, compact(key, book), expectedVersion);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        catalogVersion.incrementAndGet();
+        completeMutation();
+        return Optional.of(stored);
+    }
+
+    @Override
+    public List<Book> saveAll(Collection<Book> booksToSave) {
+        List<Book> batch = new ArrayList<>(booksToSave);
+        for (Book book : batch) {
+            if (book == null || book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+                throw new IllegalArgumentException("Book and title cannot be null or empty");
+            }
+        }
+
+        // Normalizing is the CPU-heavy part and independent per book
+        String[] keys = batch.parallelStream()
+                .map(book -> TitleNormalizer.normalize(book.getTitle()))
+                .toArray(String[]::new);
+        // In key order, so consecutive puts walk neighbouring nodes of the sorted map instead
+        // of a cold path each; bulk loads of millions of books spend most time there
+        Map<String, Book> latestByKey = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            latestByKey.put(keys[i], compact(keys[i], batch.get(i)));
+        }
+        // Applied on this thread, in key order for the reason above
+        List<Book> saved = new ArrayList<>(latestByKey.size());
+        latestByKey.forEach((key, book) -> saved.add(put(key, book, ANY_VERSION)));
+        catalogVersion.incrementAndGet();
+        completeMutation();
+        return saved;
+    }
+
+    // Books are immutable, so the stored instance only changes when a string can be shared
+    private Book compact(String key, Book book) {
+        String author = authors.intern(book.getAuthor());
+        // Titles are unique per book, so the only copy worth sharing is the map key
+        String title = key.equals(book.getTitle()) ? key : book.getTitle();
+        if (author == book.getAuthor() && title == book.getTitle()) {
+            return book;
+        }
+        return new Book(title, author, book.getYear());
+    }
+
+    /**
+     * Stores a book under its stripe lock.
+     *
+     * @param expectedVersion Version the stored book must have, 0 for none, or ANY_VERSION
+     * @return The stored book, or null if the stored version did not match
+     */
+    private Book put(String key, Book book, long expectedVersion) {
+        Lock lock = lockFor(key);
+        lock.lock();
+        try {
+            Book existing = books.get(key);
+            long currentVersion = existing == null ? 0 : existing.getVersion();
+            if (expectedVersion != ANY_VERSION && expectedVersion != currentVersion) {
+                return null;
+            }
+            Book stored = new Book(book.getTitle(), book.getAuthor(), book.getYear(), writeSequence.incrementAndGet());
+            if (existing != null) {
+                removeFromIndexes(key, existing);
+            }
+            // Applied before the listeners run, so that what they derive matches what readers see
+            books.put(key, stored);
+            sortedBooks.put(key, stored);
+            addToIndexes(key, stored);
+            for (BookMutationListener listener : listeners) {
+                listener.bookSaved(existing, stored);
+            }
+            return stored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock lockFor(String key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
     }
 
     @Override
@@ -80,11 +350,124 @@ public class InMemoryBookRepository implements BookRepository {
 
     @Override
     public boolean deleteByTitle(String title) {
+        return delete(title, ANY_VERSION);
+    }
+
+    @Override
+    public boolean deleteIfVersion(String title, long expectedVersion) {
+        if (expectedVersion <= 0) {
+            throw new IllegalArgumentException("Expected version must be positive");
+        }
+        return delete(title, expectedVersion);
+    }
+
+    private boolean delete(String title, long expectedVersion) {
         if (title == null || title.trim().isEmpty()) {
             return false;
         }
 
-        String key = title.toLowerCase().trim();
-        return books.remove(key) != null;
+        String key = TitleNormalizer.normalize(title);
+        Lock lock = lockFor(key);
+        lock.lock();
+        try {
+            Book existing = books.get(key);
+            if (existing == null || (expectedVersion != ANY_VERSION && existing.getVersion() != expectedVersion)) {
+                return false;
+            }
+            books.remove(key);
+            sortedBooks.remove(key);
+            removeFromIndexes(key, existing);
+            for (BookMutationListener listener : listeners) {
+                listener.bookDeleted(existing);
+            }
+        } finally {
+            lock.unlock();
+        }
+        catalogVersion.incrementAndGet();
+        completeMutation();
+        return true;
+    }
+
+    @Override
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    @Override
+    public void addMutationListener(BookMutationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public CompletionStage<Void> whenLoaded() {
+        // Read-only view: callers must not be able to complete it
+        return loaded.minimalCompletionStage();
+    }
+
+    private void completeMutation() {
+        for (BookMutationListener listener : listeners) {
+            listener.mutationCompleted();
+        }
+    }
+
+    private void addToIndexes(String key, Book book) {
+        if (book.getAuthor() != null) {
+            // compute() keeps adds and empty-set removal for one author atomic
+            authorIndex.compute(TitleNormalizer.normalize(book.getAuthor()), (author, keys) -> {
+                Set<String> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                result.add(key);
+                return result;
+            });
+        }
+        yearIndex.add(new YearKey(book.getYear(), key));
+    }
+
+    private void removeFromIndexes(String key, Book book) {
+        if (book.getAuthor() != null) {
+            authorIndex.computeIfPresent(TitleNormalizer.normalize(book.getAuthor()), (author, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        yearIndex.remove(new YearKey(book.getYear(), key));
+    }
+
+    /**
+     * Entry of the year index, ordered by year and then by title key.
+     * A null key sorts before every title of the same year and is used for range bounds.
+     */
+    private static final class YearKey implements Comparable<YearKey> {
+        private final int year;
+        private final String key;
+
+        YearKey(int year, String key) {
+            this.year = year;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(YearKey other) {
+            int byYear = Integer.compare(year, other.year);
+            if (byYear != 0) {
+                return byYear;
+            }
+            if (key == null || other.key == null) {
+                return key == null ? (other.key == null ? 0 : -1) : 1;
+            }
+            return key.compareTo(other.key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof YearKey)) return false;
+            YearKey other = (YearKey) obj;
+            return year == other.year && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * year + Objects.hashCode(key);
+        }
     }
-}
\ No newline at end of file
+}
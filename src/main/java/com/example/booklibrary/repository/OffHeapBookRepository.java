@@ -0,0 +1,1175 @@
+package com.example.booklibrary.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import com.example.booklibrary.data.DataInitializer;
+import com.example.booklibrary.model.Book;
+
+/**
+ * BookRepository that keeps its records outside the Java heap, in memory-mapped files,
+ * so a large catalog adds nothing for the garbage collector to trace. Book objects are
+ * created only when a read returns them. Selected with the offheap Spring profile.
+ *
+ * Two files live in the store directory:
+ * <ul>
+ * <li>books.dat, a slab of records appended one after another:
+ *     int length, byte live flag, int year, then title and author as an int byte
+ *     length plus UTF-8 (length -1 for a null author). The slab is mapped in
+ *     fixed-size chunks and a record never crosses a chunk boundary.</li>
+ * <li>books.idx, an open-addressing hash table with linear probing from the hash of
+ *     the normalized title to the record offset in the slab.</li>
+ * </ul>
+ * Since the files are the store, the catalog survives a restart; the data initializer
+ * only runs when the store is created. Changes reach the disk when the operating system
+ * writes back the mapped pages, and at the latest on shutdown.
+ *
+ * Replacing or deleting a book clears the live flag of its old record. Once those dead
+ * records take more than the compaction threshold and more than the live ones, the next
+ * write first copies the live records into a new slab and index, written to temporary
+ * files and renamed into place, so the store stays within about twice its live size.
+ * Compaction moves records, so the version of a book is its record offset tagged with
+ * the number of compactions so far, and listeners are told that every version changed.
+ *
+ * Title lookups are a hash probe. Title order is kept as an array of record offsets
+ * sorted by key, in a direct buffer outside the heap, plus a heap map of the titles
+ * added since the array was last merged, which is folded in once it outgrows a
+ * sixteenth of the array. A replaced title takes the new offset in place and a deleted
+ * one is skipped until the next merge. Pages, suggestions and streams binary-search the
+ * array and walk it, so they cost O(log n + page) and hold no key per book on the heap.
+ * The array is sorted when the store is opened and rebuilt by compaction, which copies
+ * the records in title order. Author and year queries scan the slab, which is
+ * sequential but O(n) per call.
+ */
+@Repository
+@Profile("offheap")
+public class OffHeapBookRepository implements BookRepository, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapBookRepository.class);
+
+    private static final int MAGIC = 0x424f4f4b;
+    private static final int VERSION = 1;
+
+    // Slab: the first chunk starts with magic, version and the long end offset
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_BYTES - 1;
+    private static final int SLAB_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 9;
+    // A version is the compaction generation above the record offset
+    private static final int OFFSET_BITS = 40;
+
+    // Index: magic, version, capacity, size, used (size plus tombstones), the long number
+    // of dead bytes in the slab and the compaction generation, then the slots
+    private static final int INDEX_HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+
+    // Titles added before the sorted offsets are merged again, at the least
+    private static final int MIN_ADDED_BEFORE_MERGE = 4096;
+    // Books read per lock acquisition while a stream is consumed
+    private static final int STREAM_BATCH = 1024;
+
+    private final Path directory;
+    private final long compactionThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<BookMutationListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by lock; readers may keep using the slab they saw after releasing it
+    private FileChannel slabChannel;
+    private volatile Slab slab;
+    private long slabEnd;
+    private long deadBytes;
+    // Written under the write lock once a change is applied; read without locking
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int size;
+    private int used;
+
+    // Guarded by lock: offsets in key order, deleted records included until the next merge,
+    // and the titles added since, which are never in the sorted offsets as live records
+    private SortedOffsets sorted;
+    private final TreeMap<String, Long> recentlyAdded = new TreeMap<>();
+
+    /**
+     * Opens the store in a directory with the default compaction threshold of 64 MB.
+     *
+     * @param directory       The directory holding the store files
+     * @param dataInitializer for initializing a new store (can be null to skip initialization)
+     * @throws UncheckedIOException if the store cannot be opened
+     */
+    public OffHeapBookRepository(Path directory, @Nullable DataInitializer dataInitializer) {
+        this(directory, dataInitializer, DataSize.ofMegabytes(64));
+    }
+
+    /**
+     * Opens the store in a directory, creating it and running the data initializer if it
+     * does not exist yet.
+     *
+     * @param directory           The directory holding the store files
+     * @param dataInitializer     for initializing a new store (can be null to skip initialization)
+     * @param compactionThreshold Dead records the slab may hold before a write compacts it
+     * @throws UncheckedIOException if the store cannot be opened
+     */
+    @Autowired
+    public OffHeapBookRepository(@Value("${library.offheap.directory:data/offheap}") Path directory,
+            @Nullable DataInitializer dataInitializer,
+            @Value("${library.offheap.compaction-threshold:64MB}") DataSize compactionThreshold) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold.toBytes();
+        boolean created;
+        try {
+            Files.createDirectories(directory);
+            Path slabFile = directory.resolve("books.dat");
+            Path indexFile = directory.resolve("books.idx");
+            recoverCompaction(slabFile, indexFile);
+            created = !Files.exists(slabFile);
+            if (created) {
+                Files.deleteIfExists(indexFile);
+            }
+            slabChannel = FileChannel.open(slabFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            openIndex(indexFile, created);
+            openSlab(created, index.getInt(28));
+            sortOffsets();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the book store in " + directory, e);
+        }
+
+        if (created && dataInitializer != null) {
+            dataInitializer.initializeData(this);
+        }
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return streamAll().collect(Collectors.toList());
+    }
+
+    // Read a batch at a time, each under its own lock like a page, so a stream sees
+    // writes made while it is consumed much like ConcurrentSkipListMap iteration does
+    @Override
+    public Stream<Book> streamAll() {
+        Iterator<Book> books = new Iterator<>() {
+            private List<Book> batch = inKeyOrder(null, false, STREAM_BATCH, key -> true, Slab::readBook);
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == batch.size() && batch.size() == STREAM_BATCH) {
+                    String lastKey = TitleNormalizer.normalize(batch.get(next - 1).getTitle());
+                    batch = inKeyOrder(lastKey, false, STREAM_BATCH, key -> true, Slab::readBook);
+                    next = 0;
+                }
+                return next < batch.size();
+            }
+
+            @Override
+            public Book next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.get(next++);
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(books, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public List<Book> findPage(String afterTitle, int limit) {
+        String afterKey = afterTitle == null ? null : TitleNormalizer.normalize(afterTitle);
+        return inKeyOrder(afterKey, false, limit, key -> true, Slab::readBook);
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return List.of();
+        }
+
+        // Keys are trimmed, but a trailing space typed by the user still narrows the match
+        String from = TitleNormalizer.normalize(prefix);
+        String keyPrefix = Character.isWhitespace(prefix.charAt(prefix.length() - 1)) ? from + " " : from;
+        return inKeyOrder(keyPrefix, true, limit, key -> key.startsWith(keyPrefix),
+                (current, offset) -> current.readString(offset + RECORD_HEADER_BYTES));
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        if (author == null || author.trim().isEmpty()) {
+            return List.of();
+        }
+
+        String authorKey = TitleNormalizer.normalize(author);
+        List<KeyedOffset> matches = new ArrayList<>();
+        Slab current;
+        lock.readLock().lock();
+        try {
+            current = slab;
+            forEachLive(offset -> {
+                String recordAuthor = current.readString(current.authorOffset(offset));
+                if (recordAuthor != null && TitleNormalizer.normalize(recordAuthor).equals(authorKey)) {
+                    matches.add(new KeyedOffset(current.keyAt(offset), offset));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparing(entry -> entry.key));
+        return readBooks(current, matches);
+    }
+
+    @Override
+    public List<Book> findByYearBetween(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            return List.of();
+        }
+
+        List<KeyedOffset> matches = new ArrayList<>();
+        Slab current;
+        lock.readLock().lock();
+        try {
+            current = slab;
+            // The year sits at a fixed position, so only matching records are decoded
+            forEachLive(offset -> {
+                int year = current.chunkFor(offset).getInt(position(offset) + 5);
+                if (year >= fromYear && year <= toYear) {
+                    matches.add(new KeyedOffset(current.keyAt(offset), offset, year));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.<KeyedOffset>comparingInt(entry -> entry.year).thenComparing(entry -> entry.key));
+        return readBooks(current, matches);
+    }
+
+    @Override
+    public Optional<Book> findByTitle(String title) {
+        if (title == null || title.trim().isEmpty()) {
+            return Optional.empty();
+        }
+
+        String key = TitleNormalizer.normalize(title);
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(key, hash(key));
+            return slot < 0 ? Optional.empty() : Optional.of(slab.readBook(slotOffset(slot)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Book save(Book book) {
+        if (book == null || book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book and title cannot be null or empty");
+        }
+
+        String key = TitleNormalizer.normalize(book.getTitle());
+        Book stored;
+        lock.writeLock().lock();
+        try {
+            compactIfWasteful();
+            ensureIndexRoom(1);
+            stored = put(key, book);
+            writeHeaders();
+            catalogVersion.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        completeMutation();
+        return stored;
+    }
+
+    @Override
+    public Optional<Book> saveIfAbsent(Book book) {
+        return saveIfVersion(book, 0);
+    }
+
+    @Override
+    public Optional<Book> replaceIfVersion(Book book, long expectedVersion) {
+        if (expectedVersion <= 0) {
+            throw new IllegalArgumentException("Expected version must be positive");
+        }
+        return saveIfVersion(book, expectedVersion);
+    }
+
+    // The version of a stored book is never 0, so 0 asks for an absent title
+    private Optional<Book> saveIfVersion(Book book, long expectedVersion) {
+        if (book == null || book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("Book and title cannot be null or empty");
+        }
+
+        String key = TitleNormalizer.normalize(book.getTitle());
+        Book stored;
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key, hash(key));
+            long currentVersion = slot < 0 ? 0 : slab.version(slotOffset(slot));
+            if (currentVersion != expectedVersion) {
+                return Optional.empty();
+            }
+            compactIfWasteful();
+            ensureIndexRoom(1);
+            stored = put(key, book);
+            writeHeaders();
+            catalogVersion.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        completeMutation();
+        return Optional.of(stored);
+    }
+
+    @Override
+    public List<Book> saveAll(Collection<Book> booksToSave) {
+        List<Book> batch = new ArrayList<>(booksToSave);
+        for (Book book : batch) {
+            if (book == null || book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+                throw new IllegalArgumentException("Book and title cannot be null or empty");
+            }
+        }
+
+        String[] keys = batch.parallelStream()
+                .map(book -> TitleNormalizer.normalize(book.getTitle()))
+                .toArray(String[]::new);
+        // In key order, the order the stored books are returned in
+        Map<String, Book> latestByKey = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            latestByKey.put(keys[i], batch.get(i));
+        }
+
+        List<Book> saved = new ArrayList<>(latestByKey.size());
+        lock.writeLock().lock();
+        try {
+            compactIfWasteful();
+            // Grow the index once for the whole batch instead of doubling along the way
+            ensureIndexRoom(latestByKey.size());
+            latestByKey.forEach((key, book) -> saved.add(put(key, book)));
+            writeHeaders();
+            catalogVersion.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        completeMutation();
+        return saved;
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteByTitle(String title) {
+        return delete(title, 0);
+    }
+
+    @Override
+    public boolean deleteIfVersion(String title, long expectedVersion) {
+        if (expectedVersion <= 0) {
+            throw new IllegalArgumentException("Expected version must be positive");
+        }
+        return delete(title, expectedVersion);
+    }
+
+    // An expected version of 0 deletes whatever version is stored
+    private boolean delete(String title, long expectedVersion) {
+        if (title == null || title.trim().isEmpty()) {
+            return false;
+        }
+
+        String key = TitleNormalizer.normalize(title);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key, hash(key));
+            // Checked before compaction, which changes every version
+            if (slot < 0 || (expectedVersion != 0 && slab.version(slotOffset(slot)) != expectedVersion)) {
+                return false;
+            }
+            compactIfWasteful();
+            // Compaction rebuilds the table, which moves the slot
+            slot = findSlot(key, hash(key));
+            long offset = slotOffset(slot);
+            markDead(offset);
+            index.putLong(slotPosition(slot), TOMBSTONE);
+            // An entry of the sorted offsets stays until the next merge; walks skip dead records
+            recentlyAdded.remove(key);
+            size--;
+            writeHeaders();
+            catalogVersion.incrementAndGet();
+            if (!listeners.isEmpty()) {
+                Book removed = slab.readBook(offset);
+                for (BookMutationListener listener : listeners) {
+                    listener.bookDeleted(removed);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        completeMutation();
+        return true;
+    }
+
+    @Override
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    @Override
+    public void addMutationListener(BookMutationListener listener) {
+        listeners.add(listener);
+    }
+
+    // The store is its own persistence, and sample data is loaded while it is created
+    @Override
+    public CompletionStage<Void> whenLoaded() {
+        return CompletableFuture.completedStage(null);
+    }
+
+    /**
+     * Writes the mapped pages to disk and closes the files.
+     */
+    @Override
+    public void destroy() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (MappedByteBuffer chunk : slab.chunks) {
+                chunk.force();
+            }
+            index.force();
+            slabChannel.close();
+            indexChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void completeMutation() {
+        for (BookMutationListener listener : listeners) {
+            listener.mutationCompleted();
+        }
+    }
+
+    // Caller holds the write lock and has made room in the index
+    private Book put(String key, Book book) {
+        int hash = hash(key);
+        long offset = append(book);
+        // Records are never overwritten, so the offset identifies this version of the book
+        Book stored = new Book(book.getTitle(), book.getAuthor(), book.getYear(), slab.version(offset));
+        int slot = findSlot(key, hash);
+        Book previous = null;
+        if (slot >= 0) {
+            long previousOffset = slotOffset(slot);
+            if (!listeners.isEmpty()) {
+                previous = slab.readBook(previousOffset);
+            }
+            markDead(previousOffset);
+            index.putLong(slotPosition(slot), offset);
+            if (recentlyAdded.replace(key, offset) == null) {
+                sorted.set(lowerBound(key), offset);
+            }
+        } else {
+            insertSlot(index, capacity, hash, offset);
+            size++;
+            used++;
+            addToOrder(key, offset);
+        }
+        for (BookMutationListener listener : listeners) {
+            listener.bookSaved(previous, stored);
+        }
+        return stored;
+    }
+
+    private long append(Book book) {
+        byte[] title = book.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[] author = book.getAuthor() == null ? null : book.getAuthor().getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER_BYTES + 4 + title.length + 4 + (author == null ? 0 : author.length);
+        if (length > CHUNK_BYTES - SLAB_HEADER_BYTES) {
+            throw new IllegalArgumentException("Book is too large to store");
+        }
+
+        slabEnd = place(slabEnd, length);
+        int chunkIndex = (int) (slabEnd >>> CHUNK_SHIFT);
+        if (chunkIndex >= slab.chunks.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(slab.chunks, chunkIndex + 1);
+            grown[chunkIndex] = mapChunk(chunkIndex);
+            slab = new Slab(grown, slab.generation);
+        }
+
+        long offset = slabEnd;
+        MappedByteBuffer chunk = slab.chunks[chunkIndex];
+        int position = position(offset);
+        chunk.put(position + 4, (byte) 1);
+        chunk.putInt(position + 5, book.getYear());
+        chunk.putInt(position + RECORD_HEADER_BYTES, title.length);
+        chunk.put(position + RECORD_HEADER_BYTES + 4, title);
+        int authorAt = position + RECORD_HEADER_BYTES + 4 + title.length;
+        if (author == null) {
+            chunk.putInt(authorAt, -1);
+        } else {
+            chunk.putInt(authorAt, author.length);
+            chunk.put(authorAt + 4, author);
+        }
+        // Length last: a scan only sees the record once it is complete
+        chunk.putInt(position, length);
+        slabEnd += length;
+        return offset;
+    }
+
+    // A record that does not fit the rest of the chunk starts the next one;
+    // the zero length left behind tells scans to skip ahead
+    private static long place(long end, int length) {
+        return (end & CHUNK_MASK) + length > CHUNK_BYTES ? (end | CHUNK_MASK) + 1 : end;
+    }
+
+    private void markDead(long offset) {
+        MappedByteBuffer chunk = slab.chunkFor(offset);
+        chunk.put(position(offset) + 4, (byte) 0);
+        deadBytes += chunk.getInt(position(offset));
+    }
+
+    private void writeHeaders() {
+        slab.chunks[0].putLong(8, slabEnd);
+        index.putInt(12, size);
+        index.putInt(16, used);
+        index.putLong(20, deadBytes);
+    }
+
+    // Caller holds a lock
+    private void forEachLive(LongConsumer action) {
+        MappedByteBuffer[] mapped = slab.chunks;
+        for (int chunkIndex = 0; chunkIndex < mapped.length; chunkIndex++) {
+            MappedByteBuffer chunk = mapped[chunkIndex];
+            long base = (long) chunkIndex << CHUNK_SHIFT;
+            int position = chunkIndex == 0 ? SLAB_HEADER_BYTES : 0;
+            while (position + RECORD_HEADER_BYTES <= CHUNK_BYTES && base + position < slabEnd) {
+                int length = chunk.getInt(position);
+                if (length == 0) {
+                    break;
+                }
+                if (chunk.get(position + 4) != 0) {
+                    action.accept(base + position);
+                }
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * Walks the live records in key order from a key on, reading the records after the
+     * lock is released from the slab seen under it, which compaction leaves intact.
+     *
+     * @param fromKey   The key to start at, or null for the first one
+     * @param inclusive Whether a record with fromKey itself is included
+     * @param limit     The maximum number of records
+     * @param within    Ends the walk at the first key it rejects
+     * @param reader    Reads what is returned for a record
+     */
+    private <T> List<T> inKeyOrder(String fromKey, boolean inclusive, int limit, Predicate<String> within,
+            BiFunction<Slab, Long, T> reader) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        long[] offsets = new long[Math.min(limit, 256)];
+        int count = 0;
+        Slab current;
+        lock.readLock().lock();
+        try {
+            current = slab;
+            OrderCursor cursor = new OrderCursor(fromKey, inclusive);
+            while (count < limit && cursor.next() && within.test(cursor.key)) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, Math.min(limit, offsets.length * 2));
+                }
+                offsets[count++] = cursor.offset;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(reader.apply(current, offsets[i]));
+        }
+        return result;
+    }
+
+    // Order
+
+    // Caller holds a lock; the first position whose key is not below key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (slab.keyAt(sorted.get(middle)).compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Caller holds the write lock; the title is new to the index
+    private void addToOrder(String key, long offset) {
+        int position = lowerBound(key);
+        if (position < sorted.size() && slab.keyAt(sorted.get(position)).equals(key)) {
+            // The entry of a deleted book of this title, still there until the next merge
+            sorted.set(position, offset);
+            return;
+        }
+        recentlyAdded.put(key, offset);
+        if (recentlyAdded.size() > Math.max(MIN_ADDED_BEFORE_MERGE, sorted.size() / 16)) {
+            mergeRecentlyAdded();
+        }
+    }
+
+    // Caller holds the write lock; also drops the entries of deleted books
+    private void mergeRecentlyAdded() {
+        SortedOffsets merged = new SortedOffsets(size);
+        OrderCursor cursor = new OrderCursor(null, false);
+        while (cursor.next()) {
+            merged.add(cursor.offset);
+        }
+        sorted = merged;
+        recentlyAdded.clear();
+    }
+
+    // Caller holds the write lock or is opening the store. A compacted store is already in
+    // order up to its later writes, so the check usually saves the sort.
+    private void sortOffsets() {
+        SortedOffsets offsets = new SortedOffsets(size);
+        forEachLive(offsets::add);
+        recentlyAdded.clear();
+        Comparator<Long> byKey = Comparator.comparing(slab::keyAt);
+        for (int i = 1; i < offsets.size(); i++) {
+            if (byKey.compare(offsets.get(i - 1), offsets.get(i)) > 0) {
+                offsets.sort(byKey);
+                break;
+            }
+        }
+        sorted = offsets;
+    }
+
+    private static List<Book> readBooks(Slab current, List<KeyedOffset> entries) {
+        List<Book> result = new ArrayList<>(entries.size());
+        for (KeyedOffset entry : entries) {
+            result.add(current.readBook(entry.offset));
+        }
+        return result;
+    }
+
+    private static int position(long offset) {
+        return (int) (offset & CHUNK_MASK);
+    }
+
+    // Index
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(String key, int hash) {
+        int mask = capacity - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            long offset = index.getLong(slotPosition(slot));
+            if (offset == EMPTY) {
+                return -1;
+            }
+            // Compare titles only when the stored hash matches
+            if (offset != TOMBSTONE && index.getInt(slotPosition(slot) + 8) == hash && slab.keyAt(offset).equals(key)) {
+                return slot;
+            }
+        }
+    }
+
+    private long slotOffset(int slot) {
+        return index.getLong(slotPosition(slot));
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static void insertSlot(MappedByteBuffer target, int targetCapacity, int hash, long offset) {
+        int mask = targetCapacity - 1;
+        int slot = hash & mask;
+        while (true) {
+            long existing = target.getLong(slotPosition(slot));
+            if (existing == EMPTY || existing == TOMBSTONE) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        target.putLong(slotPosition(slot), offset);
+        target.putInt(slotPosition(slot) + 8, hash);
+    }
+
+    // Keeps the load, tombstones included, under 70% so probes stay short
+    private void ensureIndexRoom(int additional) {
+        if ((long) used + additional <= capacity * 7L / 10) {
+            return;
+        }
+        int newCapacity = capacity;
+        while ((long) size + additional > newCapacity / 2) {
+            newCapacity *= 2;
+        }
+        try {
+            rebuildIndex(newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow the book index in " + directory, e);
+        }
+    }
+
+    // Builds the new table in a temporary file and swaps it in, dropping tombstones
+    private void rebuildIndex(int newCapacity) throws IOException {
+        Path indexFile = directory.resolve("books.idx");
+        Path temporary = directory.resolve("books.idx.tmp");
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer rebuilt = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                INDEX_HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+        for (int slot = 0; slot < capacity; slot++) {
+            long offset = slotOffset(slot);
+            if (offset != EMPTY && offset != TOMBSTONE) {
+                insertSlot(rebuilt, newCapacity, index.getInt(slotPosition(slot) + 8), offset);
+            }
+        }
+        writeIndexHeader(rebuilt, newCapacity, size, deadBytes, slab.generation);
+        rebuilt.force();
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        indexChannel.close();
+        indexChannel = channel;
+        index = rebuilt;
+        capacity = newCapacity;
+        used = size;
+    }
+
+    private static void writeIndexHeader(MappedByteBuffer target, int targetCapacity, int entries,
+            long dead, int generation) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putInt(8, targetCapacity);
+        target.putInt(12, entries);
+        target.putInt(16, entries);
+        target.putLong(20, dead);
+        target.putInt(28, generation);
+    }
+
+    private static void writeSlabHeader(MappedByteBuffer first, long end) {
+        first.putInt(0, MAGIC);
+        first.putInt(4, VERSION);
+        first.putLong(8, end);
+    }
+
+    // Compaction
+
+    // Compacts once dead records pass the threshold and outweigh the live ones, so the
+    // copying stays proportional to the writes that made the garbage
+    private void compactIfWasteful() {
+        long liveBytes = slabEnd - SLAB_HEADER_BYTES - deadBytes;
+        if (deadBytes < compactionThreshold || deadBytes <= liveBytes) {
+            return;
+        }
+        long reclaimed = deadBytes;
+        try {
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact the book store in " + directory, e);
+        }
+        log.info("Compacted the book store in {}, reclaiming {} bytes", directory, reclaimed);
+        for (BookMutationListener listener : listeners) {
+            listener.versionsChanged();
+        }
+    }
+
+    // Copies the live records into a new slab and index and swaps them in. The index is
+    // renamed to books.idx.compacted once both are on disk, which commits the compaction.
+    private void compact() throws IOException {
+        Path slabTemporary = directory.resolve("books.dat.tmp");
+        Path indexTemporary = directory.resolve("books.idx.tmp");
+        Path compactedIndex = directory.resolve("books.idx.compacted");
+        FileChannel newSlabChannel = FileChannel.open(slabTemporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel newIndexChannel = FileChannel.open(indexTemporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean swapped = false;
+        try {
+            MappedByteBuffer newIndex = newIndexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    INDEX_HEADER_BYTES + (long) capacity * SLOT_BYTES);
+            MappedByteBuffer[] mapped = { mapChunk(newSlabChannel, 0) };
+            long end = SLAB_HEADER_BYTES;
+            // In key order, so the new slab needs no sorting and its offsets are the new order
+            SortedOffsets newOrder = new SortedOffsets(size);
+            OrderCursor cursor = new OrderCursor(null, false);
+            while (cursor.next()) {
+                long offset = cursor.offset;
+                MappedByteBuffer from = slab.chunkFor(offset);
+                byte[] record = new byte[from.getInt(position(offset))];
+                from.get(position(offset), record);
+                end = place(end, record.length);
+                int chunkIndex = (int) (end >>> CHUNK_SHIFT);
+                if (chunkIndex >= mapped.length) {
+                    mapped = Arrays.copyOf(mapped, chunkIndex + 1);
+                    mapped[chunkIndex] = mapChunk(newSlabChannel, chunkIndex);
+                }
+                mapped[chunkIndex].put(position(end), record);
+                insertSlot(newIndex, capacity, hash(cursor.key), end);
+                newOrder.add(end);
+                end += record.length;
+            }
+            int generation = slab.generation + 1;
+            writeSlabHeader(mapped[0], end);
+            writeIndexHeader(newIndex, capacity, size, 0, generation);
+            for (MappedByteBuffer chunk : mapped) {
+                chunk.force();
+            }
+            newIndex.force();
+
+            Files.move(indexTemporary, compactedIndex, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(slabTemporary, directory.resolve("books.dat"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(compactedIndex, directory.resolve("books.idx"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            swapped = true;
+
+            // The old mappings stay valid for readers still holding the old slab
+            slabChannel.close();
+            indexChannel.close();
+            slabChannel = newSlabChannel;
+            indexChannel = newIndexChannel;
+            slab = new Slab(mapped, generation);
+            index = newIndex;
+            slabEnd = end;
+            used = size;
+            deadBytes = 0;
+            sorted = newOrder;
+            recentlyAdded.clear();
+        } finally {
+            if (!swapped) {
+                newSlabChannel.close();
+                newIndexChannel.close();
+            }
+        }
+    }
+
+    // Finishes a compaction that was committed before a crash, or discards one that was not
+    private void recoverCompaction(Path slabFile, Path indexFile) throws IOException {
+        Path slabTemporary = directory.resolve("books.dat.tmp");
+        Path compactedIndex = directory.resolve("books.idx.compacted");
+        if (Files.exists(compactedIndex)) {
+            if (Files.exists(slabTemporary)) {
+                Files.move(slabTemporary, slabFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(compactedIndex, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.deleteIfExists(slabTemporary);
+        }
+        Files.deleteIfExists(directory.resolve("books.idx.tmp"));
+    }
+
+    // Opening
+
+    private void openSlab(boolean created, int generation) throws IOException {
+        int chunkCount = (int) Math.max(1, (slabChannel.size() + CHUNK_BYTES - 1) >>> CHUNK_SHIFT);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            mapped[i] = mapChunk(slabChannel, i);
+        }
+        slab = new Slab(mapped, generation);
+        if (created) {
+            slabEnd = SLAB_HEADER_BYTES;
+            writeSlabHeader(mapped[0], slabEnd);
+        } else {
+            checkHeader(mapped[0], "books.dat");
+            slabEnd = mapped[0].getLong(8);
+        }
+    }
+
+    private void openIndex(Path indexFile, boolean created) throws IOException {
+        if (!created && !Files.exists(indexFile)) {
+            throw new IOException("Missing index file " + indexFile);
+        }
+        indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (created) {
+            capacity = INITIAL_CAPACITY;
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    INDEX_HEADER_BYTES + (long) capacity * SLOT_BYTES);
+            writeIndexHeader(index, capacity, 0, 0, 0);
+        } else {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+            checkHeader(index, "books.idx");
+            capacity = index.getInt(8);
+            size = index.getInt(12);
+            used = index.getInt(16);
+            deadBytes = index.getLong(20);
+        }
+    }
+
+    private void checkHeader(MappedByteBuffer buffer, String file) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(directory.resolve(file) + " is not a book store of version " + VERSION);
+        }
+    }
+
+    private MappedByteBuffer mapChunk(int chunkIndex) {
+        try {
+            return mapChunk(slabChannel, chunkIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow the book store in " + directory, e);
+        }
+    }
+
+    private static MappedByteBuffer mapChunk(FileChannel channel, int chunkIndex) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, (long) chunkIndex << CHUNK_SHIFT, CHUNK_BYTES);
+    }
+
+    /**
+     * The mapped chunks of one slab file and its compaction generation. Records never move
+     * within a slab, so a reader may keep reading the one it saw under the lock after
+     * releasing it; compaction writes a new slab instead of changing this one.
+     */
+    private static final class Slab {
+        private final MappedByteBuffer[] chunks;
+        private final int generation;
+
+        Slab(MappedByteBuffer[] chunks, int generation) {
+            this.chunks = chunks;
+            this.generation = generation;
+        }
+
+        long version(long offset) {
+            return (long) generation << OFFSET_BITS | offset;
+        }
+
+        Book readBook(long offset) {
+            int year = chunkFor(offset).getInt(position(offset) + 5);
+            return new Book(readString(offset + RECORD_HEADER_BYTES), readString(authorOffset(offset)), year,
+                    version(offset));
+        }
+
+        boolean isLive(long offset) {
+            return chunkFor(offset).get(position(offset) + 4) != 0;
+        }
+
+        String keyAt(long offset) {
+            return TitleNormalizer.normalize(readString(offset + RECORD_HEADER_BYTES));
+        }
+
+        long authorOffset(long offset) {
+            int titleLength = chunkFor(offset).getInt(position(offset) + RECORD_HEADER_BYTES);
+            return offset + RECORD_HEADER_BYTES + 4 + titleLength;
+        }
+
+        String readString(long offset) {
+            MappedByteBuffer chunk = chunkFor(offset);
+            int position = position(offset);
+            int length = chunk.getInt(position);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            chunk.get(position + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        MappedByteBuffer chunkFor(long offset) {
+            return chunks[(int) (offset >>> CHUNK_SHIFT)];
+        }
+    }
+
+    /**
+     * Walks the live records in key order, merging the sorted offsets with the titles added
+     * since they were sorted. Caller holds a lock for as long as it uses the cursor.
+     */
+    private final class OrderCursor {
+        private int position;
+        private final Iterator<Map.Entry<String, Long>> added;
+        private Map.Entry<String, Long> nextAdded;
+        private String sortedKey;
+        private long sortedOffset;
+
+        // The record the cursor is on after next returned true
+        private String key;
+        private long offset;
+
+        OrderCursor(String fromKey, boolean inclusive) {
+            if (fromKey == null) {
+                added = recentlyAdded.entrySet().iterator();
+            } else {
+                position = lowerBound(fromKey);
+                added = recentlyAdded.tailMap(fromKey, inclusive).entrySet().iterator();
+            }
+            nextAdded = added.hasNext() ? added.next() : null;
+            if (fromKey != null && !inclusive) {
+                skipSortedEqualTo(fromKey);
+            }
+        }
+
+        private void skipSortedEqualTo(String fromKey) {
+            if (position < sorted.size() && slab.keyAt(sorted.get(position)).equals(fromKey)) {
+                position++;
+            }
+        }
+
+        boolean next() {
+            while (sortedKey == null && position < sorted.size()) {
+                long candidate = sorted.get(position++);
+                if (slab.isLive(candidate)) {
+                    sortedKey = slab.keyAt(candidate);
+                    sortedOffset = candidate;
+                }
+            }
+            if (sortedKey == null && nextAdded == null) {
+                return false;
+            }
+            // A title is live in one of the two at most, so keys never tie
+            if (nextAdded == null || (sortedKey != null && sortedKey.compareTo(nextAdded.getKey()) < 0)) {
+                key = sortedKey;
+                offset = sortedOffset;
+                sortedKey = null;
+            } else {
+                key = nextAdded.getKey();
+                offset = nextAdded.getValue();
+                nextAdded = added.hasNext() ? added.next() : null;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Record offsets in a direct buffer, outside the heap, eight bytes each.
+     */
+    private static final class SortedOffsets {
+        private ByteBuffer buffer;
+        private int size;
+
+        SortedOffsets(int capacity) {
+            buffer = ByteBuffer.allocateDirect(Math.max(capacity, 16) * Long.BYTES);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(int position) {
+            return buffer.getLong(position * Long.BYTES);
+        }
+
+        void set(int position, long offset) {
+            buffer.putLong(position * Long.BYTES, offset);
+        }
+
+        void add(long offset) {
+            if ((size + 1) * Long.BYTES > buffer.capacity()) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                grown.put(0, buffer, 0, size * Long.BYTES);
+                buffer = grown;
+            }
+            set(size++, offset);
+        }
+
+        // Bottom-up merge sort through a second buffer, so the offsets never go on the heap
+        void sort(Comparator<Long> order) {
+            ByteBuffer from = buffer;
+            ByteBuffer to = ByteBuffer.allocateDirect(buffer.capacity());
+            for (int width = 1; width < size; width *= 2) {
+                for (int low = 0; low < size; low += 2 * width) {
+                    int middle = Math.min(low + width, size);
+                    int high = Math.min(low + 2 * width, size);
+                    int left = low;
+                    int right = middle;
+                    for (int target = low; target < high; target++) {
+                        if (left < middle && (right >= high
+                                || order.compare(from.getLong(left * Long.BYTES), from.getLong(right * Long.BYTES)) <= 0)) {
+                            to.putLong(target * Long.BYTES, from.getLong(left++ * Long.BYTES));
+                        } else {
+                            to.putLong(target * Long.BYTES, from.getLong(right++ * Long.BYTES));
+                        }
+                    }
+                }
+                ByteBuffer swap = from;
+                from = to;
+                to = swap;
+            }
+            buffer = from;
+        }
+    }
+
+    /**
+     * A record offset with its sort key; used only transiently while answering a query.
+     */
+    private static final class KeyedOffset {
+        private final String key;
+        private final long offset;
+        private final int year;
+
+        KeyedOffset(String key, long offset) {
+            this(key, offset, 0);
+        }
+
+        KeyedOffset(String key, long offset, int year) {
+            this.key = key;
+            this.offset = offset;
+            this.year = year;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.booklibrary.repository;
+
+import java.util.function.Supplier;
+
+import com.example.booklibrary.model.Book;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking view of a BookRepository for the reactive web stack.
+ *
+ * Reads of the in-memory repository only touch heap structures, so they run on the
+ * calling event-loop thread; the off-heap store is read on a separate scheduler because
+ * touching a page that is not resident waits for the disk. findAll is a lazy walk of
+ * streamAll driven by downstream demand: a slow client stops the walk instead of
+ * letting the catalog pile up in memory.
+ */
+public class ReactiveBookRepository {
+
+    private final BookRepository delegate;
+    private final Scheduler readScheduler;
+
+    /**
+     * @param delegate      The repository to adapt
+     * @param readScheduler Scheduler for reads that may block, or null to read on the caller's thread
+     */
+    public ReactiveBookRepository(BookRepository delegate, Scheduler readScheduler) {
+        this.delegate = delegate;
+        this.readScheduler = readScheduler;
+    }
+
+    /**
+     * @return All books sorted by title, read as they are requested
+     */
+    public Flux<Book> findAll() {
+        // fromStream closes the stream on completion and on cancellation
+        Flux<Book> books = Flux.fromStream(delegate::streamAll);
+        return readScheduler == null ? books : books.subscribeOn(readScheduler);
+    }
+
+    /**
+     * @param title The title to look up (case-insensitive)
+     * @return The book, or empty if there is none
+     */
+    public Mono<Book> findByTitle(String title) {
+        Mono<Book> book = Mono.fromSupplier(() -> delegate.findByTitle(title).orElse(null));
+        return readScheduler == null ? book : book.subscribeOn(readScheduler);
+    }
+
+    /**
+     * Runs any other query against the repository, such as one made through BookService,
+     * on the same thread findByTitle would use.
+     *
+     * @param query The query; it must not return null
+     * @return The query's result
+     */
+    public <T> Mono<T> read(Supplier<T> query) {
+        Mono<T> result = Mono.fromSupplier(query);
+        return readScheduler == null ? result : result.subscribeOn(readScheduler);
+    }
+
+    /**
+     * @return The current catalog version, see BookRepository.getCatalogVersion
+     */
+    public long getCatalogVersion() {
+        return delegate.getCatalogVersion();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.booklibrary.repository;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Turns book titles into the keys used by the repository indexes.
+ * Every operation that addresses a book by title goes through this class,
+ * so save, lookup and delete always agree on the same key.
+ *
+ * Keys are trimmed, NFC-composed and fully case-folded independently of the
+ * default locale: upper-casing with Locale.ROOT expands multi-character
+ * mappings before lower-casing, so "ß" folds to "ss" and "straße" matches
+ * "STRASSE", and both the Turkish dotless "ı" and dotted "İ" fold to "i".
+ * This is looser than String.equalsIgnoreCase, which compares char by char
+ * and keeps "straße" and "STRASSE" apart.
+ */
+public final class TitleNormalizer {
+
+    private TitleNormalizer() {
+    }
+
+    /**
+     * Normalizes a title into its lookup key.
+     *
+     * @param title The title to normalize (must not be null)
+     * @return The case-folded key
+     */
+    public static String normalize(String title) {
+        String trimmed = title.trim();
+        if (isAscii(trimmed)) {
+            return foldAscii(trimmed);
+        }
+
+        // Full upper-casing expands multi-char mappings (ß -> SS, ligatures),
+        // per code point lower-casing then collapses İ/ı/I to a single 'i'.
+        String upper = Normalizer.normalize(trimmed, Normalizer.Form.NFC).toUpperCase(Locale.ROOT);
+        StringBuilder folded = new StringBuilder(upper.length());
+        upper.codePoints().map(Character::toLowerCase).forEach(folded::appendCodePoint);
+        return Normalizer.normalize(folded, Normalizer.Form.NFC);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Most titles are plain ASCII; skip Normalizer and reuse the instance when already folded
+    private static String foldAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = value.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] = (char) (chars[j] + ('a' - 'A'));
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return value;
+    }
+}
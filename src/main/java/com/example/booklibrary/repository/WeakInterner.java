@@ -0,0 +1,58 @@
+package com.example.booklibrary.repository;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Canonicalizes equal strings to one shared instance, like String.intern, but without
+ * keeping them alive: once no book refers to a string any more, the collector removes
+ * it from the pool. The pool is split into independently locked segments so concurrent
+ * writers rarely wait for each other.
+ */
+final class WeakInterner {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    WeakInterner() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @param value The string to canonicalize, may be null
+     * @return The pooled instance equal to value, or value itself if it was not pooled yet
+     */
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int h = value.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)].intern(value);
+    }
+
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        // The value must be weak too, or it would keep its own key reachable
+        private final Map<String, WeakReference<String>> pool = new WeakHashMap<>();
+
+        String intern(String value) {
+            lock.lock();
+            try {
+                WeakReference<String> reference = pool.get(value);
+                String pooled = reference == null ? null : reference.get();
+                if (pooled != null) {
+                    return pooled;
+                }
+                pool.put(value, new WeakReference<>(value));
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.booklibrary.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookMutationListener;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.TitleNormalizer;
+
+/**
+ * In-process full-text index over book titles and authors.
+ * Kept up to date incrementally as a BookMutationListener of the repository.
+ *
+ * The callbacks run under the repository's title lock, so they only tokenize the book
+ * and queue the change; the writer applies the queue under the index lock once its
+ * write has completed and the title lock is released. Writers of different titles thus
+ * tokenize in parallel and only take turns for the short update of the postings, and a
+ * search started after a write has returned finds it.
+ *
+ * Books stored before the index subscribed are added once the repository has finished
+ * loading, so a background load is indexed as it goes and scanned only for what it held
+ * before. The scan never replaces or revives what the callbacks indexed or deleted
+ * meanwhile, since those are newer than any copy the scan can read.
+ *
+ * Every book is a document with a sequential int id. Each term maps to a compressed
+ * PostingList and results are ranked with BM25. The last query term also matches as a
+ * prefix ("hob" finds "hobbit"), and a term missing from the dictionary is matched
+ * against terms within one or two edits ("hobit" finds "hobbit").
+ *
+ * The index holds no Book: a document is only its title key, and results are read from
+ * the repository by title. With the offheap profile the books therefore stay off the heap;
+ * what the index keeps there is its dictionary and postings, about the size of the
+ * tokens, plus a title key and a few ints per book. A replaced or deleted document stays
+ * in the postings, counted in document frequencies as Lucene does, until deleted documents
+ * outnumber live ones and the index compacts.
+ */
+@Component
+public class BookSearchIndex implements BookMutationListener {
+
+    /** Largest number of results a single search may return */
+    public static final int MAX_RESULTS = 100;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final float FUZZY_WEIGHT = 0.5f;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int MIN_DELETED_BEFORE_COMPACTION = 1024;
+
+    // Writers are short and rare compared to searches
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BookRepository repository;
+    private final NavigableMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<String, Integer> docIdsByKey = new HashMap<>();
+    private final BitSet deletedDocs = new BitSet();
+    // Title key of each document, the same instance as in docIdsByKey; null once deleted
+    private String[] docKeys = new String[1024];
+    private int[] docLengths = new int[1024];
+    private int nextDocId;
+    private int liveDocs;
+    private long totalLength;
+    // Titles deleted through the callbacks until the initial scan is done, then null
+    private Set<String> deletedBeforeScan = new HashSet<>();
+    // Changes from the callbacks not applied yet, in the order the repository made them
+    private final Queue<PendingChange> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates an index over the books already in the repository and follows its changes.
+     *
+     * @param repository The repository to index, and to read results from
+     */
+    @Autowired
+    public BookSearchIndex(BookRepository repository) {
+        this.repository = repository;
+        repository.addMutationListener(this);
+        // A failed load still leaves the books it got to, which are indexed all the same
+        repository.whenLoaded().whenComplete((ignored, error) -> indexExisting());
+    }
+
+    @Override
+    public void bookSaved(Book previous, Book saved) {
+        List<String> tokens = tokensOf(saved);
+        pending.add(new PendingChange(TitleNormalizer.normalize(saved.getTitle()), tokens.size(), frequencies(tokens)));
+    }
+
+    @Override
+    public void bookDeleted(Book removed) {
+        pending.add(new PendingChange(TitleNormalizer.normalize(removed.getTitle()), 0, null));
+    }
+
+    @Override
+    public void mutationCompleted() {
+        applyPending();
+    }
+
+    /**
+     * Indexes a book, replacing the document previously indexed under the same title.
+     *
+     * @param book The book to index
+     */
+    public void add(Book book) {
+        String key = TitleNormalizer.normalize(book.getTitle());
+        List<String> tokens = tokensOf(book);
+        Map<String, Integer> frequencies = frequencies(tokens);
+        lock.writeLock().lock();
+        try {
+            applyPendingLocked();
+            addDocument(key, tokens.size(), frequencies);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the book indexed under a title.
+     *
+     * @param title The title of the book to remove
+     */
+    public void remove(String title) {
+        String key = TitleNormalizer.normalize(title);
+        lock.writeLock().lock();
+        try {
+            applyPendingLocked();
+            removeDocumentOf(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyPendingLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock; whoever takes it first applies the changes of everyone
+    private void applyPendingLocked() {
+        PendingChange change;
+        while ((change = pending.poll()) != null) {
+            if (change.frequencies == null) {
+                removeDocumentOf(change.key);
+            } else {
+                addDocument(change.key, change.length, change.frequencies);
+            }
+        }
+    }
+
+    // Runs once the repository is loaded, on the thread that completed the load
+    private void indexExisting() {
+        try (Stream<Book> books = repository.streamAll()) {
+            books.forEach(this::addIfUnseen);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                deletedBeforeScan = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void addIfUnseen(Book book) {
+        String key = TitleNormalizer.normalize(book.getTitle());
+        lock.readLock().lock();
+        try {
+            if (docIdsByKey.containsKey(key) || deletedBeforeScan.contains(key)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<String> tokens = tokensOf(book);
+        Map<String, Integer> frequencies = frequencies(tokens);
+        lock.writeLock().lock();
+        try {
+            // Checked again: a callback may have got to the title since
+            applyPendingLocked();
+            if (!docIdsByKey.containsKey(key) && !deletedBeforeScan.contains(key)) {
+                addDocument(key, tokens.size(), frequencies);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches titles and authors.
+     *
+     * @param query Free text; the last term also matches as a prefix
+     * @param limit The maximum number of results
+     * @return Matching books, best match first; a book deleted while the search ran is left out
+     */
+    public List<Book> search(String query, int limit) {
+        List<String> queryTerms = Tokenizer.tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Changes of writes still in progress are visible in the repository already
+        applyPending();
+
+        List<String> keys;
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return List.of();
+            }
+            ScoreAccumulator scores = new ScoreAccumulator();
+            float averageLength = Math.max(1f, (float) totalLength / liveDocs);
+            for (int i = 0; i < queryTerms.size(); i++) {
+                scoreTerm(queryTerms.get(i), i == queryTerms.size() - 1, scores, averageLength);
+            }
+            keys = topResults(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Outside the lock, so that writers applying their changes do not wait for the reads
+        List<Book> results = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Optional<Book> book = repository.findByTitle(key);
+            book.ifPresent(results::add);
+        }
+        return results;
+    }
+
+    /**
+     * @return The number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of distinct terms in the dictionary
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scoreTerm(String term, boolean isLast, ScoreAccumulator scores, float averageLength) {
+        PostingList exact = terms.get(term);
+        if (exact != null) {
+            accumulate(exact, 1f, scores, averageLength);
+        }
+
+        int expansions = 0;
+        if (isLast) {
+            for (PostingList postings : terms.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                if (expansions++ >= MAX_EXPANSIONS) {
+                    break;
+                }
+                accumulate(postings, PREFIX_WEIGHT, scores, averageLength);
+            }
+        }
+
+        if (exact == null && expansions == 0 && term.length() >= MIN_FUZZY_LENGTH) {
+            // Candidates share the first character, which keeps the scan to a slice of the dictionary
+            int maxEdits = term.length() <= 5 ? 1 : 2;
+            String first = term.substring(0, Character.charCount(term.codePointAt(0)));
+            for (Map.Entry<String, PostingList> entry
+                    : terms.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+                String candidate = entry.getKey();
+                if (Math.abs(candidate.length() - term.length()) <= maxEdits
+                        && EditDistance.within(term, candidate, maxEdits)) {
+                    accumulate(entry.getValue(), FUZZY_WEIGHT, scores, averageLength);
+                    if (++expansions >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void accumulate(PostingList postings, float weight, ScoreAccumulator scores, float averageLength) {
+        // Both counts include the deleted documents not compacted away yet
+        int df = postings.docFrequency();
+        float idf = (float) Math.log(1 + (nextDocId - df + 0.5) / (df + 0.5));
+        PostingList.Reader reader = postings.reader();
+        while (reader.next()) {
+            int docId = reader.docId;
+            if (deletedDocs.get(docId)) {
+                continue;
+            }
+            float tf = reader.frequency;
+            float norm = K1 * (1 - B + B * docLengths[docId] / averageLength);
+            scores.add(docId, weight * idf * tf * (K1 + 1) / (tf + norm));
+        }
+    }
+
+    private List<String> topResults(ScoreAccumulator scores, int limit) {
+        // Min-heap of the best hits so far; ties go to the older document
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, MAX_RESULTS) + 1);
+        for (int slot = 0; slot < scores.capacity(); slot++) {
+            int docId = scores.docIdAt(slot);
+            if (docId < 0) {
+                continue;
+            }
+            Hit hit = new Hit(docId, scores.scoreAt(slot));
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (hit.compareTo(best.peek()) > 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+
+        List<String> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(docKeys[best.poll().docId]);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    // Caller holds the write lock
+    private void addDocument(String key, int length, Map<String, Integer> frequencies) {
+        removeDocument(key);
+        int docId = nextDocId++;
+        ensureDocCapacity(docId);
+        docKeys[docId] = key;
+        docLengths[docId] = length;
+        docIdsByKey.put(key, docId);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), term -> new PostingList()).add(docId, entry.getValue());
+        }
+        liveDocs++;
+        totalLength += length;
+        compactIfMostlyDeleted();
+    }
+
+    // Caller holds the write lock
+    private void removeDocumentOf(String key) {
+        removeDocument(key);
+        if (deletedBeforeScan != null) {
+            deletedBeforeScan.add(key);
+        }
+        compactIfMostlyDeleted();
+    }
+
+    // The postings of the document are only dropped by compact, since its tokens are not kept
+    private void removeDocument(String key) {
+        Integer docId = docIdsByKey.remove(key);
+        if (docId == null) {
+            return;
+        }
+        deletedDocs.set(docId);
+        docKeys[docId] = null;
+        liveDocs--;
+        totalLength -= docLengths[docId];
+    }
+
+    private void compactIfMostlyDeleted() {
+        if (nextDocId - liveDocs > Math.max(MIN_DELETED_BEFORE_COMPACTION, liveDocs)) {
+            compact();
+        }
+    }
+
+    // Renumbers live documents densely and drops the terms left without any
+    private void compact() {
+        int[] newIds = new int[nextDocId];
+        int next = 0;
+        for (int docId = 0; docId < nextDocId; docId++) {
+            if (deletedDocs.get(docId)) {
+                newIds[docId] = -1;
+            } else {
+                newIds[docId] = next;
+                docKeys[next] = docKeys[docId];
+                docLengths[next] = docLengths[docId];
+                next++;
+            }
+        }
+        Arrays.fill(docKeys, next, nextDocId, null);
+        terms.values().removeIf(postings -> {
+            postings.remap(newIds);
+            return postings.docFrequency() == 0;
+        });
+        docIdsByKey.replaceAll((key, docId) -> newIds[docId]);
+        deletedDocs.clear();
+        nextDocId = next;
+    }
+
+    private void ensureDocCapacity(int docId) {
+        if (docId >= docKeys.length) {
+            int capacity = Math.max(docKeys.length * 2, docId + 1);
+            docKeys = Arrays.copyOf(docKeys, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+        }
+    }
+
+    private static List<String> tokensOf(Book book) {
+        List<String> tokens = Tokenizer.tokenize(book.getTitle());
+        tokens.addAll(Tokenizer.tokenize(book.getAuthor()));
+        return tokens;
+    }
+
+    private static Map<String, Integer> frequencies(List<String> tokens) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    /**
+     * A save or delete received in a callback, tokenized but not yet in the postings.
+     * Deletes have no frequencies.
+     */
+    private static final class PendingChange {
+        private final String key;
+        private final int length;
+        private final Map<String, Integer> frequencies;
+
+        PendingChange(String key, int length, Map<String, Integer> frequencies) {
+            this.key = key;
+            this.length = length;
+            this.frequencies = frequencies;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+        private final int docId;
+        private final float score;
+
+        Hit(int docId, float score) {
+            this.docId = docId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Float.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(other.docId, docId);
+        }
+    }
+}
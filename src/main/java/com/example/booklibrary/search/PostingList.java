@@ -0,0 +1,129 @@
+package com.example.booklibrary.search;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of one term: the documents containing it and the term frequency in each.
+ * Entries are stored as (docId delta, frequency) pairs of variable-length integers in a
+ * single byte array, so a typical entry takes two bytes instead of two ints plus an object.
+ * Document ids must be added in increasing order, which holds because the index hands
+ * out ids sequentially. Deleted documents stay encoded until the index compacts.
+ */
+final class PostingList {
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int lastDocId = -1;
+    private int docFrequency;
+
+    /**
+     * Appends a document.
+     *
+     * @param docId     The document id, greater than every id added before
+     * @param frequency The number of occurrences of the term in the document
+     */
+    void add(int docId, int frequency) {
+        if (data.length - length < 10) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        writeVarInt(docId - lastDocId);
+        writeVarInt(frequency);
+        lastDocId = docId;
+        docFrequency++;
+    }
+
+    /**
+     * @return The number of encoded documents containing the term, deleted ones included
+     *         until the list is remapped
+     */
+    int docFrequency() {
+        return docFrequency;
+    }
+
+    /**
+     * @return The number of bytes used by the encoded entries
+     */
+    int sizeInBytes() {
+        return length;
+    }
+
+    /**
+     * Re-encodes the list, renumbering documents and dropping deleted ones.
+     *
+     * @param newIds New id for every old id, or -1 for deleted documents (must preserve order)
+     */
+    void remap(int[] newIds) {
+        Reader reader = reader();
+        byte[] old = data;
+        data = new byte[Math.max(8, length)];
+        length = 0;
+        lastDocId = -1;
+        docFrequency = 0;
+        while (reader.next(old)) {
+            int newId = newIds[reader.docId];
+            if (newId >= 0) {
+                add(newId, reader.frequency);
+            }
+        }
+        data = Arrays.copyOf(data, Math.max(8, length));
+    }
+
+    /**
+     * @return A reader positioned before the first entry
+     */
+    Reader reader() {
+        return new Reader(length);
+    }
+
+    /**
+     * Sequential decoder over the entries of a posting list.
+     */
+    final class Reader {
+        private final int end;
+        private int position;
+        int docId = -1;
+        int frequency;
+
+        private Reader(int end) {
+            this.end = end;
+        }
+
+        /**
+         * Advances to the next entry.
+         *
+         * @return false when all entries have been read
+         */
+        boolean next() {
+            return next(data);
+        }
+
+        private boolean next(byte[] source) {
+            if (position >= end) {
+                return false;
+            }
+            docId += readVarInt(source);
+            frequency = readVarInt(source);
+            return true;
+        }
+
+        private int readVarInt(byte[] source) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = source[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.booklibrary.search;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from document id to accumulated score.
+ * Avoids boxing an Integer and a Float for every posting a query touches.
+ */
+final class ScoreAccumulator {
+
+    private static final int EMPTY = -1;
+
+    private int[] docIds = new int[64];
+    private float[] scores = new float[64];
+    private int size;
+
+    ScoreAccumulator() {
+        Arrays.fill(docIds, EMPTY);
+    }
+
+    void add(int docId, float score) {
+        if (size * 2 >= docIds.length) {
+            grow();
+        }
+        int mask = docIds.length - 1;
+        int slot = mix(docId) & mask;
+        while (docIds[slot] != EMPTY && docIds[slot] != docId) {
+            slot = (slot + 1) & mask;
+        }
+        if (docIds[slot] == EMPTY) {
+            docIds[slot] = docId;
+            size++;
+        }
+        scores[slot] += score;
+    }
+
+    int capacity() {
+        return docIds.length;
+    }
+
+    /**
+     * @return The document id stored in a slot, or -1 if the slot is empty
+     */
+    int docIdAt(int slot) {
+        return docIds[slot];
+    }
+
+    float scoreAt(int slot) {
+        return scores[slot];
+    }
+
+    private void grow() {
+        int[] oldIds = docIds;
+        float[] oldScores = scores;
+        docIds = new int[oldIds.length * 2];
+        scores = new float[oldIds.length * 2];
+        Arrays.fill(docIds, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != EMPTY) {
+                add(oldIds[i], oldScores[i]);
+            }
+        }
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
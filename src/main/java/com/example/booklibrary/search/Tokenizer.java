@@ -0,0 +1,50 @@
+package com.example.booklibrary.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.booklibrary.repository.TitleNormalizer;
+
+/**
+ * Splits text into search terms.
+ * Text is case-folded with the same rules as title keys and split on every code point
+ * that is not a letter or digit, so "J.R.R. Tolkien" yields "j", "r", "r", "tolkien".
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Tokenizes text into folded terms, keeping duplicates and order.
+     *
+     * @param text The text to tokenize (null yields no terms)
+     * @return List of terms
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+
+        String folded = TitleNormalizer.normalize(text);
+        int start = -1;
+        int i = 0;
+        while (i < folded.length()) {
+            int codePoint = folded.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                terms.add(folded.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            terms.add(folded.substring(start));
+        }
+        return terms;
+    }
+}
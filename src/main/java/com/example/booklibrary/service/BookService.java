@@ -1,14 +1,48 @@
 package com.example.booklibrary.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.exception.BookAlreadyExistsException;
 import com.example.booklibrary.exception.BookNotFoundException;
+import com.example.booklibrary.exception.BookVersionMismatchException;
+import com.example.booklibrary.exception.CatalogLoadingException;
 import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.model.BookChanges;
+import com.example.booklibrary.model.BookPage;
+import com.example.booklibrary.model.SnapshotImportResult;
+import com.example.booklibrary.persistence.CatalogSnapshotReader;
+import com.example.booklibrary.persistence.CatalogSnapshotWriter;
+import com.example.booklibrary.persistence.SnapshotCompression;
 import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.ChangeLog;
+import com.example.booklibrary.repository.TitleNormalizer;
+import com.example.booklibrary.search.BookSearchIndex;
 
 /**
  * Service layer for book operations.
@@ -17,14 +51,54 @@ import com.example.booklibrary.repository.BookRepository;
 @Service
 public class BookService {
     
+    /** Largest page a client may request from getBooksPage */
+    public static final int MAX_PAGE_SIZE = 1000;
+    
+    /** Largest number of titles suggestTitles returns */
+    public static final int MAX_SUGGESTIONS = 50;
+    
+    /** Largest number of changes getChanges returns at once */
+    public static final int MAX_CHANGES = 10_000;
+    
+    /** Largest number of books accepted by addBooks */
+    public static final int MAX_BATCH_SIZE = 1_000_000;
+    
+    // Books validated and saved together when a batch arrives as a stream
+    private static final int BATCH_CHUNK_SIZE = 10_000;
+    
+    // Below this size forking the validation costs more than it saves
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 1024;
+    
     private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final ChangeLog changeLog;
+    private final BookEventPublisher eventPublisher;
+    private final Duration loadingWait;
+    private final Duration loadingRetryAfter;
+    
+    // One import at a time, so an import never deletes the books another is importing
+    private final Lock importLock = new ReentrantLock();
+    // Keys of the books other requests write while an import runs, null while none does
+    private volatile Set<String> writtenDuringImport;
     
     /**
      * Constructor injection for better testability and immutability
+     *
+     * @param loadingWait How long a lookup miss or a write waits for a catalog loading
+     *                    in the background before it is refused
+     * @param loadingRetryAfter When a refused client should try again
      */
     @Autowired
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookSearchIndex searchIndex, ChangeLog changeLog,
+            BookEventPublisher eventPublisher,
+            @Value("${library.data.loading-wait:100ms}") Duration loadingWait,
+            @Value("${library.data.loading-retry-after:5s}") Duration loadingRetryAfter) {
         this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.changeLog = changeLog;
+        this.eventPublisher = eventPublisher;
+        this.loadingWait = loadingWait;
+        this.loadingRetryAfter = loadingRetryAfter;
     }
     
     /**
@@ -36,26 +110,460 @@ public class BookService {
         return bookRepository.findAll();
     }
     
+    /**
+     * Streams all books sorted by title without building a list.
+     * The caller must close the stream.
+     *
+     * @return Stream of all books sorted alphabetically by title
+     */
+    public Stream<Book> streamAllBooks() {
+        return bookRepository.streamAll();
+    }
+    
+    /**
+     * Retrieves one page of books sorted by title.
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param limit The maximum number of books on the page
+     * @return The page of books and the cursor of the next page
+     * @throws IllegalArgumentException if the limit or cursor is invalid
+     */
+    public BookPage getBooksPage(String cursor, int limit) {
+        validatePageRequest(cursor, limit);
+        String afterTitle = cursor == null ? null : decodeCursor(cursor);
+        
+        // Ask for one extra book to know whether another page follows
+        List<Book> books = bookRepository.findPage(afterTitle, limit + 1);
+        if (books.size() <= limit) {
+            return new BookPage(books, null);
+        }
+        List<Book> page = books.subList(0, limit);
+        return new BookPage(page, encodeCursor(page.get(limit - 1).getTitle()));
+    }
+    
+    /**
+     * Finds all books by an author (case-insensitive), sorted by title.
+     *
+     * @param author The author to search for
+     * @return List of the author's books
+     * @throws IllegalArgumentException if the author is empty
+     */
+    public List<Book> getBooksByAuthor(String author) {
+        validateAuthor(author);
+        return bookRepository.findByAuthor(author);
+    }
+    
+    /**
+     * Finds all books published within a range of years, sorted by year and then title.
+     *
+     * @param fromYear The first year of the range (inclusive)
+     * @param toYear The last year of the range (inclusive)
+     * @return List of books published in the range
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public List<Book> getBooksByYearRange(int fromYear, int toYear) {
+        validateYearRange(fromYear, toYear);
+        return bookRepository.findByYearBetween(fromYear, toYear);
+    }
+    
+    /**
+     * Suggests titles starting with what the user typed so far.
+     *
+     * @param prefix The typed prefix (case-insensitive)
+     * @param limit The maximum number of titles
+     * @return Matching titles in alphabetical order
+     * @throws IllegalArgumentException if the prefix is empty or the limit is invalid
+     */
+    public List<String> suggestTitles(String prefix, int limit) {
+        validateSuggestRequest(prefix, limit);
+        return bookRepository.suggestTitles(prefix, limit);
+    }
+    
+    /**
+     * Searches titles and authors with prefix and typo tolerance.
+     *
+     * @param query The free-text query
+     * @param limit The maximum number of results
+     * @return Matching books, best match first
+     * @throws IllegalArgumentException if the query is empty or the limit is invalid
+     */
+    public List<Book> searchBooks(String query, int limit) {
+        validateSearchRequest(query, limit);
+        return searchIndex.search(query, limit);
+    }
+    
+    /**
+     * Checks the arguments of getBooksPage without reading the catalog, so that a
+     * conditional request with invalid arguments is rejected before it can get a 304.
+     *
+     * @throws IllegalArgumentException if the limit or cursor is invalid
+     */
+    public void validatePageRequest(String cursor, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (cursor != null) {
+            decodeCursor(cursor);
+        }
+    }
+    
+    /**
+     * Checks the argument of getBooksByAuthor without reading the catalog.
+     *
+     * @throws IllegalArgumentException if the author is empty
+     */
+    public void validateAuthor(String author) {
+        if (author == null || author.trim().isEmpty()) {
+            throw new IllegalArgumentException("Book author is required");
+        }
+    }
+    
+    /**
+     * Checks the arguments of getBooksByYearRange without reading the catalog.
+     *
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public void validateYearRange(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            throw new IllegalArgumentException("yearFrom must not be greater than yearTo");
+        }
+    }
+    
+    /**
+     * Checks the arguments of suggestTitles without reading the catalog.
+     *
+     * @throws IllegalArgumentException if the prefix is empty or the limit is invalid
+     */
+    public void validateSuggestRequest(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new IllegalArgumentException("Suggestion prefix is required");
+        }
+        if (limit <= 0 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Suggestion limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+    }
+    
+    /**
+     * Checks the arguments of searchBooks without reading the catalog.
+     *
+     * @throws IllegalArgumentException if the query is empty or the limit is invalid
+     */
+    public void validateSearchRequest(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (limit <= 0 || limit > BookSearchIndex.MAX_RESULTS) {
+            throw new IllegalArgumentException("Search limit must be between 1 and " + BookSearchIndex.MAX_RESULTS);
+        }
+    }
+    
     /**
      * Finds a book by its title (case-insensitive).
+     * Books already loaded are found at once while the catalog loads in the background;
+     * a miss then waits briefly for the loader, since the book may not be loaded yet.
      *
      * @param title The title to search for
      * @return Optional containing the book if found, empty otherwise
+     * @throws CatalogLoadingException if the book is missing and the catalog is still loading
      */
     public Optional<Book> getBookByTitle(String title) {
+        // Checked first: a book loaded between a miss and the check would otherwise be missed
+        boolean loaded = isCatalogLoaded();
+        Optional<Book> book = bookRepository.findByTitle(title);
+        if (book.isPresent() || loaded) {
+            return book;
+        }
+        awaitCatalogLoaded();
         return bookRepository.findByTitle(title);
     }
     
     /**
-     * Adds a new book to the library.
+     * @return Whether startup data is in, or failed to load; see BookRepository.whenLoaded
+     */
+    public boolean isCatalogLoaded() {
+        return bookRepository.whenLoaded().toCompletableFuture().isDone();
+    }
+    
+    /**
+     * Adds a new book to the library and notifies event subscribers.
+     * Of two concurrent adds of one title, exactly one succeeds.
      *
      * @param book The book to add
      * @return The saved book
      * @throws IllegalArgumentException if the book is invalid
+     * @throws BookAlreadyExistsException if a book with the title exists
+     * @throws CatalogLoadingException if the catalog is still loading
      */
     public Book addBook(Book book) {
         validateBook(book);
-        return bookRepository.save(book);
+        awaitCatalogLoaded();
+        noteWrite(book);
+        Optional<Book> saved = eventPublisher.publishing(() -> bookRepository.saveIfAbsent(book));
+        if (saved.isEmpty()) {
+            throw new BookAlreadyExistsException("Book with title '" + book.getTitle() + "' already exists",
+                    bookRepository.findByTitle(book.getTitle()).orElse(null));
+        }
+        return saved.get();
+    }
+    
+    /**
+     * Adds a book or replaces the one stored under its title, whatever its version,
+     * and notifies event subscribers.
+     *
+     * @param book The book to save
+     * @return The saved book
+     * @throws IllegalArgumentException if the book is invalid
+     * @throws CatalogLoadingException if the catalog is still loading
+     */
+    public Book saveBook(Book book) {
+        validateBook(book);
+        awaitCatalogLoaded();
+        noteWrite(book);
+        return eventPublisher.publishing(() -> bookRepository.save(book));
+    }
+    
+    /**
+     * Replaces a book only if the stored one still has the version the change is based
+     * on, and notifies event subscribers.
+     *
+     * @param book The new state of the book
+     * @param expectedVersion The version the client read, see Book.getVersion
+     * @return The saved book
+     * @throws IllegalArgumentException if the book is invalid
+     * @throws BookVersionMismatchException if the book is not stored or has another version
+     * @throws CatalogLoadingException if the catalog is still loading
+     */
+    public Book replaceBook(Book book, long expectedVersion) {
+        validateBook(book);
+        awaitCatalogLoaded();
+        noteWrite(book);
+        Optional<Book> saved = expectedVersion > 0
+                ? eventPublisher.publishing(() -> bookRepository.replaceIfVersion(book, expectedVersion))
+                : Optional.empty();
+        if (saved.isEmpty()) {
+            throw new BookVersionMismatchException("Book with title '" + book.getTitle() + "' has changed",
+                    bookRepository.findByTitle(book.getTitle()).orElse(null));
+        }
+        return saved.get();
+    }
+    
+    /**
+     * Adds many books at once.
+     * Every book is validated independently and added like addBook, only if its title
+     * is not stored yet; invalid books and titles already stored, including a title
+     * repeated in the batch, are reported without failing the batch.
+     *
+     * @param books The books to add
+     * @return Totals and a result per book, in request order
+     * @throws IllegalArgumentException if the batch itself is missing or too large
+     * @throws CatalogLoadingException if the catalog is still loading
+     */
+    public BookBatchResult addBooks(List<Book> books) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books are required");
+        }
+        if (books.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch must not contain more than " + MAX_BATCH_SIZE + " books");
+        }
+        List<BookBatchResult.Item> items = new ArrayList<>(books.size());
+        int saved = addChunk(books, 0, items);
+        return new BookBatchResult(saved, books.size() - saved, items);
+    }
+    
+    /**
+     * Adds many books that arrive as a stream, such as an NDJSON body being parsed.
+     * Books are validated and saved like those of addBooks(List), a chunk at a time
+     * as they are read, so only one chunk of books is held at once; the result still
+     * has an item per book. A batch that fails part way, because the stream is
+     * malformed or holds more than MAX_BATCH_SIZE books, keeps the chunks saved before.
+     *
+     * @param books The books to add, read once
+     * @return Totals and a result per book, in request order
+     * @throws IllegalArgumentException if the batch holds more than MAX_BATCH_SIZE books
+     * @throws CatalogLoadingException if the catalog is still loading
+     */
+    public BookBatchResult addBooks(Iterator<Book> books) {
+        List<BookBatchResult.Item> items = new ArrayList<>();
+        List<Book> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+        int read = 0;
+        int saved = 0;
+        while (books.hasNext()) {
+            if (read == MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("Batch must not contain more than " + MAX_BATCH_SIZE + " books");
+            }
+            chunk.add(books.next());
+            read++;
+            if (chunk.size() == BATCH_CHUNK_SIZE) {
+                saved += addChunk(chunk, read - chunk.size(), items);
+                chunk.clear();
+            }
+        }
+        saved += addChunk(chunk, read - chunk.size(), items);
+        return new BookBatchResult(saved, read - saved, items);
+    }
+    
+    // Validates and saves books that start at firstIndex of the batch, appending their items
+    private int addChunk(List<Book> books, int firstIndex, List<BookBatchResult.Item> items) {
+        String[] errors = new String[books.size()];
+        IntStream indexes = IntStream.range(0, books.size());
+        if (books.size() >= PARALLEL_VALIDATION_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> errors[i] = validationError(books.get(i)));
+        
+        int saved = 0;
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (errors[i] == null) {
+                awaitCatalogLoaded();
+                noteWrite(book);
+                // Not published one by one; the batch event below announces them
+                if (bookRepository.saveIfAbsent(book).isPresent()) {
+                    saved++;
+                } else {
+                    errors[i] = "Book with title '" + book.getTitle() + "' already exists";
+                }
+            }
+            items.add(new BookBatchResult.Item(firstIndex + i, book == null ? null : book.getTitle(),
+                    errors[i] == null, errors[i]));
+        }
+        if (saved > 0) {
+            eventPublisher.booksSaved(saved);
+        }
+        return saved;
+    }
+    
+    /**
+     * Writes the whole catalog as a binary snapshot, see CatalogSnapshotWriter.
+     * Books are read from the repository as they are written, like streamAllBooks.
+     *
+     * @param out The stream to write to; it is not closed
+     * @param compression The compression of the snapshot blocks
+     * @return The number of books written
+     * @throws IOException if the stream cannot be written
+     */
+    public long exportSnapshot(OutputStream out, SnapshotCompression compression) throws IOException {
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(out, compression);
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
+        return writer.finish();
+    }
+    
+    /**
+     * Replaces the catalog with a binary snapshot: every book of the snapshot is saved,
+     * one bulk save per block as it is read, then books the snapshot does not hold are
+     * deleted. Readers see the catalog change block by block, not all at once. Books are
+     * validated like those of POST /books, and a block holding an invalid one is not saved.
+     *
+     * Other writes carry on during the import and win over it: a book that a request
+     * starting after the import began saves is kept even if the snapshot does not hold
+     * it. Imports run one at a time. The keys of the snapshot's titles are held until
+     * the import ends, so its memory grows with the snapshot.
+     *
+     * @param in The snapshot; it is not closed
+     * @return The number of books imported and removed
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalArgumentException if the snapshot is corrupt or holds an invalid book;
+     *         the blocks before the failing one stay imported and nothing is deleted
+     * @throws CatalogLoadingException if the catalog is still loading
+     */
+    public SnapshotImportResult importSnapshot(InputStream in) throws IOException {
+        awaitCatalogLoaded();
+        importLock.lock();
+        Set<String> written = ConcurrentHashMap.newKeySet();
+        writtenDuringImport = written;
+        try {
+            CatalogSnapshotReader reader = new CatalogSnapshotReader(in);
+            Set<String> keys = new HashSet<>();
+            List<Book> block;
+            while ((block = reader.readBlock()) != null) {
+                for (Book book : block) {
+                    String error = validationError(book);
+                    if (error != null) {
+                        throw new IllegalArgumentException("Invalid book '" + book.getTitle() + "' in snapshot: " + error);
+                    }
+                    keys.add(TitleNormalizer.normalize(book.getTitle()));
+                }
+                bookRepository.saveAll(block);
+                eventPublisher.booksSaved(block.size());
+            }
+            
+            // Deleted while the catalog streams, which it tolerates, instead of listed first
+            long removed = 0;
+            try (Stream<Book> books = bookRepository.streamAll()) {
+                Iterator<Book> iterator = books.iterator();
+                while (iterator.hasNext()) {
+                    Book book = iterator.next();
+                    String key = TitleNormalizer.normalize(book.getTitle());
+                    if (!keys.contains(key) && deleteUnlessWritten(book, key, written)) {
+                        removed++;
+                    }
+                }
+            }
+            return new SnapshotImportResult(reader.getBooksRead(), removed);
+        } finally {
+            writtenDuringImport = null;
+            importLock.unlock();
+        }
+    }
+    
+    // Deletes a book the snapshot does not hold unless a request wrote its title during the
+    // import. A write notes its key before it applies, so the delete either sees the key or
+    // fails on the version the write gave the book.
+    private boolean deleteUnlessWritten(Book book, String key, Set<String> written) {
+        Book current = book;
+        while (!written.contains(key)) {
+            String title = current.getTitle();
+            long version = current.getVersion();
+            if (eventPublisher.publishing(() -> bookRepository.deleteIfVersion(title, version))) {
+                return true;
+            }
+            // Changed by a write, noted by now, or moved by an off-heap compaction
+            Optional<Book> reread = bookRepository.findByTitle(title);
+            if (reread.isEmpty()) {
+                return false;
+            }
+            current = reread.get();
+        }
+        return false;
+    }
+    
+    // Tells a running import that a request writes this book; see importSnapshot
+    private void noteWrite(Book book) {
+        Set<String> written = writtenDuringImport;
+        if (written != null) {
+            written.add(TitleNormalizer.normalize(book.getTitle()));
+        }
+    }
+    
+    /**
+     * Returns the saves and deletes applied after a position of the change feed.
+     *
+     * @param since The next value of the previous answer, or null to learn where to start
+     * @param limit The maximum number of changes
+     * @return The changes, oldest first, or a resync answer if since is unknown or too old
+     * @throws IllegalArgumentException if the limit is invalid
+     */
+    public BookChanges getChanges(Long since, int limit) {
+        if (limit <= 0 || limit > MAX_CHANGES) {
+            throw new IllegalArgumentException("Change limit must be between 1 and " + MAX_CHANGES);
+        }
+        return changeLog.changesSince(since, limit);
+    }
+    
+    /**
+     * Gets the version of the catalog, which changes with every save and delete.
+     * Reading it costs nothing compared to any query, so callers can compare it
+     * against a version they served before instead of running the query again.
+     *
+     * @return The catalog version
+     */
+    public long getCatalogVersion() {
+        return bookRepository.getCatalogVersion();
     }
     
     /**
@@ -68,20 +576,46 @@ public class BookService {
     }
     
     /**
-     * Deletes a book by its title.
+     * Deletes a book by its title and notifies event subscribers.
      *
      * @param title The title of the book to delete
      * @throws BookNotFoundException if the book is not found
      * @throws IllegalArgumentException if the title is invalid
+     * @throws CatalogLoadingException if the catalog is still loading
      */
     public void deleteBookByTitle(String title) {
         validateTitle(title);
-        boolean deleted = bookRepository.deleteByTitle(title);
+        awaitCatalogLoaded();
+        boolean deleted = eventPublisher.publishing(() -> bookRepository.deleteByTitle(title));
         if (!deleted) {
             throw new BookNotFoundException("Book with title '" + title + "' not found");
         }
     }
     
+    /**
+     * Waits up to loadingWait for a catalog loading in the background. Writes wait as well:
+     * the loader would overwrite a book saved before it, or bring back a deleted one.
+     * If loading failed, requests are served from what was loaded.
+     *
+     * @throws CatalogLoadingException if the catalog is still loading afterwards
+     */
+    private void awaitCatalogLoaded() {
+        CompletableFuture<Void> loaded = bookRepository.whenLoaded().toCompletableFuture();
+        if (loaded.isDone()) {
+            return;
+        }
+        try {
+            loaded.get(loadingWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new CatalogLoadingException("The catalog is still loading", loadingRetryAfter);
+        } catch (ExecutionException e) {
+            // Logged by the repository, reported by the readiness probe
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CatalogLoadingException("The catalog is still loading", loadingRetryAfter);
+        }
+    }
+    
     /**
      * Validates a title string.
      *
@@ -94,6 +628,42 @@ public class BookService {
         }
     }
     
+    /**
+     * Encodes the last title of a page as an opaque, URL-safe cursor.
+     */
+    private String encodeCursor(String title) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(title.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes a cursor produced by encodeCursor back into a title.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    private String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+    
+    /**
+     * Validates a book and returns the failure message instead of throwing.
+     *
+     * @param book The book to validate
+     * @return The validation message, or null if the book is valid
+     */
+    private String validationError(Book book) {
+        try {
+            validateBook(book);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+    
     /**
      * Help method
      * Validates a book object for required fields.
@@ -0,0 +1,121 @@
+package com.example.booklibrary.cache;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+@DisplayName("CachingBookRepository Tests")
+class CachingBookRepositoryTest {
+
+    private BookRepository store;
+    private CachingBookRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        store = spy(new InMemoryBookRepository(null));
+        store.save(new Book("1984", "George Orwell", 1949));
+        store.save(new Book("Animal Farm", "George Orwell", 1945));
+        store.save(new Book("Emma", "Jane Austen", 1815));
+        store.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        repository = new CachingBookRepository(store, 100, 100);
+    }
+
+    @Test
+    @DisplayName("Should answer repeated lookups and misses from the cache")
+    void shouldCacheHitsAndMisses() {
+        assertEquals(1949, repository.findByTitle("1984").orElseThrow().getYear());
+        assertEquals(1949, repository.findByTitle("1984").orElseThrow().getYear());
+        assertTrue(repository.findByTitle("Dune").isEmpty());
+        assertTrue(repository.findByTitle("DUNE").isEmpty());
+
+        verify(store, times(2)).findByTitle(any());
+        assertEquals(2, repository.getTitleCache().stats().hitCount());
+    }
+
+    @Test
+    @DisplayName("Should forget a cached miss once the book is saved, even directly in the store")
+    void shouldInvalidateOnWrites() {
+        assertTrue(repository.findByTitle("Dune").isEmpty());
+        store.save(new Book("Dune", "Frank Herbert", 1965));
+        assertEquals(1965, repository.findByTitle("dune").orElseThrow().getYear());
+
+        repository.deleteByTitle("Dune");
+        assertTrue(repository.findByTitle("Dune").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should only drop the pages whose title range contains the written title")
+    void shouldInvalidatePagesPrecisely() {
+        assertEquals(List.of("1984", "Animal Farm"), titles(repository.findPage(null, 2)));
+        assertEquals(List.of("Emma", "The Hobbit"), titles(repository.findPage("Animal Farm", 2)));
+        assertEquals(4, repository.findAll().size());
+
+        // Sorts after "animal farm", so only the second page and findAll change
+        repository.save(new Book("Dune", "Frank Herbert", 1965));
+
+        assertEquals(List.of("1984", "Animal Farm"), titles(repository.findPage(null, 2)));
+        assertEquals(List.of("Dune", "Emma"), titles(repository.findPage("Animal Farm", 2)));
+        assertEquals(5, repository.findAll().size());
+        verify(store, times(1)).findPage(null, 2);
+        verify(store, times(2)).findPage("Animal Farm", 2);
+        verify(store, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Should drop every cached book when the store's versions change")
+    void shouldDropCacheWhenVersionsChange() {
+        repository.findByTitle("1984");
+        repository.versionsChanged();
+        repository.mutationCompleted();
+        repository.findByTitle("1984");
+
+        verify(store, times(2)).findByTitle(any());
+    }
+
+    @Test
+    @DisplayName("Should not keep a miss read on another thread while a save was being applied")
+    void shouldNotKeepMissReadDuringSave() throws InterruptedException {
+        // A store that announces the save before readers can see it
+        BookRepository slowStore = mock(BookRepository.class);
+        CachingBookRepository cache = new CachingBookRepository(slowStore, 100, 100);
+        Book dune = new Book("Dune", "Frank Herbert", 1965);
+        when(slowStore.findByTitle("Dune")).thenReturn(Optional.empty());
+        AtomicReference<Optional<Book>> readDuringSave = new AtomicReference<>();
+        doAnswer(invocation -> {
+            cache.bookSaved(null, dune);
+            Thread reader = new Thread(() -> readDuringSave.set(cache.findByTitle("Dune")));
+            reader.start();
+            reader.join();
+            when(slowStore.findByTitle("Dune")).thenReturn(Optional.of(dune));
+            cache.mutationCompleted();
+            return dune;
+        }).when(slowStore).save(dune);
+
+        cache.save(dune);
+
+        assertTrue(readDuringSave.get().isEmpty());
+        assertEquals(1965, cache.findByTitle("Dune").orElseThrow().getYear());
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+}
@@ -1,37 +1,82 @@
 package com.example.booklibrary.controller;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.endsWith;
 import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.exception.BookAlreadyExistsException;
 import com.example.booklibrary.exception.BookNotFoundException;
+import com.example.booklibrary.exception.BookVersionMismatchException;
+import com.example.booklibrary.exception.CatalogLoadingException;
 import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.model.BookChange;
+import com.example.booklibrary.model.BookChanges;
+import com.example.booklibrary.model.BookPage;
+import com.example.booklibrary.model.SnapshotImportResult;
+import com.example.booklibrary.persistence.CatalogSnapshotWriter;
+import com.example.booklibrary.persistence.SnapshotCompression;
 import com.example.booklibrary.service.BookService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * Unit tests for BookController.
  * Uses @WebMvcTest for focused web layer testing with MockMvc.
  */
 @WebMvcTest(BookController.class)
+// A fresh EncodedResponseCache per test: the mocked catalog version does not change between tests
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import({BinaryContentConfiguration.class, EncodedResponseCache.class})
 class BookControllerTest {
 
     @Autowired
@@ -40,6 +85,9 @@ class BookControllerTest {
     @MockBean
     private BookService mockBookService;
 
+    @MockBean
+    private BookEventPublisher mockEventPublisher;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -68,6 +116,428 @@ class BookControllerTest {
         verify(mockBookService).getAllBooks();
     }
 
+    @Test
+    void getAllBooks_WithCurrentETag_ShouldReturn304WithoutReadingBooks() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(new Book("1984", "George Orwell", 1949)));
+        String etag = mockMvc.perform(get("/books"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When & Then
+        mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(content().string(""));
+
+        verify(mockBookService).getAllBooks();
+    }
+
+    @Test
+    void getAllBooks_AfterCatalogChange_ShouldReturnBooksWithNewETag() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(new Book("1984", "George Orwell", 1949)));
+        String etag = mockMvc.perform(get("/books"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        when(mockBookService.getCatalogVersion()).thenReturn(8L);
+
+        // When
+        String newEtag = mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].title").value("1984"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Then
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    void getAllBooks_WhenCatalogUnchanged_ShouldServeCachedBodyWithoutReadingBooks() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(new Book("1984", "George Orwell", 1949)));
+        byte[] first = mockMvc.perform(get("/books"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // When
+        byte[] second = mockMvc.perform(get("/books"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        assertArrayEquals(objectMapper.writeValueAsBytes(List.of(new Book("1984", "George Orwell", 1949))), second);
+        assertArrayEquals(first, second);
+        verify(mockBookService, times(1)).getAllBooks();
+    }
+
+    @Test
+    void getAllBooks_AfterCatalogChange_ShouldServeNewBody() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(new Book("1984", "George Orwell", 1949)));
+        mockMvc.perform(get("/books")).andExpect(jsonPath("$.length()").value(1));
+        when(mockBookService.getCatalogVersion()).thenReturn(8L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(
+            new Book("1984", "George Orwell", 1949),
+            new Book("Dune", "Frank Herbert", 1965)
+        ));
+
+        // When & Then
+        mockMvc.perform(get("/books"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void getAllBooks_WithGzipAccepted_ShouldReturnGzippedJson() throws Exception {
+        // Given
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            books.add(new Book("Book " + i, "Author " + (i / 10), 1900 + i));
+        }
+        when(mockBookService.getAllBooks()).thenReturn(books);
+
+        // When
+        byte[] body = mockMvc.perform(get("/books").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.ETAG, endsWith("-gzip\"")))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(books), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void getAllBooks_WithGzipAcceptedAndSmallBody_ShouldTagIdentityBody() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(new Book("1984", "George Orwell", 1949)));
+        String etag = mockMvc.perform(get("/books"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When / Then
+        mockMvc.perform(get("/books").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/books").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getBooksByYearRange_WithInvalidRangeAndCurrentETag_ShouldReturn400() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        String etag = mockMvc.perform(get("/books").param("yearFrom", "1900").param("yearTo", "2000"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        doThrow(new IllegalArgumentException("yearFrom must not be greater than yearTo"))
+            .when(mockBookService).validateYearRange(2000, 1900);
+
+        // When / Then
+        mockMvc.perform(get("/books").param("yearFrom", "2000").param("yearTo", "1900")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("yearFrom must not be greater than yearTo"));
+        verify(mockBookService, never()).getBooksByYearRange(2000, 1900);
+    }
+
+    @Test
+    void getBooksPage_ShouldServeEachPageFromCache() throws Exception {
+        // Given
+        when(mockBookService.getBooksPage(null, 1)).thenReturn(
+            new BookPage(List.of(new Book("1984", "George Orwell", 1949)), "MTk4NA"));
+        when(mockBookService.getBooksPage("MTk4NA", 1)).thenReturn(
+            new BookPage(List.of(new Book("Dune", "Frank Herbert", 1965)), null));
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/books").param("limit", "1"))
+                .andExpect(jsonPath("$.books[0].title").value("1984"));
+            mockMvc.perform(get("/books").param("limit", "1").param("after", "MTk4NA"))
+                .andExpect(jsonPath("$.books[0].title").value("Dune"));
+        }
+
+        // Then
+        verify(mockBookService, times(1)).getBooksPage(null, 1);
+        verify(mockBookService, times(1)).getBooksPage("MTk4NA", 1);
+    }
+
+    @Test
+    void acceptsGzip_ShouldHonorCodingNamesAndQualityValues() {
+        assertTrue(BookController.acceptsGzip("gzip"));
+        assertTrue(BookController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(BookController.acceptsGzip("*"));
+        assertFalse(BookController.acceptsGzip(null));
+        assertFalse(BookController.acceptsGzip("br, deflate"));
+        assertFalse(BookController.acceptsGzip("gzip;q=0"));
+    }
+
+    @Test
+    void negotiate_ShouldFollowAcceptPreferences() {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        assertEquals(MediaType.APPLICATION_JSON, BookController.negotiate(null));
+        assertEquals(MediaType.APPLICATION_JSON, BookController.negotiate("*/*"));
+        assertEquals(MediaType.APPLICATION_JSON, BookController.negotiate("application/json, application/cbor;q=0.5"));
+        assertEquals(MediaType.APPLICATION_JSON, BookController.negotiate("application/cbor;q=0.5, application/*"));
+        assertEquals(MediaType.APPLICATION_CBOR, BookController.negotiate("application/cbor"));
+        assertEquals(smile, BookController.negotiate("application/x-jackson-smile, */*;q=0.1"));
+        assertNull(BookController.negotiate("text/plain"));
+    }
+
+    @Test
+    void streamAllBooks_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Given
+        when(mockBookService.streamAllBooks()).thenReturn(Stream.of(
+            new Book("1984", "George Orwell", 1949),
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)
+        ));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/books/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string(
+                "{\"title\":\"1984\",\"author\":\"George Orwell\",\"year\":1949}\n"
+                + "{\"title\":\"The Hobbit\",\"author\":\"J.R.R. Tolkien\",\"year\":1937}\n"));
+
+        verify(mockBookService).streamAllBooks();
+    }
+
+    @Test
+    void getAllBooks_WithCborAccept_ShouldReturnCbor() throws Exception {
+        // Given
+        List<Book> books = Arrays.asList(
+            new Book("1984", "George Orwell", 1949),
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)
+        );
+        when(mockBookService.getAllBooks()).thenReturn(books);
+
+        // When
+        byte[] body = mockMvc.perform(get("/books").accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory()).registerModule(new BookJacksonModule());
+        assertEquals(books, cbor.readValue(body, new TypeReference<List<Book>>() { }));
+    }
+
+    @Test
+    void getAllBooks_WithJsonETagAndCborAccept_ShouldReturnCbor() throws Exception {
+        // Given
+        when(mockBookService.getCatalogVersion()).thenReturn(7L);
+        when(mockBookService.getAllBooks()).thenReturn(List.of(new Book("1984", "George Orwell", 1949)));
+        String jsonEtag = mockMvc.perform(get("/books").accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When
+        String cborEtag = mockMvc.perform(get("/books").accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, jsonEtag))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Then
+        assertNotEquals(jsonEtag, cborEtag);
+        mockMvc.perform(get("/books").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cborEtag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void getBookByTitle_WithCborAccept_WhenMissing_ShouldReturnCborError() throws Exception {
+        // Given
+        when(mockBookService.getBookByTitle("Missing")).thenReturn(Optional.empty());
+
+        // When
+        byte[] body = mockMvc.perform(get("/books/Missing").accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isNotFound())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        assertEquals(404, new ObjectMapper(new CBORFactory()).readTree(body).get("status").asInt());
+    }
+
+    @Test
+    void addBook_WithSmileBody_ShouldAnswerInSmile() throws Exception {
+        // Given
+        Book book = new Book("Dune", "Frank Herbert", 1965);
+        when(mockBookService.addBook(book)).thenReturn(new Book("Dune", "Frank Herbert", 1965, 1));
+        ObjectMapper smile = new ObjectMapper(new SmileFactory()).registerModule(new BookJacksonModule());
+        MediaType smileType = MediaType.parseMediaType("application/x-jackson-smile");
+
+        // When
+        byte[] body = mockMvc.perform(post("/books")
+                .contentType(smileType)
+                .accept(smileType)
+                .content(smile.writeValueAsBytes(book)))
+            .andExpect(status().isCreated())
+            .andExpect(content().contentType(smileType))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        assertEquals(book, smile.readValue(body, Book.class));
+    }
+
+    @Test
+    void getSnapshot_ShouldStreamSnapshotWithRequestedCompression() throws Exception {
+        // Given
+        when(mockBookService.exportSnapshot(any(OutputStream.class), eq(SnapshotCompression.DEFLATE)))
+            .thenAnswer(invocation -> {
+                invocation.<OutputStream>getArgument(0).write(new byte[] {'B', 'K', 'S', 'N'});
+                return 0L;
+            });
+
+        // When
+        MvcResult result = mockMvc.perform(get("/books/snapshot").param("compression", "deflate"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(CatalogSnapshotWriter.MEDIA_TYPE))
+            .andExpect(content().bytes(new byte[] {'B', 'K', 'S', 'N'}));
+    }
+
+    @Test
+    void getSnapshot_WithUnknownCompression_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/books/snapshot").param("compression", "brotli"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Snapshot compression must be none or deflate"));
+
+        verify(mockBookService, never()).exportSnapshot(any(), any());
+    }
+
+    @Test
+    void putSnapshot_ShouldReturnImportedAndRemovedCounts() throws Exception {
+        // Given
+        when(mockBookService.importSnapshot(any(InputStream.class))).thenReturn(new SnapshotImportResult(3, 1));
+
+        // When & Then
+        mockMvc.perform(put("/books/snapshot")
+                .contentType(CatalogSnapshotWriter.MEDIA_TYPE)
+                .content(new byte[] {'B', 'K', 'S', 'N'}))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(3))
+            .andExpect(jsonPath("$.removed").value(1));
+    }
+
+    @Test
+    void getBooksPage_ShouldReturnBooksAndNextCursor() throws Exception {
+        // Given
+        BookPage page = new BookPage(
+            Arrays.asList(new Book("1984", "George Orwell", 1949)), "MTk4NA");
+        when(mockBookService.getBooksPage("abc", 1)).thenReturn(page);
+
+        // When & Then
+        mockMvc.perform(get("/books").param("limit", "1").param("after", "abc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.books.length()").value(1))
+            .andExpect(jsonPath("$.books[0].title").value("1984"))
+            .andExpect(jsonPath("$.nextCursor").value("MTk4NA"));
+
+        verify(mockBookService).getBooksPage("abc", 1);
+    }
+
+    @Test
+    void getChanges_ShouldReturnChangesAndNextSequence() throws Exception {
+        // Given
+        BookChanges changes = new BookChanges(List.of(
+            new BookChange(11, BookChange.Type.SAVED, "Dune", new Book("Dune", "Frank Herbert", 1965)),
+            new BookChange(12, BookChange.Type.DELETED, "1984", null)), 12, false);
+        when(mockBookService.getChanges(10L, 1000)).thenReturn(changes);
+
+        // When & Then
+        mockMvc.perform(get("/books/changes").param("since", "10"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.resync").value(false))
+            .andExpect(jsonPath("$.next").value(12))
+            .andExpect(jsonPath("$.changes[0].type").value("SAVED"))
+            .andExpect(jsonPath("$.changes[0].book.author").value("Frank Herbert"))
+            .andExpect(jsonPath("$.changes[1].type").value("DELETED"))
+            .andExpect(jsonPath("$.changes[1].title").value("1984"))
+            .andExpect(jsonPath("$.changes[1].book").doesNotExist());
+    }
+
+    @Test
+    void getBooksByAuthor_ShouldReturnAuthorsBooks() throws Exception {
+        // Given
+        when(mockBookService.getBooksByAuthor("J.R.R. Tolkien")).thenReturn(Arrays.asList(
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)
+        ));
+
+        // When & Then
+        mockMvc.perform(get("/books").param("author", "J.R.R. Tolkien"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].title").value("The Hobbit"));
+
+        verify(mockBookService).getBooksByAuthor("J.R.R. Tolkien");
+    }
+
+    @Test
+    void getBooksByYearRange_ShouldReturnBooksInRange() throws Exception {
+        // Given
+        when(mockBookService.getBooksByYearRange(1900, 1950)).thenReturn(Arrays.asList(
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937),
+            new Book("1984", "George Orwell", 1949)
+        ));
+
+        // When & Then
+        mockMvc.perform(get("/books").param("yearFrom", "1900").param("yearTo", "1950"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[1].year").value(1949));
+
+        verify(mockBookService).getBooksByYearRange(1900, 1950);
+    }
+
+    @Test
+    void suggestTitles_ShouldReturnMatchingTitles() throws Exception {
+        // Given
+        when(mockBookService.suggestTitles("the h", 5)).thenReturn(Arrays.asList("The Hobbit"));
+
+        // When & Then
+        mockMvc.perform(get("/books/suggest").param("prefix", "the h").param("limit", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0]").value("The Hobbit"));
+
+        verify(mockBookService).suggestTitles("the h", 5);
+    }
+
+    @Test
+    void searchBooks_ShouldReturnRankedResults() throws Exception {
+        // Given
+        when(mockBookService.searchBooks("hobit", 10)).thenReturn(Arrays.asList(
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)
+        ));
+
+        // When & Then
+        mockMvc.perform(get("/books/search").param("q", "hobit"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].title").value("The Hobbit"));
+
+        verify(mockBookService).searchBooks("hobit", 10);
+    }
+
     @Test
     void getBookByTitle_WhenBookExists_ShouldReturnBook() throws Exception {
         // Given
@@ -86,6 +556,24 @@ class BookControllerTest {
         verify(mockBookService).getBookByTitle(title);
     }
 
+    @Test
+    void getBookByTitle_WithCurrentETag_ShouldReturn304() throws Exception {
+        // Given
+        when(mockBookService.getBookByTitle("1984"))
+            .thenReturn(Optional.of(new Book("1984", "George Orwell", 1949, 3)));
+        String etag = mockMvc.perform(get("/books/1984"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").doesNotExist())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When & Then
+        mockMvc.perform(get("/books/1984").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        verify(mockBookService, never()).getCatalogVersion();
+    }
+
     @Test
     void getBookByTitle_WhenBookDoesNotExist_ShouldReturn404() throws Exception {
         // Given
@@ -99,6 +587,19 @@ class BookControllerTest {
         verify(mockBookService).getBookByTitle(title);
     }
 
+    @Test
+    void getBookByTitle_WhileCatalogLoads_ShouldReturn503WithRetryAfter() throws Exception {
+        // Given
+        when(mockBookService.getBookByTitle("Dune"))
+            .thenThrow(new CatalogLoadingException("The catalog is still loading", Duration.ofSeconds(5)));
+
+        // When & Then
+        mockMvc.perform(get("/books/{title}", "Dune"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+            .andExpect(jsonPath("$.message").value("The catalog is still loading"));
+    }
+
     @Test
     void addBook_WithValidBook_ShouldReturnCreatedBook() throws Exception {
         // Given
@@ -135,6 +636,156 @@ class BookControllerTest {
         verify(mockBookService).addBook(any(Book.class));
     }
 
+    @Test
+    void addBook_WithExistingTitle_ShouldReturn409WithStoredETag() throws Exception {
+        // Given
+        Book stored = new Book("1984", "George Orwell", 1949, 5);
+        when(mockBookService.addBook(any(Book.class)))
+            .thenThrow(new BookAlreadyExistsException("Book with title '1984' already exists", stored));
+        when(mockBookService.getBookByTitle("1984")).thenReturn(Optional.of(stored));
+        String etag = mockMvc.perform(get("/books/1984"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When & Then
+        mockMvc.perform(post("/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Book("1984", "Someone Else", 2023))))
+            .andExpect(status().isConflict())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(jsonPath("$.status").value(409))
+            .andExpect(jsonPath("$.message").value("Book with title '1984' already exists"));
+    }
+
+    @Test
+    void putBook_WithCurrentETag_ShouldReplaceAtThatVersion() throws Exception {
+        // Given
+        Book stored = new Book("1984", "George Orwell", 1949, 5);
+        Book update = new Book("1984", "George Orwell", 1950);
+        when(mockBookService.getBookByTitle("1984")).thenReturn(Optional.of(stored));
+        when(mockBookService.replaceBook(update, 5)).thenReturn(new Book("1984", "George Orwell", 1950, 6));
+        String etag = mockMvc.perform(get("/books/1984"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When & Then
+        String newEtag = mockMvc.perform(put("/books/1984")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.year").value(1950))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotEquals(etag, newEtag);
+        verify(mockBookService).replaceBook(update, 5);
+    }
+
+    @Test
+    void putBook_WithStaleETag_ShouldReturn412() throws Exception {
+        // Given
+        Book stored = new Book("1984", "George Orwell", 1949, 5);
+        Book update = new Book("1984", "George Orwell", 1950);
+        when(mockBookService.getBookByTitle("1984")).thenReturn(Optional.of(stored));
+        when(mockBookService.replaceBook(update, 0))
+            .thenThrow(new BookVersionMismatchException("Book with title '1984' has changed", stored));
+
+        // When & Then
+        mockMvc.perform(put("/books/1984")
+                .header(HttpHeaders.IF_MATCH, "\"stale-4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(jsonPath("$.status").value(412));
+    }
+
+    @Test
+    void putBook_WithoutIfMatch_ShouldSaveUnconditionally() throws Exception {
+        // Given
+        Book update = new Book("1984", "George Orwell", 1950);
+        when(mockBookService.saveBook(update)).thenReturn(new Book("1984", "George Orwell", 1950, 6));
+
+        // When & Then
+        mockMvc.perform(put("/books/1984")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG));
+
+        verify(mockBookService, never()).replaceBook(any(Book.class), anyLong());
+    }
+
+    @Test
+    void putBook_WithTitleOtherThanPath_ShouldReturn400() throws Exception {
+        mockMvc.perform(put("/books/1984")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Book("Dune", "Frank Herbert", 1965))))
+            .andExpect(status().isBadRequest());
+
+        verify(mockBookService, never()).saveBook(any(Book.class));
+    }
+
+    @Test
+    void addBooks_WithJsonArray_ShouldReturnPerItemResults() throws Exception {
+        // Given
+        BookBatchResult result = new BookBatchResult(1, 1, Arrays.asList(
+            new BookBatchResult.Item(0, "New Book", true, null),
+            new BookBatchResult.Item(1, "", false, "Book title is required")
+        ));
+        when(mockBookService.addBooks(anyList())).thenReturn(result);
+
+        // When & Then
+        mockMvc.perform(post("/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Arrays.asList(
+                    new Book("New Book", "New Author", 2023), new Book("", "Author", 2023)))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.saved").value(1))
+            .andExpect(jsonPath("$.rejected").value(1))
+            .andExpect(jsonPath("$.items[1].error").value("Book title is required"));
+
+        verify(mockBookService).addBooks(anyList());
+    }
+
+    @Test
+    void addBooks_WithNdjson_ShouldParseEveryLine() throws Exception {
+        // Given
+        List<Book> expected = Arrays.asList(
+            new Book("1984", "George Orwell", 1949),
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)
+        );
+        List<Book> received = new ArrayList<>();
+        when(mockBookService.addBooks(any(Iterator.class))).thenAnswer(invocation -> {
+            invocation.<Iterator<Book>>getArgument(0).forEachRemaining(received::add);
+            return new BookBatchResult(received.size(), 0, Arrays.asList());
+        });
+
+        // When & Then
+        mockMvc.perform(post("/books/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"title\":\"1984\",\"author\":\"George Orwell\",\"year\":1949}\n"
+                    + "{\"title\":\"The Hobbit\",\"author\":\"J.R.R. Tolkien\",\"year\":1937}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.saved").value(2));
+
+        assertEquals(expected, received);
+    }
+
+    @Test
+    void addBooks_WithMalformedNdjson_ShouldReturn400() throws Exception {
+        // Given
+        when(mockBookService.addBooks(any(Iterator.class))).thenAnswer(invocation -> {
+            invocation.<Iterator<Book>>getArgument(0).forEachRemaining(book -> { });
+            return new BookBatchResult(0, 0, Arrays.asList());
+        });
+
+        // When & Then
+        mockMvc.perform(post("/books/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"title\":\"1984\",\n"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value(400));
+    }
+
     @Test
     void deleteBookByTitle_WhenBookExists_ShouldReturn204() throws Exception {
         // Given
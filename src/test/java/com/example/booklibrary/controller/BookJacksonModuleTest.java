@@ -0,0 +1,73 @@
+package com.example.booklibrary.controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.booklibrary.model.Book;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+@DisplayName("Book Jackson module Tests")
+class BookJacksonModuleTest {
+
+    private final ObjectMapper beanMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final ObjectMapper moduleMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .registerModule(new BookJacksonModule());
+
+    @Test
+    @DisplayName("Should write the same JSON as the bean serializer")
+    void shouldWriteSameJsonAsBeanSerializer() throws Exception {
+        List<Book> books = Arrays.asList(
+                new Book("1984", "George Orwell", 1949, 7),
+                new Book("Beowulf", null, -1000));
+
+        assertEquals(beanMapper.writeValueAsString(books), moduleMapper.writeValueAsString(books));
+        assertEquals(beanMapper.writerWithDefaultPrettyPrinter().writeValueAsString(books),
+                moduleMapper.writerWithDefaultPrettyPrinter().writeValueAsString(books));
+    }
+
+    @Test
+    @DisplayName("Should read books like the bean deserializer")
+    void shouldReadLikeBeanDeserializer() throws Exception {
+        String json = "[{\"year\":\"1949\",\"extra\":{\"a\":[1,2]},\"title\":\"1984\",\"author\":\"George Orwell\"},"
+                + "{\"title\":\"Beowulf\",\"author\":null},{}]";
+        TypeReference<List<Book>> type = new TypeReference<List<Book>>() { };
+
+        List<Book> books = moduleMapper.readValue(json, type);
+
+        assertEquals(beanMapper.readValue(json, type), books);
+        assertEquals(new Book("1984", "George Orwell", 1949), books.get(0));
+        assertNull(books.get(2).getTitle());
+    }
+
+    @Test
+    @DisplayName("Should reject what the bean deserializer rejects")
+    void shouldRejectInvalidInput() {
+        ObjectMapper strict = new ObjectMapper().registerModule(new BookJacksonModule());
+
+        assertThrows(UnrecognizedPropertyException.class, () -> strict.readValue("{\"isbn\":\"1\"}", Book.class));
+        assertThrows(MismatchedInputException.class, () -> moduleMapper.readValue("[\"1984\"]", Book.class));
+        assertThrows(MismatchedInputException.class, () -> moduleMapper.readValue("{\"year\":\"soon\"}", Book.class));
+    }
+
+    @Test
+    @DisplayName("Should round-trip through CBOR")
+    void shouldRoundTripThroughCbor() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory()).registerModule(new BookJacksonModule());
+        Book book = new Book("Cien años de soledad", "Gabriel García Márquez", 1967);
+
+        assertEquals(book, cbor.readValue(cbor.writeValueAsBytes(book), Book.class));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.booklibrary.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+@DisplayName("Encoded response cache Tests")
+class EncodedResponseCacheTest {
+
+    private final EncodedResponseCache cache = new EncodedResponseCache(DataSize.ofMegabytes(1));
+    private final AtomicInteger encodings = new AtomicInteger();
+
+    private byte[] encode(int size) {
+        encodings.incrementAndGet();
+        return new byte[size];
+    }
+
+    @Test
+    @DisplayName("Should encode a body once per catalog version")
+    void shouldEncodeOncePerVersion() {
+        cache.get(1, "all", () -> encode(10));
+        cache.get(1, "all", () -> encode(10));
+        cache.get(1, "page", () -> encode(10));
+        assertEquals(2, encodings.get());
+
+        cache.get(2, "all", () -> encode(10));
+        assertEquals(3, encodings.get());
+        // The new version dropped both bodies of the old one
+        assertEquals(1, cache.getCache().estimatedSize());
+    }
+
+    @Test
+    @DisplayName("Should not keep a body of a version older than one already seen")
+    void shouldNotKeepOlderVersion() {
+        cache.get(5, "all", () -> encode(10));
+        cache.get(4, "all", () -> encode(10));
+        cache.get(4, "all", () -> encode(10));
+
+        assertEquals(3, encodings.get());
+        assertEquals(1, cache.getCache().estimatedSize());
+    }
+
+    @Test
+    @DisplayName("Should gzip only bodies large enough to gain from it")
+    void shouldGzipLargeBodiesOnly() {
+        assertNull(cache.get(1, "small", () -> encode(EncodedResponseCache.MIN_GZIP_BYTES - 1)).getGzip());
+        byte[] gzip = cache.get(1, "large", () -> encode(100_000)).getGzip();
+
+        assertNotNull(gzip);
+        assertEquals(0x1f, gzip[0]);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.booklibrary.controller;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.booklibrary.exception.BookVersionMismatchException;
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.ReactiveBookRepository;
+import com.example.booklibrary.service.BookService;
+
+/**
+ * Tests for ReactiveBookController with WebTestClient.
+ * The reactive repository adapter is real, over a mocked BookRepository.
+ */
+@WebFluxTest(controllers = ReactiveBookController.class, properties = "spring.main.web-application-type=reactive")
+class ReactiveBookControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private BookService mockBookService;
+
+    @MockBean
+    private BookRepository mockRepository;
+
+    @TestConfiguration
+    static class AdapterConfiguration {
+        @Bean
+        ReactiveBookRepository reactiveBookRepository(BookRepository repository) {
+            return new ReactiveBookRepository(repository, null);
+        }
+    }
+
+    @Test
+    void getAllBooks_ShouldStreamJsonArray() {
+        when(mockRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+            new Book("1984", "George Orwell", 1949),
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)));
+
+        webTestClient.get().uri("/books").exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$[0].title").isEqualTo("1984")
+            .jsonPath("$[1].author").isEqualTo("J.R.R. Tolkien");
+    }
+
+    @Test
+    void getAllBooks_WithEmptyCatalog_ShouldReturnEmptyArray() {
+        when(mockRepository.streamAll()).thenAnswer(invocation -> Stream.empty());
+
+        webTestClient.get().uri("/books").exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo("[]");
+    }
+
+    @Test
+    void getAllBooks_WithCurrentETag_ShouldReturn304WithoutReadingBooks() {
+        when(mockRepository.getCatalogVersion()).thenReturn(5L);
+        when(mockRepository.streamAll()).thenAnswer(invocation -> Stream.of(new Book("1984", "George Orwell", 1949)));
+        String etag = webTestClient.get().uri("/books").exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class).getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/books").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+            .expectStatus().isNotModified()
+            .expectBody().isEmpty();
+
+        verify(mockRepository).streamAll();
+    }
+
+    @Test
+    void streamAllBooks_ShouldWriteOneJsonObjectPerLine() {
+        when(mockRepository.streamAll()).thenAnswer(invocation -> Stream.of(
+            new Book("1984", "George Orwell", 1949),
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)));
+
+        webTestClient.get().uri("/books/stream").exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo(
+                "{\"title\":\"1984\",\"author\":\"George Orwell\",\"year\":1949}\n"
+                + "{\"title\":\"The Hobbit\",\"author\":\"J.R.R. Tolkien\",\"year\":1937}\n");
+    }
+
+    @Test
+    void getBookByTitle_WhenBookDoesNotExist_ShouldReturn404() {
+        when(mockRepository.findByTitle("Missing")).thenReturn(Optional.empty());
+
+        webTestClient.get().uri("/books/Missing").exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.message").isEqualTo("Book with title 'Missing' not found")
+            .jsonPath("$.path").isEqualTo("/books/Missing");
+    }
+
+    @Test
+    void getBookByTitle_WithCurrentETag_ShouldReturn304() {
+        when(mockRepository.findByTitle("1984")).thenReturn(Optional.of(new Book("1984", "George Orwell", 1949, 3)));
+        String etag = webTestClient.get().uri("/books/1984").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.author").isEqualTo("George Orwell")
+            .returnResult().getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/books/1984").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    void addBook_WithInvalidBook_ShouldReturn400() {
+        Book invalid = new Book("", "Author", 2000);
+        when(mockBookService.addBook(any())).thenThrow(new IllegalArgumentException("Book title is required"));
+
+        webTestClient.post().uri("/books").contentType(MediaType.APPLICATION_JSON).bodyValue(invalid).exchange()
+            .expectStatus().isBadRequest()
+            .expectBody().jsonPath("$.message").isEqualTo("Book title is required");
+    }
+
+    @Test
+    void addBook_WithValidBook_ShouldReturnCreatedBook() {
+        Book book = new Book("Dune", "Frank Herbert", 1965);
+        when(mockBookService.addBook(any())).thenReturn(new Book("Dune", "Frank Herbert", 1965, 9));
+
+        webTestClient.post().uri("/books").contentType(MediaType.APPLICATION_JSON).bodyValue(book).exchange()
+            .expectStatus().isCreated()
+            .expectHeader().exists(HttpHeaders.ETAG)
+            .expectBody().jsonPath("$.title").isEqualTo("Dune");
+    }
+
+    @Test
+    void putBook_WithStaleETag_ShouldReturn412() {
+        Book stored = new Book("Dune", "Frank Herbert", 1965, 9);
+        Book update = new Book("Dune", "Frank Herbert", 1966);
+        when(mockBookService.getBookByTitle("Dune")).thenReturn(Optional.of(stored));
+        when(mockBookService.replaceBook(update, 0))
+            .thenThrow(new BookVersionMismatchException("Book with title 'Dune' has changed", stored));
+
+        webTestClient.put().uri("/books/Dune").header(HttpHeaders.IF_MATCH, "\"stale-8\"")
+            .contentType(MediaType.APPLICATION_JSON).bodyValue(update).exchange()
+            .expectStatus().isEqualTo(412)
+            .expectHeader().exists(HttpHeaders.ETAG)
+            .expectBody().jsonPath("$.status").isEqualTo(412);
+    }
+
+    @Test
+    void deleteBookByTitle_ShouldReturn204() {
+        webTestClient.delete().uri("/books/Dune").exchange()
+            .expectStatus().isNoContent();
+
+        verify(mockBookService).deleteBookByTitle("Dune");
+        verify(mockBookService, never()).getAllBooks();
+    }
+
+    @Test
+    void addBooks_WithNdjson_ShouldDecodeEveryLine() {
+        List<Book> received = new ArrayList<>();
+        when(mockBookService.addBooks(any(Iterator.class))).thenAnswer(invocation -> {
+            invocation.<Iterator<Book>>getArgument(0).forEachRemaining(received::add);
+            return new BookBatchResult(received.size(), 0, List.of());
+        });
+
+        webTestClient.post().uri("/books/batch").contentType(MediaType.APPLICATION_NDJSON)
+            .bodyValue("{\"title\":\"A\",\"author\":\"X\",\"year\":2000}\n{\"title\":\"B\",\"author\":\"Y\",\"year\":2001}\n")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.saved").isEqualTo(2);
+        assertEquals("B", received.get(1).getTitle());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.booklibrary.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+@DisplayName("DumpLoader Tests")
+class DumpLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should load CSV with a header, quoted fields and CRLF line breaks")
+    void shouldLoadCsv() throws IOException {
+        Path dump = write("books.csv", "title,author,year\r\n"
+                + "1984,George Orwell,1949\r\n"
+                + "\"Dune, Part One\",\"Frank \"\"The Prophet\"\" Herbert\",1965\r\n"
+                + "Anonymous Tales,,1900\r\n"
+                + "Cien años de soledad,Gabriel García Márquez,1967");
+        BookRepository repository = new InMemoryBookRepository(null);
+
+        long loaded = new DumpLoader(2).load(dump, repository);
+
+        assertEquals(4, loaded);
+        assertEquals(4, repository.count());
+        assertEquals("Frank \"The Prophet\" Herbert", repository.findByTitle("dune, part one").orElseThrow().getAuthor());
+        assertNull(repository.findByTitle("Anonymous Tales").orElseThrow().getAuthor());
+        assertEquals("Gabriel García Márquez", repository.findByTitle("Cien años de soledad").orElseThrow().getAuthor());
+    }
+
+    @Test
+    @DisplayName("Should load NDJSON with escapes and unknown properties")
+    void shouldLoadNdjson() throws IOException {
+        Path dump = write("books.ndjson", "{\"title\":\"1984\",\"author\":\"George Orwell\",\"year\":1949,\"version\":7}\n"
+                + "{ \"year\" : 1965, \"tags\": [\"sf\", {\"a\": \"}\"}], \"title\" : \"Dune\", \"author\" : null }\n"
+                + "\n"
+                + "{\"title\":\"Say \\\"Hi\\\" \\u00e9\\n\",\"author\":\"A\\\\B\",\"year\":2001}\n");
+        BookRepository repository = new InMemoryBookRepository(null);
+
+        long loaded = new DumpLoader(2).load(dump, repository);
+
+        assertEquals(3, loaded);
+        assertNull(repository.findByTitle("Dune").orElseThrow().getAuthor());
+        Book escaped = repository.findByTitle("Say \"Hi\" é\n").orElseThrow();
+        assertEquals("A\\B", escaped.getAuthor());
+        assertEquals(2001, escaped.getYear());
+    }
+
+    @Test
+    @DisplayName("Should load every line exactly once whatever the chunk boundaries")
+    void shouldSplitChunksAtLineBreaks() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            csv.append("Title ").append(i).append(",Author ").append(i % 7).append(',').append(1500 + i).append('\n');
+        }
+        Path dump = write("books.csv", csv.toString());
+
+        // Chunk sizes that cut lines anywhere, including right after a line break
+        for (int chunkBytes = 1; chunkBytes <= 40; chunkBytes++) {
+            BookRepository repository = new InMemoryBookRepository(null);
+            long loaded = new DumpLoader(3, chunkBytes).load(dump, repository);
+
+            assertEquals(500, loaded, "chunk size " + chunkBytes);
+            assertEquals(500, repository.count(), "chunk size " + chunkBytes);
+            assertEquals(1999, repository.findByTitle("Title 499").orElseThrow().getYear());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed line with its byte offset")
+    void shouldRejectMalformedLine() throws IOException {
+        Path dump = write("books.csv", "1984,George Orwell,1949\nDune,Frank Herbert\n");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new DumpLoader(1).load(dump, new InMemoryBookRepository(null)));
+
+        assertTrue(e.getMessage().contains("at byte 24"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown file extension")
+    void shouldRejectUnknownFormat() throws IOException {
+        Path dump = write("books.txt", "1984,George Orwell,1949\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new DumpLoader(1).load(dump, new InMemoryBookRepository(null)));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
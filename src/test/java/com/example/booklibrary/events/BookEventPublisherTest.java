@@ -0,0 +1,154 @@
+package com.example.booklibrary.events;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@DisplayName("BookEventPublisher Tests")
+class BookEventPublisherTest {
+
+    private BookRepository repository;
+    private BookEventPublisher publisher;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryBookRepository(null);
+        repository.save(new Book("1984", "George Orwell", 1949));
+        publisher = new BookEventPublisher(repository, new ObjectMapper(), 16, 1, Duration.ofMinutes(1), null);
+        mockMvc = MockMvcBuilders.standaloneSetup(new EventsController(publisher)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.destroy();
+    }
+
+    @Test
+    @DisplayName("Should push saves and deletes to subscribers as event-stream frames")
+    void shouldPushEventsToSubscribers() throws Exception {
+        MvcResult result = mockMvc.perform(get("/events"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertEquals(1, publisher.subscriberCount());
+
+        // Not run through publishing: a bulk writer, which sends a batch event instead
+        repository.save(new Book("Emma", "Jane Austen", 1815));
+        publisher.publishing(() -> repository.save(new Book("Dune", "Frank Herbert", 1965)));
+        publisher.publishing(() -> repository.deleteByTitle("1984"));
+        // Conditional write that fails: nothing applied, nothing published
+        publisher.publishing(() -> repository.replaceIfVersion(new Book("Dune", "Someone Else", 1965), 1));
+
+        String body = awaitContent(result, "event: deleted");
+        assertTrue(body.startsWith("retry: 3000\n\n"), body);
+        assertTrue(body.contains("event: saved\ndata: {\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"year\":1965}\n\n"), body);
+        assertTrue(body.contains("event: deleted\ndata: {\"title\":\"1984\"}\n\n"), body);
+        assertTrue(!body.contains("Emma") && !body.contains("Someone Else"), body);
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+    }
+
+    @Test
+    @DisplayName("Should leave the latest state of a title last when its writes race")
+    void shouldPublishRacingWritesInOrder() throws Exception {
+        MvcResult result = mockMvc.perform(get("/events"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            boolean saving = i % 2 == 0;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 500; j++) {
+                    if (saving) {
+                        publisher.publishing(() -> repository.save(new Book("1984", "George Orwell", 1949)));
+                    } else {
+                        publisher.publishing(() -> repository.deleteByTitle("1984"));
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        String last = repository.findByTitle("1984").isPresent() ? "event: saved" : "event: deleted";
+        publisher.publishing(() -> repository.save(new Book("Marker", "Nobody", 2000)));
+
+        String body = awaitContent(result, "Marker");
+        String withoutMarker = body.substring(0, body.lastIndexOf("event: saved\ndata: {\"title\":\"Marker\""));
+        assertTrue(withoutMarker.lastIndexOf(last) > withoutMarker.lastIndexOf(
+                last.equals("event: saved") ? "event: deleted" : "event: saved"), body);
+    }
+
+    @Test
+    @DisplayName("Should end every subscription on shutdown")
+    void shouldEndSubscriptionsOnShutdown() throws Exception {
+        MvcResult result = mockMvc.perform(get("/events"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        publisher.destroy();
+
+        assertEquals(0, publisher.subscriberCount());
+        // Throws unless the emitter completed the async request
+        result.getAsyncResult(5000);
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            String body = result.getResponse().getContentAsString();
+            if (body.contains(expected)) {
+                return body;
+            }
+            Thread.sleep(10);
+        }
+        fail("No '" + expected + "' in " + result.getResponse().getContentAsString());
+        return null;
+    }
+
+    @RestController
+    static class EventsController {
+        private final BookEventPublisher publisher;
+
+        EventsController(BookEventPublisher publisher) {
+            this.publisher = publisher;
+        }
+
+        @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        ResponseBodyEmitter events() {
+            return publisher.subscribe();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.booklibrary.metrics;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("MeteredBookRepository Tests")
+class MeteredBookRepositoryTest {
+
+    private MeterRegistry registry;
+    private MeteredBookRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        repository = new MeteredBookRepository(new InMemoryBookRepository(null));
+        repository.registerMeters(registry);
+        repository.saveAll(List.of(new Book("1984", "George Orwell", 1949), new Book("Emma", "Jane Austen", 1815)));
+    }
+
+    @Test
+    @DisplayName("Should count every findByTitle call and its outcome")
+    void shouldCountLookups() {
+        for (int i = 0; i < 100; i++) {
+            repository.findByTitle("1984");
+        }
+        repository.findByTitle("Dune");
+
+        assertEquals(101, count("library.repository.calls", "method", "findByTitle"));
+        assertEquals(100, count("library.repository.lookups", "result", "hit"));
+        assertEquals(1, count("library.repository.lookups", "result", "miss"));
+    }
+
+    @Test
+    @DisplayName("Should count calls of every method")
+    void shouldCountCalls() {
+        repository.findAll();
+        repository.findByAuthor("Jane Austen");
+        repository.findByAuthor("George Orwell");
+
+        assertEquals(1, count("library.repository.calls", "method", "findAll"));
+        assertEquals(2, count("library.repository.calls", "method", "findByAuthor"));
+    }
+
+    @Test
+    @DisplayName("Should publish latency percentiles")
+    void shouldPublishPercentiles() {
+        repository.save(new Book("Dune", "Frank Herbert", 1965));
+
+        double p99 = registry.get("library.repository.latency").tags("method", "save", "quantile", "0.99")
+                .gauge().value();
+        double max = registry.get("library.repository.max").tags("method", "save").gauge().value();
+        assertTrue(p99 > 0);
+        assertTrue(max >= p99);
+        assertEquals(1, count("library.repository.calls", "method", "saveAll"));
+    }
+
+    private double count(String name, String tagKey, String tagValue) {
+        return registry.get(name).tag(tagKey, tagValue).functionCounter().count();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.booklibrary.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.booklibrary.model.Book;
+
+@DisplayName("Catalog snapshot format Tests")
+class CatalogSnapshotTest {
+
+    @Test
+    @DisplayName("Should read back every book across several blocks, with and without compression")
+    void shouldRoundTrip() throws IOException {
+        for (SnapshotCompression compression : SnapshotCompression.values()) {
+            assertRoundTrip(compression);
+        }
+    }
+
+    private static void assertRoundTrip(SnapshotCompression compression) throws IOException {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book("Cien años de soledad", "Gabriel García Márquez", 1967));
+        books.add(new Book("Cien años de soledad II", null, 1));
+        books.add(new Book("Ancient Tablet", "Unknown", -2000));
+        books.add(new Book("三体 \uD83D\uDE80", "刘慈欣", 2008));
+        for (int i = 0; i < 20_000; i++) {
+            books.add(new Book("The Collected Works of Author " + (i / 10) + ", Volume " + i, "Author " + (i / 10),
+                    1800 + i % 225));
+        }
+
+        byte[] snapshot = write(books, compression);
+        List<Book> read = new ArrayList<>();
+        CatalogSnapshotReader reader = new CatalogSnapshotReader(new ByteArrayInputStream(snapshot));
+        int blocks = 0;
+        List<Book> block;
+        while ((block = reader.readBlock()) != null) {
+            read.addAll(block);
+            blocks++;
+        }
+
+        assertEquals(books, read, compression.toString());
+        assertTrue(blocks > 1, compression + ": expected several blocks, got " + blocks);
+        assertNull(read.get(1).getAuthor());
+        assertEquals(-2000, read.get(2).getYear());
+        // Dictionary-coded: books of one author share the decoded name
+        assertTrue(read.get(4).getAuthor() == read.get(5).getAuthor());
+        assertEquals(books.size(), reader.getBooksRead());
+        assertNull(reader.readBlock());
+    }
+
+    @Test
+    @DisplayName("Should be much smaller than the same books as JSON")
+    void shouldBeCompact() throws IOException {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            books.add(new Book(String.format("Silent River %06d", i), "Author " + (i / 50), 1800 + i % 225));
+        }
+
+        int plain = write(books, SnapshotCompression.NONE).length;
+        int deflated = write(books, SnapshotCompression.DEFLATE).length;
+
+        // {"title":"Silent River 000000","author":"Author 0","year":1800} is about 60 bytes
+        assertTrue(plain < books.size() * 12, "plain snapshot is " + plain + " bytes");
+        assertTrue(deflated < plain, "deflated snapshot is " + deflated + " bytes");
+    }
+
+    @Test
+    @DisplayName("Should reject a block whose checksum does not match")
+    void shouldRejectCorruptBlock() throws IOException {
+        byte[] snapshot = write(List.of(new Book("1984", "George Orwell", 1949)), SnapshotCompression.NONE);
+        // Header (6 bytes) and block frame (12 bytes) come first; flip a bit of the payload
+        snapshot[20] ^= 1;
+
+        CatalogSnapshotReader reader = new CatalogSnapshotReader(new ByteArrayInputStream(snapshot));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::readBlock);
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should reject a truncated snapshot and one that is not a snapshot")
+    void shouldRejectTruncatedOrForeignInput() throws IOException {
+        byte[] snapshot = write(List.of(new Book("1984", "George Orwell", 1949)), SnapshotCompression.DEFLATE);
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length - 4);
+
+        CatalogSnapshotReader reader = new CatalogSnapshotReader(new ByteArrayInputStream(truncated));
+        assertEquals(1, reader.readBlock().size());
+        assertThrows(IllegalArgumentException.class, reader::readBlock);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CatalogSnapshotReader(new ByteArrayInputStream("[{\"title\":\"1984\"}]".getBytes())));
+    }
+
+    @Test
+    @DisplayName("Should reject a block whose counts decode to a negative number")
+    void shouldRejectNegativeVarint() throws IOException {
+        // One book, no new authors, nothing shared with the previous title, then a title
+        // length of ten bytes that set the sign bit of the decoded value
+        byte[] payload = {1, 0, 0, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1, 'x', 0, 0};
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(snapshot);
+        out.write(CatalogSnapshotWriter.MAGIC);
+        out.writeByte(CatalogSnapshotWriter.VERSION);
+        out.writeByte(SnapshotCompression.NONE.id());
+        out.writeInt(payload.length);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+
+        CatalogSnapshotReader reader = new CatalogSnapshotReader(new ByteArrayInputStream(snapshot.toByteArray()));
+
+        assertThrows(IllegalArgumentException.class, reader::readBlock);
+    }
+
+    private static byte[] write(List<Book> books, SnapshotCompression compression) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(out, compression);
+        for (Book book : books) {
+            writer.write(book);
+        }
+        assertEquals(books.size(), writer.finish());
+        return out.toByteArray();
+    }
+}
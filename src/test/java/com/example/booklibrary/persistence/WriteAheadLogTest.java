@@ -0,0 +1,134 @@
+package com.example.booklibrary.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+@DisplayName("WriteAheadLog Tests")
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should restore saves and deletes after a restart")
+    void shouldRestoreSavesAndDeletes() throws IOException {
+        BookRepository repository = openRepository();
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        repository.save(new Book("The Hobbit", null, 1938));
+        repository.deleteByTitle("1984");
+
+        BookRepository restored = openRepository();
+
+        assertEquals(1, restored.count());
+        Book hobbit = restored.findByTitle("the hobbit").orElseThrow();
+        assertEquals(null, hobbit.getAuthor());
+        assertEquals(1938, hobbit.getYear());
+    }
+
+    @Test
+    @DisplayName("Should restore a snapshot plus the log written after it")
+    void shouldRestoreSnapshotAndTail() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(directory);
+        BookRepository repository = new InMemoryBookRepository(null);
+        log.recover(repository);
+        repository.addMutationListener(log);
+        repository.saveAll(List.of(new Book("1984", "George Orwell", 1949), new Book("Dune", "Frank Herbert", 1965)));
+        log.snapshot(repository);
+        repository.save(new Book("Emma", "Jane Austen", 1815));
+        repository.deleteByTitle("Dune");
+        log.close();
+
+        assertTrue(files().stream().anyMatch(name -> name.startsWith("snapshot-")));
+        assertFalse(files().contains("wal-0.log"));
+
+        BookRepository restored = openRepository();
+        assertEquals(List.of("1984", "Emma"), titles(restored));
+    }
+
+    @Test
+    @DisplayName("Should drop a torn record at the end of the log")
+    void shouldTruncateTornTail() throws IOException {
+        BookRepository repository = openRepository();
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(new Book("Emma", "Jane Austen", 1815));
+
+        Path segment = directory.resolve("wal-1.log");
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        BookRepository restored = openRepository();
+        assertEquals(List.of("1984"), titles(restored));
+        assertTrue(Files.size(segment) < size - 3);
+
+        restored.save(new Book("Dune", "Frank Herbert", 1965));
+        assertEquals(List.of("1984", "Dune"), titles(openRepository()));
+    }
+
+    @Test
+    @DisplayName("Should fail every write after an I/O error and keep what was fsynced")
+    void shouldStopAtFirstFailure() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(directory);
+        BookRepository repository = new InMemoryBookRepository(null);
+        log.recover(repository);
+        repository.addMutationListener(log);
+        repository.save(new Book("1984", "George Orwell", 1949));
+
+        // The next segment cannot be opened, so rolling to it fails
+        Path blocked = Files.createDirectory(directory.resolve("wal-2.log"));
+        IOException failure = assertThrows(IOException.class, () -> log.snapshot(repository));
+
+        UncheckedIOException first = assertThrows(UncheckedIOException.class,
+                () -> repository.save(new Book("Emma", "Jane Austen", 1815)));
+        UncheckedIOException second = assertThrows(UncheckedIOException.class,
+                () -> repository.deleteByTitle("1984"));
+        assertSame(failure, first.getCause());
+        assertSame(failure, second.getCause());
+        assertThrows(IOException.class, () -> log.snapshot(repository));
+        log.close();
+
+        Files.delete(blocked);
+        assertEquals(List.of("1984"), titles(openRepository()));
+    }
+
+    // Each call stands for a restart: the log of the previous instance is simply abandoned
+    private BookRepository openRepository() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(directory);
+        BookRepository repository = new InMemoryBookRepository(null);
+        log.recover(repository);
+        repository.addMutationListener(log);
+        return repository;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> titles(BookRepository repository) {
+        return repository.findAll().stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+}
@@ -1,11 +1,20 @@
 package com.example.booklibrary.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,6 +48,37 @@ class BookRepositoryTest {
         assertEquals(2008, saved.getYear());
     }
 
+    @Test
+    @DisplayName("Should save many books at once with the last duplicate winning")
+    void shouldSaveAllBooks() {
+        repository.save(testBook);
+        List<Book> batch = List.of(
+                new Book("Effective Java", "Joshua Bloch", 2001),
+                new Book("clean code", "Uncle Bob", 2008),
+                new Book("EFFECTIVE JAVA", "Joshua Bloch", 2018));
+
+        List<Book> saved = repository.saveAll(batch);
+        assertEquals(2, saved.size());
+        assertEquals("clean code", saved.get(0).getTitle());
+        assertEquals("EFFECTIVE JAVA", saved.get(1).getTitle());
+        assertEquals(saved.get(1), repository.findByTitle("Effective Java").get());
+        assertTrue(saved.get(0).getVersion() > 0);
+        assertEquals(saved.get(1).getVersion(), repository.findByTitle("Effective Java").get().getVersion());
+        assertEquals(2, repository.count());
+        assertEquals(2018, repository.findByTitle("Effective Java").get().getYear());
+        assertEquals("Uncle Bob", repository.findByTitle("Clean Code").get().getAuthor());
+        assertTrue(repository.findByYearBetween(2001, 2001).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject the whole batch when one book has no title")
+    void shouldRejectBatchWithInvalidBook() {
+        List<Book> batch = Arrays.asList(testBook, new Book(null, "Author", 2000));
+
+        assertThrows(IllegalArgumentException.class, () -> repository.saveAll(batch));
+        assertEquals(0, repository.count());
+    }
+
     @Test
     @DisplayName("Should find book by title")
     void shouldFindBookByTitle() {
@@ -50,6 +90,28 @@ class BookRepositoryTest {
         assertEquals("Robert C. Martin", found.get().getAuthor());
     }
 
+    @Test
+    @DisplayName("Should find book by title ignoring case and surrounding whitespace")
+    void shouldFindBookByTitleIgnoringCase() {
+        repository.save(testBook);
+
+        assertTrue(repository.findByTitle("  CLEAN code ").isPresent());
+        assertTrue(repository.deleteByTitle("clean CODE"));
+        assertFalse(repository.findByTitle("Clean Code").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should fold Unicode case when looking up titles")
+    void shouldFoldUnicodeCaseWhenLookingUpTitles() {
+        repository.save(new Book("Die Straße", "Unknown", 1990));
+        repository.save(new Book("Istanbul", "Orhan Pamuk", 2003));
+
+        assertTrue(repository.findByTitle("DIE STRASSE").isPresent());
+        assertTrue(repository.findByTitle("İstanbul").isPresent());
+        assertTrue(repository.findByTitle("ıstanbul").isPresent());
+        assertEquals(2, repository.count());
+    }
+
     @Test
     @DisplayName("Should return empty when book not found")
     void shouldReturnEmptyWhenBookNotFound() {
@@ -67,6 +129,113 @@ class BookRepositoryTest {
         assertEquals(2, books.size());
     }
 
+    @Test
+    @DisplayName("Should return books sorted by title ignoring case")
+    void shouldReturnBooksSortedByTitle() {
+        repository.save(new Book("the Hobbit", "J.R.R. Tolkien", 1937));
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(new Book("Frankenstein", "Mary Shelley", 1818));
+        repository.deleteByTitle("1984");
+        repository.save(new Book("Animal Farm", "George Orwell", 1945));
+
+        List<Book> books = repository.findAll();
+        assertEquals(List.of("Animal Farm", "Frankenstein", "the Hobbit"),
+                books.stream().map(Book::getTitle).toList());
+    }
+
+    @Test
+    @DisplayName("Should return pages of books after a title")
+    void shouldReturnPagesAfterTitle() {
+        repository.save(new Book("C", "Author", 2000));
+        repository.save(new Book("a", "Author", 2000));
+        repository.save(new Book("B", "Author", 2000));
+
+        assertEquals(List.of("a", "B"),
+                repository.findPage(null, 2).stream().map(Book::getTitle).toList());
+        assertEquals(List.of("C"),
+                repository.findPage("b", 2).stream().map(Book::getTitle).toList());
+        assertTrue(repository.findPage("C", 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should suggest titles starting with a prefix")
+    void shouldSuggestTitlesStartingWithPrefix() {
+        repository.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        repository.save(new Book("The Lord of the Rings", "J.R.R. Tolkien", 1954));
+        repository.save(new Book("Theatre", "Somebody", 2000));
+        repository.save(testBook);
+
+        assertEquals(List.of("The Hobbit", "The Lord of the Rings", "Theatre"),
+                repository.suggestTitles("THE", 10));
+        assertEquals(List.of("The Hobbit", "The Lord of the Rings"), repository.suggestTitles("the ", 10));
+        assertEquals(List.of("The Hobbit"), repository.suggestTitles("the", 1));
+        assertTrue(repository.suggestTitles("xyz", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should find books by author ignoring case")
+    void shouldFindBooksByAuthor() {
+        repository.save(new Book("The Lord of the Rings", "J.R.R. Tolkien", 1954));
+        repository.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        repository.save(testBook);
+
+        assertEquals(List.of("The Hobbit", "The Lord of the Rings"),
+                repository.findByAuthor("j.r.r. tolkien").stream().map(Book::getTitle).toList());
+        assertTrue(repository.findByAuthor("Unknown").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should find books by year range")
+    void shouldFindBooksByYearRange() {
+        repository.save(new Book("Frankenstein", "Mary Shelley", 1818));
+        repository.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(testBook);
+
+        assertEquals(List.of("The Hobbit", "1984"),
+                repository.findByYearBetween(1937, 1949).stream().map(Book::getTitle).toList());
+        assertTrue(repository.findByYearBetween(1950, 2000).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep secondary indexes in step with updates and deletes")
+    void shouldKeepSecondaryIndexesInStep() {
+        repository.save(testBook);
+        repository.save(new Book("Clean Code", "Uncle Bob", 2009));
+
+        assertTrue(repository.findByAuthor("Robert C. Martin").isEmpty());
+        assertEquals(1, repository.findByAuthor("Uncle Bob").size());
+        assertTrue(repository.findByYearBetween(2008, 2008).isEmpty());
+        assertEquals(1, repository.findByYearBetween(2009, 2009).size());
+
+        repository.deleteByTitle("Clean Code");
+        assertTrue(repository.findByAuthor("Uncle Bob").isEmpty());
+        assertTrue(repository.findByYearBetween(0, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should apply a write before notifying listeners")
+    void shouldApplyWriteBeforeNotifyingListeners() {
+        List<String> seen = new ArrayList<>();
+        repository.addMutationListener(new BookMutationListener() {
+            @Override
+            public void bookSaved(Book previous, Book saved) {
+                seen.add(repository.findByTitle(saved.getTitle()).map(Book::getAuthor).orElse("missing"));
+            }
+
+            @Override
+            public void bookDeleted(Book removed) {
+                seen.add(repository.findByTitle(removed.getTitle()).map(Book::getAuthor).orElse("missing"));
+            }
+        });
+
+        repository.save(testBook);
+        repository.save(new Book("Clean Code", "Uncle Bob", 2009));
+        repository.deleteByTitle("Clean Code");
+
+        assertEquals(List.of("Robert C. Martin", "Uncle Bob", "missing"), seen);
+    }
+
     @Test
     @DisplayName("Should return empty list when no books exist")
     void shouldReturnEmptyListWhenNoBooksExist() {
@@ -90,6 +259,68 @@ class BookRepositoryTest {
         assertEquals("Uncle Bob", found.get().getAuthor());
     }
 
+    @Test
+    @DisplayName("Should save only absent titles and replace only the expected version")
+    void shouldSaveConditionally() {
+        Book first = repository.saveIfAbsent(testBook).orElseThrow();
+        assertTrue(repository.saveIfAbsent(new Book("clean code", "Someone", 2020)).isEmpty());
+
+        Optional<Book> replaced = repository.replaceIfVersion(new Book("Clean Code", "Uncle Bob", 2009), first.getVersion());
+        assertTrue(replaced.isPresent());
+        assertTrue(repository.replaceIfVersion(new Book("Clean Code", "Someone", 2020), first.getVersion()).isEmpty());
+        assertTrue(repository.replaceIfVersion(new Book("Missing", "Someone", 2020), first.getVersion()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repository.replaceIfVersion(testBook, 0));
+
+        assertEquals("Uncle Bob", repository.findByTitle("Clean Code").orElseThrow().getAuthor());
+        assertEquals(List.of("Clean Code"), repository.findByAuthor("Uncle Bob").stream().map(Book::getTitle).toList());
+        assertTrue(repository.findByAuthor("Robert C. Martin").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should delete only the expected version")
+    void shouldDeleteConditionally() {
+        Book first = repository.save(testBook);
+        Book second = repository.save(new Book("Clean Code", "Uncle Bob", 2009));
+
+        assertFalse(repository.deleteIfVersion("Clean Code", first.getVersion()));
+        assertFalse(repository.deleteIfVersion("Missing", second.getVersion()));
+        assertThrows(IllegalArgumentException.class, () -> repository.deleteIfVersion("Clean Code", 0));
+        assertTrue(repository.deleteIfVersion("clean code", second.getVersion()));
+        assertTrue(repository.findByTitle("Clean Code").isEmpty());
+        assertTrue(repository.findByAuthor("Uncle Bob").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should let exactly one concurrent conditional write of a title win")
+    void shouldLetOneConcurrentConditionalWriteWin() throws InterruptedException {
+        Book stored = repository.save(testBook);
+        int threads = 8;
+        AtomicInteger wins = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int year = 2000 + i;
+            writers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (repository.replaceIfVersion(new Book("Clean Code", "Robert C. Martin", year), stored.getVersion()).isPresent()) {
+                    wins.incrementAndGet();
+                }
+            });
+            writers[i].start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(1, wins.get());
+        assertEquals(1, repository.findByYearBetween(2000, 2000 + threads).size());
+    }
+
     @Test
     @DisplayName("Should delete book by title")
     void shouldDeleteBookByTitle() {
@@ -133,10 +364,85 @@ class BookRepositoryTest {
     @Test
     @DisplayName("Should handle book with null title")
     void shouldHandleBookWithNullTitle() {
-        Book bookWithNullTitle = new Book();
-        bookWithNullTitle.setAuthor("Some Author");
-        bookWithNullTitle.setYear(2020);
+        Book bookWithNullTitle = new Book(null, "Some Author", 2020);
         
         assertThrows(IllegalArgumentException.class, () -> repository.save(bookWithNullTitle));
     }
+
+    @Test
+    @DisplayName("Should share one author string between books of the same author")
+    void shouldShareAuthorStrings() {
+        Book animalFarm = repository.save(new Book("Animal Farm", new String("George Orwell"), 1945));
+        Book homage = repository.save(new Book("Homage to Catalonia", new String("George Orwell"), 1938));
+
+        assertSame(animalFarm.getAuthor(), homage.getAuthor());
+        assertSame(homage, repository.findByTitle("Homage to Catalonia").orElseThrow());
+        assertEquals(new Book("Homage to Catalonia", "George Orwell", 1938), homage);
+    }
+
+    @Test
+    @DisplayName("Should advance catalog and book versions on every write")
+    void shouldAdvanceVersionsOnWrites() {
+        long initial = repository.getCatalogVersion();
+        Book first = repository.save(testBook);
+        long afterSave = repository.getCatalogVersion();
+        Book second = repository.save(new Book("Clean Code", "Robert C. Martin", 2009));
+        Book other = repository.save(new Book("Refactoring", "Martin Fowler", 1999));
+
+        assertTrue(afterSave > initial);
+        assertTrue(second.getVersion() > first.getVersion());
+        // Saving another title leaves the book's version alone
+        assertEquals(second.getVersion(), repository.findByTitle("clean code").orElseThrow().getVersion());
+        assertNotEquals(other.getVersion(), second.getVersion());
+
+        long beforeDelete = repository.getCatalogVersion();
+        repository.deleteByTitle("Refactoring");
+        long afterDelete = repository.getCatalogVersion();
+        assertTrue(afterDelete > beforeDelete);
+        // Nothing changed, so neither does the version
+        assertFalse(repository.deleteByTitle("Refactoring"));
+        assertEquals(afterDelete, repository.getCatalogVersion());
+
+        repository.saveAll(List.of(new Book("Dune", "Frank Herbert", 1965)));
+        assertTrue(repository.getCatalogVersion() > afterDelete);
+    }
+
+    @Test
+    @DisplayName("Should serve loaded books while loading in the background")
+    void shouldServeWhileLoadingInBackground() throws Exception {
+        CountDownLatch halfLoaded = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        InMemoryBookRepository loading = new InMemoryBookRepository(target -> {
+            target.save(new Book("1984", "George Orwell", 1949));
+            halfLoaded.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            target.save(new Book("Dune", "Frank Herbert", 1965));
+        }, true);
+
+        halfLoaded.await();
+        CompletableFuture<Void> loaded = loading.whenLoaded().toCompletableFuture();
+        assertFalse(loaded.isDone());
+        assertTrue(loading.findByTitle("1984").isPresent());
+        assertFalse(loading.findByTitle("Dune").isPresent());
+
+        finish.countDown();
+        loaded.get(10, TimeUnit.SECONDS);
+        assertTrue(loading.findByTitle("Dune").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should report a failed background load")
+    void shouldReportFailedBackgroundLoad() {
+        InMemoryBookRepository failing = new InMemoryBookRepository(target -> {
+            throw new IllegalStateException("Corrupt dump");
+        }, true);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> failing.whenLoaded().toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals("Corrupt dump", e.getCause().getMessage());
+    }
 }
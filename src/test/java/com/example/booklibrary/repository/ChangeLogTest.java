@@ -0,0 +1,107 @@
+package com.example.booklibrary.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookChange;
+import com.example.booklibrary.model.BookChanges;
+
+@DisplayName("ChangeLog Tests")
+class ChangeLogTest {
+
+    private InMemoryBookRepository repository;
+    private ChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryBookRepository(null);
+        changeLog = new ChangeLog(repository, 4);
+    }
+
+    @Test
+    @DisplayName("Should return the saves and deletes after a sequence in order")
+    void shouldReturnChangesAfterSequence() {
+        long start = changeLog.changesSince(null, 10).getNext();
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(new Book("Dune", "Frank Herbert", 1965));
+        repository.deleteByTitle("1984");
+
+        BookChanges all = changeLog.changesSince(start, 10);
+        assertFalse(all.isResync());
+        assertEquals(start + 3, all.getNext());
+        assertEquals(List.of("SAVED Dune", "DELETED 1984"),
+                all.getChanges().subList(1, 3).stream()
+                        .map(change -> change.getType() + " " + change.getTitle())
+                        .collect(Collectors.toList()));
+        assertNull(all.getChanges().get(2).getBook());
+
+        BookChanges firstTwo = changeLog.changesSince(start, 2);
+        assertEquals(start + 2, firstTwo.getNext());
+        BookChange dune = firstTwo.getChanges().get(1);
+        assertEquals(new Book("Dune", "Frank Herbert", 1965), dune.getBook());
+
+        BookChanges none = changeLog.changesSince(all.getNext(), 10);
+        assertTrue(none.getChanges().isEmpty());
+        assertEquals(all.getNext(), none.getNext());
+    }
+
+    @Test
+    @DisplayName("Should ask for a resync once a sequence is no longer retained")
+    void shouldAskForResyncWhenBehind() {
+        long start = changeLog.latestSequence();
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Book("Book " + i, "Author", 2000 + i));
+        }
+
+        BookChanges aged = changeLog.changesSince(start, 10);
+        assertTrue(aged.isResync());
+        assertEquals(start + 5, aged.getNext());
+        assertTrue(aged.getChanges().isEmpty());
+
+        // The four newest changes are still there
+        BookChanges retained = changeLog.changesSince(start + 1, 10);
+        assertFalse(retained.isResync());
+        assertEquals(4, retained.getChanges().size());
+
+        assertTrue(changeLog.changesSince(start + 6, 10).isResync());
+    }
+
+    @Test
+    @DisplayName("Should hand out every change of concurrent writers exactly once and in sequence")
+    void shouldRecordConcurrentWritersWithoutGaps() throws InterruptedException {
+        ChangeLog log = new ChangeLog(repository, 100_000);
+        long start = log.latestSequence();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int writer = i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    repository.save(new Book("Book " + writer + "-" + j, "Author", 2000));
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        BookChanges changes = log.changesSince(start, 10_000);
+        assertFalse(changes.isResync());
+        assertEquals(4000, changes.getChanges().size());
+        for (int i = 0; i < 4000; i++) {
+            assertEquals(start + i + 1, changes.getChanges().get(i).getSequence());
+        }
+        assertEquals(log.latestSequence(), changes.getNext());
+    }
+}
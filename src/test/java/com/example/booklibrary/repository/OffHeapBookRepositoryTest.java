@@ -0,0 +1,231 @@
+package com.example.booklibrary.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.booklibrary.model.Book;
+
+@DisplayName("OffHeapBookRepository Tests")
+class OffHeapBookRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private OffHeapBookRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new OffHeapBookRepository(directory, null);
+        repository.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(new Book("Animal Farm", "George Orwell", 1945));
+        repository.save(new Book("The Lord of the Rings", "J.R.R. Tolkien", 1954));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.destroy();
+    }
+
+    @Test
+    @DisplayName("Should find, replace and delete books by title ignoring case")
+    void shouldFindReplaceAndDelete() {
+        Book original = repository.findByTitle("THE HOBBIT").orElseThrow();
+        assertEquals(1937, original.getYear());
+        long catalogVersion = repository.getCatalogVersion();
+
+        Book saved = repository.save(new Book("the hobbit", null, 1938));
+        assertEquals(4, repository.count());
+        Book replaced = repository.findByTitle("The Hobbit").orElseThrow();
+        assertEquals("the hobbit", replaced.getTitle());
+        assertNull(replaced.getAuthor());
+        assertEquals(saved.getVersion(), replaced.getVersion());
+        assertTrue(replaced.getVersion() > original.getVersion());
+        assertTrue(repository.getCatalogVersion() > catalogVersion);
+
+        assertTrue(repository.deleteByTitle("1984"));
+        assertFalse(repository.deleteByTitle("1984"));
+        assertTrue(repository.findByTitle("1984").isEmpty());
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    @DisplayName("Should save only absent titles and replace only the expected version")
+    void shouldSaveConditionally() {
+        Book original = repository.findByTitle("The Hobbit").orElseThrow();
+        assertTrue(repository.saveIfAbsent(new Book("THE HOBBIT", "Someone", 2020)).isEmpty());
+        assertTrue(repository.saveIfAbsent(new Book("Dune", "Frank Herbert", 1965)).isPresent());
+
+        Book replaced = repository.replaceIfVersion(new Book("The Hobbit", "J.R.R. Tolkien", 1938), original.getVersion())
+                .orElseThrow();
+        assertTrue(repository.replaceIfVersion(new Book("The Hobbit", "Someone", 2020), original.getVersion()).isEmpty());
+        assertEquals(replaced.getVersion(), repository.findByTitle("the hobbit").orElseThrow().getVersion());
+        assertEquals(5, repository.count());
+
+        assertFalse(repository.deleteIfVersion("The Hobbit", original.getVersion()));
+        assertTrue(repository.deleteIfVersion("the hobbit", replaced.getVersion()));
+        assertEquals(4, repository.count());
+    }
+
+    @Test
+    @DisplayName("Should answer ordered queries like the in-memory repository")
+    void shouldAnswerOrderedQueries() {
+        assertEquals(List.of("1984", "Animal Farm", "The Hobbit", "The Lord of the Rings"), titles(repository.findAll()));
+        assertEquals(List.of("The Hobbit", "The Lord of the Rings"), titles(repository.findPage("animal farm", 10)));
+        assertEquals(List.of("1984"), titles(repository.findPage(null, 1)));
+        assertEquals(List.of("The Hobbit", "The Lord of the Rings"), repository.suggestTitles("the ", 10));
+        assertEquals(List.of("1984", "Animal Farm"), titles(repository.findByAuthor("george orwell")));
+        assertEquals(List.of("Animal Farm", "1984"), titles(repository.findByYearBetween(1940, 1950)));
+        assertEquals(4, repository.streamAll().count());
+    }
+
+    @Test
+    @DisplayName("Should keep the catalog across a restart")
+    void shouldPersistAcrossRestart() throws IOException {
+        repository.deleteByTitle("Animal Farm");
+        repository.destroy();
+
+        repository = new OffHeapBookRepository(directory, target -> target.save(new Book("Sample", "Sample", 2000)));
+
+        assertEquals(3, repository.count());
+        assertTrue(repository.findByTitle("Sample").isEmpty());
+        assertEquals("George Orwell", repository.findByTitle("1984").orElseThrow().getAuthor());
+    }
+
+    @Test
+    @DisplayName("Should grow the index for large batches")
+    void shouldGrowIndex() throws IOException {
+        List<Book> batch = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            batch.add(new Book("Title " + i, "Author " + (i % 7), 1900 + i % 100));
+        }
+        List<Book> saved = repository.saveAll(batch);
+        assertEquals(5000, saved.size());
+        assertEquals("Title 0", saved.get(0).getTitle());
+        assertEquals(repository.findByTitle("Title 42").orElseThrow().getVersion(),
+                saved.stream().filter(book -> book.getTitle().equals("Title 42")).findFirst().orElseThrow().getVersion());
+        for (int i = 0; i < 5000; i += 2) {
+            repository.deleteByTitle("title " + i);
+        }
+
+        assertEquals(2504, repository.count());
+        assertEquals("Author 1", repository.findByTitle("TITLE 4999").orElseThrow().getAuthor());
+
+        repository.destroy();
+        repository = new OffHeapBookRepository(directory, null);
+        assertEquals(2504, repository.count());
+        assertTrue(repository.findByTitle("Title 4998").isEmpty());
+        assertEquals(1901, repository.findByTitle("Title 1").orElseThrow().getYear());
+    }
+
+    @Test
+    @DisplayName("Should compact replaced records without disturbing readers or versions")
+    void shouldCompactDeadRecords() throws IOException {
+        repository.destroy();
+        repository = new OffHeapBookRepository(directory, null, DataSize.ofKilobytes(16));
+        AtomicInteger compactions = new AtomicInteger();
+        repository.addMutationListener(new BookMutationListener() {
+            @Override
+            public void bookSaved(Book previous, Book saved) {
+            }
+
+            @Override
+            public void bookDeleted(Book removed) {
+            }
+
+            @Override
+            public void versionsChanged() {
+                compactions.incrementAndGet();
+            }
+        });
+        Book original = repository.findByTitle("The Hobbit").orElseThrow();
+        Stream<Book> started = repository.streamAll();
+
+        for (int i = 0; i < 2000; i++) {
+            repository.save(new Book("Draft", "Nobody", 1900 + i % 100));
+        }
+        assertTrue(repository.deleteByTitle("Draft"));
+
+        assertTrue(compactions.get() > 0);
+        assertEquals(List.of("1984", "Animal Farm", "The Hobbit", "The Lord of the Rings"),
+                started.map(Book::getTitle).collect(Collectors.toList()));
+        assertEquals(List.of("1984", "Animal Farm", "The Hobbit", "The Lord of the Rings"), titles(repository.findAll()));
+        Book moved = repository.findByTitle("The Hobbit").orElseThrow();
+        assertTrue(repository.replaceIfVersion(new Book("The Hobbit", "Someone", 2020), original.getVersion()).isEmpty());
+        assertEquals(List.of("Animal Farm", "1984"), titles(repository.findByYearBetween(1940, 1950)));
+
+        repository.destroy();
+        repository = new OffHeapBookRepository(directory, null);
+        assertEquals(moved.getVersion(), repository.findByTitle("the hobbit").orElseThrow().getVersion());
+        assertEquals(4, repository.count());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("books.dat", "books.idx"),
+                    files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep title order through merges, deletes, compaction and a restart")
+    void shouldKeepTitleOrder() throws IOException {
+        repository.destroy();
+        repository = new OffHeapBookRepository(directory, null, DataSize.ofKilobytes(64));
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (Book book : repository.findAll()) {
+            expected.put(TitleNormalizer.normalize(book.getTitle()), book.getTitle());
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String title = "Book " + random.nextInt(6000);
+            if (random.nextInt(4) == 0) {
+                repository.deleteByTitle(title);
+                expected.remove(TitleNormalizer.normalize(title));
+            } else {
+                repository.save(new Book(title, "Author", 2000));
+                expected.put(TitleNormalizer.normalize(title), title);
+            }
+            if (i % 5000 == 4999) {
+                assertOrder(new ArrayList<>(expected.values()));
+            }
+        }
+
+        repository.destroy();
+        repository = new OffHeapBookRepository(directory, null);
+        assertOrder(new ArrayList<>(expected.values()));
+        assertEquals(List.of("Book 5", "Book 50"), repository.suggestTitles("book 5", 2).subList(0, 2));
+    }
+
+    private void assertOrder(List<String> expected) {
+        assertEquals(expected, titles(repository.findAll()));
+        assertEquals(expected, repository.streamAll().map(Book::getTitle).collect(Collectors.toList()));
+        List<String> paged = new ArrayList<>();
+        String after = null;
+        for (List<Book> page = repository.findPage(null, 500); !page.isEmpty(); page = repository.findPage(after, 500)) {
+            paged.addAll(titles(page));
+            after = page.get(page.size() - 1).getTitle();
+        }
+        assertEquals(expected, paged);
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.booklibrary.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.booklibrary.model.Book;
+import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.InMemoryBookRepository;
+
+@DisplayName("BookSearchIndex Tests")
+class BookSearchIndexTest {
+
+    private BookRepository repository;
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryBookRepository(null);
+        repository.save(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        searchIndex = new BookSearchIndex(repository);
+        repository.save(new Book("The Lord of the Rings", "J.R.R. Tolkien", 1954));
+        repository.save(new Book("1984", "George Orwell", 1949));
+        repository.save(new Book("Animal Farm", "George Orwell", 1945));
+    }
+
+    @Test
+    @DisplayName("Should find books by title and author terms")
+    void shouldFindBooksByTerms() {
+        assertEquals(List.of("1984"), titles(searchIndex.search("1984", 10)));
+        assertEquals(List.of("Animal Farm", "1984"), titles(searchIndex.search("orwell farm", 10)));
+    }
+
+    @Test
+    @DisplayName("Should match the last query term as a prefix")
+    void shouldMatchLastTermAsPrefix() {
+        assertEquals(List.of("The Hobbit"), titles(searchIndex.search("hob", 10)));
+    }
+
+    @Test
+    @DisplayName("Should tolerate typos")
+    void shouldTolerateTypos() {
+        assertEquals(List.of("The Hobbit"), titles(searchIndex.search("hobit", 10)));
+        assertEquals(2, searchIndex.search("tolkein", 10).size());
+    }
+
+    @Test
+    @DisplayName("Should follow repository updates and deletes")
+    void shouldFollowRepositoryChanges() {
+        repository.save(new Book("The Hobbit", "Bilbo Baggins", 1937));
+        repository.deleteByTitle("1984");
+
+        assertEquals(List.of("The Hobbit"), titles(searchIndex.search("baggins", 10)));
+        assertEquals(List.of("The Lord of the Rings"), titles(searchIndex.search("tolkien", 10)));
+        assertTrue(searchIndex.search("1984", 10).isEmpty());
+        assertEquals(3, searchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Should keep results after compacting deleted documents")
+    void shouldKeepResultsAfterCompaction() {
+        for (int i = 0; i < 3000; i++) {
+            repository.save(new Book("Draft " + i, "Nobody", 2000));
+            repository.deleteByTitle("Draft " + i);
+        }
+
+        assertEquals(4, searchIndex.size());
+        assertEquals(List.of("The Hobbit"), titles(searchIndex.search("hobbit", 10)));
+        assertTrue(searchIndex.search("draft", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should index a background load without undoing writes made meanwhile")
+    void shouldIndexBackgroundLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        repository = new InMemoryBookRepository(target -> {
+            target.save(new Book("Dune", "Frank Herbert", 1965));
+            target.save(new Book("Emma", "Jane Austen", 1815));
+            target.save(new Book("Persuasion", "Jane Austen", 1817));
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            target.save(new Book("Ulysses", "James Joyce", 1922));
+        }, true);
+        while (repository.count() < 3) {
+            Thread.onSpinWait();
+        }
+        searchIndex = new BookSearchIndex(repository);
+        repository.save(new Book("Dune", "Brian Herbert", 1965));
+        repository.deleteByTitle("Emma");
+
+        release.countDown();
+        repository.whenLoaded().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        // The scan of what was loaded before the index runs right after the load completes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (searchIndex.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(3, searchIndex.size());
+        assertEquals(List.of("Persuasion"), titles(searchIndex.search("austen", 10)));
+        assertEquals(List.of("Dune"), titles(searchIndex.search("brian", 10)));
+        assertTrue(searchIndex.search("frank", 10).isEmpty());
+        assertEquals(List.of("Ulysses"), titles(searchIndex.search("joyce", 10)));
+    }
+
+    @Test
+    @DisplayName("Should have applied every write of concurrent writers once they return")
+    void shouldApplyConcurrentWrites() throws InterruptedException {
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int writer = i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    repository.save(new Book("Volume " + writer + "-" + j, "Writer" + writer, 2000));
+                    if (j % 2 == 1) {
+                        repository.deleteByTitle("Volume " + writer + "-" + j);
+                    }
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        assertEquals(4 + 4 * 250, searchIndex.size());
+        assertEquals(List.of("Volume 2-42"), titles(searchIndex.search("volume 2 42", 1)));
+    }
+
+    @Test
+    @DisplayName("Should limit the number of results")
+    void shouldLimitResults() {
+        assertEquals(1, searchIndex.search("the", 1).size());
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).toList();
+    }
+}
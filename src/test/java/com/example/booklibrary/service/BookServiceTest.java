@@ -1,26 +1,57 @@
 package com.example.booklibrary.service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.example.booklibrary.events.BookEventPublisher;
+import com.example.booklibrary.exception.BookAlreadyExistsException;
 import com.example.booklibrary.exception.BookNotFoundException;
+import com.example.booklibrary.exception.BookVersionMismatchException;
+import com.example.booklibrary.exception.CatalogLoadingException;
 import com.example.booklibrary.model.Book;
+import com.example.booklibrary.model.BookBatchResult;
+import com.example.booklibrary.model.BookPage;
+import com.example.booklibrary.model.BookChanges;
+import com.example.booklibrary.model.SnapshotImportResult;
+import com.example.booklibrary.persistence.CatalogSnapshotWriter;
+import com.example.booklibrary.persistence.SnapshotCompression;
 import com.example.booklibrary.repository.BookRepository;
+import com.example.booklibrary.repository.ChangeLog;
+import com.example.booklibrary.search.BookSearchIndex;
 
 /**
  * Unit tests for BookService.
@@ -32,11 +63,27 @@ class BookServiceTest {
     @Mock
     private BookRepository mockRepository;
     
+    @Mock
+    private BookSearchIndex mockSearchIndex;
+    
+    @Mock
+    private ChangeLog mockChangeLog;
+    
+    @Mock
+    private BookEventPublisher mockEventPublisher;
+    
     private BookService bookService;
     
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    
     @BeforeEach
     void setUp() {
-        bookService = new BookService(mockRepository);
+        bookService = new BookService(mockRepository, mockSearchIndex, mockChangeLog, mockEventPublisher,
+                Duration.ofMillis(50), Duration.ofSeconds(5));
+        lenient().when(mockRepository.whenLoaded()).thenReturn(loaded);
+        lenient().when(mockEventPublisher.publishing(any())).thenAnswer(
+            invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        loaded.complete(null);
     }
     
     @Test
@@ -56,6 +103,96 @@ class BookServiceTest {
         verify(mockRepository).findAll();
     }
     
+    @Test
+    void getBooksPage_WhenMoreBooksFollow_ShouldReturnCursorOfLastTitle() {
+        // Given
+        Book first = new Book("1984", "George Orwell", 1949);
+        Book second = new Book("Dune", "Frank Herbert", 1965);
+        Book third = new Book("The Hobbit", "J.R.R. Tolkien", 1937);
+        when(mockRepository.findPage(null, 3)).thenReturn(Arrays.asList(first, second, third));
+        when(mockRepository.findPage("Dune", 3)).thenReturn(Arrays.asList(third));
+        
+        // When
+        BookPage page = bookService.getBooksPage(null, 2);
+        BookPage nextPage = bookService.getBooksPage(page.getNextCursor(), 2);
+        
+        // Then
+        assertEquals(Arrays.asList(first, second), page.getBooks());
+        assertEquals(Arrays.asList(third), nextPage.getBooks());
+        assertNull(nextPage.getNextCursor());
+    }
+    
+    @Test
+    void getBooksPage_WithInvalidLimit_ShouldThrowException() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> bookService.getBooksPage(null, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> bookService.getBooksPage(null, BookService.MAX_PAGE_SIZE + 1));
+        verifyNoInteractions(mockRepository);
+    }
+    
+    @Test
+    void getBooksPage_WithMalformedCursor_ShouldThrowException() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> bookService.getBooksPage("not base64!", 10)
+        );
+        
+        assertEquals("Invalid page cursor", exception.getMessage());
+        verifyNoInteractions(mockRepository);
+    }
+    
+    @Test
+    void getBooksByAuthor_WithEmptyAuthor_ShouldThrowException() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> bookService.getBooksByAuthor("  ")
+        );
+        
+        assertEquals("Book author is required", exception.getMessage());
+        verifyNoInteractions(mockRepository);
+    }
+    
+    @Test
+    void getBooksByYearRange_WithReversedRange_ShouldThrowException() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> bookService.getBooksByYearRange(2000, 1900)
+        );
+        
+        assertEquals("yearFrom must not be greater than yearTo", exception.getMessage());
+        verifyNoInteractions(mockRepository);
+    }
+    
+    @Test
+    void searchBooks_ShouldReturnResultsFromSearchIndex() {
+        // Given
+        List<Book> expectedBooks = Arrays.asList(new Book("The Hobbit", "J.R.R. Tolkien", 1937));
+        when(mockSearchIndex.search("hobit", 10)).thenReturn(expectedBooks);
+        
+        // When
+        List<Book> result = bookService.searchBooks("hobit", 10);
+        
+        // Then
+        assertEquals(expectedBooks, result);
+        verify(mockSearchIndex).search("hobit", 10);
+    }
+    
+    @Test
+    void searchBooks_WithEmptyQuery_ShouldThrowException() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> bookService.searchBooks(" ", 10)
+        );
+        
+        assertEquals("Search query is required", exception.getMessage());
+        verifyNoInteractions(mockSearchIndex);
+    }
+    
     @Test
     void getBookByTitle_WhenBookExists_ShouldReturnBook() {
         // Given
@@ -86,18 +223,133 @@ class BookServiceTest {
         verify(mockRepository).findByTitle(title);
     }
     
+    @Test
+    void getBookByTitle_WhileLoading_ShouldFindLoadedBookAtOnce() {
+        // Given
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        when(mockRepository.whenLoaded()).thenReturn(loading);
+        Book book = new Book("1984", "George Orwell", 1949);
+        when(mockRepository.findByTitle("1984")).thenReturn(Optional.of(book));
+        
+        // When
+        Optional<Book> result = bookService.getBookByTitle("1984");
+        
+        // Then
+        assertEquals(Optional.of(book), result);
+        assertFalse(bookService.isCatalogLoaded());
+    }
+    
+    @Test
+    void getBookByTitle_WhenMissingWhileLoading_ShouldAskToRetryLater() {
+        // Given
+        when(mockRepository.whenLoaded()).thenReturn(new CompletableFuture<>());
+        when(mockRepository.findByTitle("Dune")).thenReturn(Optional.empty());
+        
+        // When & Then
+        CatalogLoadingException exception = assertThrows(
+            CatalogLoadingException.class,
+            () -> bookService.getBookByTitle("Dune")
+        );
+        
+        assertEquals(Duration.ofSeconds(5), exception.getRetryAfter());
+    }
+    
+    @Test
+    void getBookByTitle_WhenMissingWhileLoading_ShouldLookAgainOnceLoaded() {
+        // Given
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        when(mockRepository.whenLoaded()).thenReturn(loading);
+        Book book = new Book("Dune", "Frank Herbert", 1965);
+        when(mockRepository.findByTitle("Dune")).thenAnswer(invocation -> {
+            if (loading.isDone()) {
+                return Optional.of(book);
+            }
+            loading.complete(null);
+            return Optional.empty();
+        });
+        
+        // When
+        Optional<Book> result = bookService.getBookByTitle("Dune");
+        
+        // Then
+        assertEquals(Optional.of(book), result);
+    }
+    
+    @Test
+    void addBook_WhileLoading_ShouldAskToRetryLater() {
+        // Given
+        when(mockRepository.whenLoaded()).thenReturn(new CompletableFuture<>());
+        
+        // When & Then
+        assertThrows(CatalogLoadingException.class,
+            () -> bookService.addBook(new Book("Dune", "Frank Herbert", 1965)));
+        verify(mockRepository, never()).saveIfAbsent(any());
+    }
+    
     @Test
     void addBook_WithValidBook_ShouldSaveAndReturnBook() {
         // Given
         Book bookToAdd = new Book("New Book", "New Author", 2023);
-        when(mockRepository.save(bookToAdd)).thenReturn(bookToAdd);
+        when(mockRepository.saveIfAbsent(bookToAdd)).thenReturn(Optional.of(bookToAdd));
         
         // When
         Book result = bookService.addBook(bookToAdd);
         
         // Then
         assertEquals(bookToAdd, result);
-        verify(mockRepository).save(bookToAdd);
+        verify(mockRepository).saveIfAbsent(bookToAdd);
+        verify(mockEventPublisher).publishing(any());
+    }
+    
+    @Test
+    void addBook_WithExistingTitle_ShouldThrowConflict() {
+        // Given
+        Book bookToAdd = new Book("1984", "Someone Else", 2023);
+        Book stored = new Book("1984", "George Orwell", 1949, 7);
+        when(mockRepository.saveIfAbsent(bookToAdd)).thenReturn(Optional.empty());
+        when(mockRepository.findByTitle("1984")).thenReturn(Optional.of(stored));
+        
+        // When & Then
+        BookAlreadyExistsException exception = assertThrows(
+            BookAlreadyExistsException.class,
+            () -> bookService.addBook(bookToAdd)
+        );
+        
+        assertEquals("Book with title '1984' already exists", exception.getMessage());
+        assertEquals(7, exception.getCurrent().getVersion());
+        verify(mockRepository, never()).save(any());
+    }
+    
+    @Test
+    void replaceBook_WithCurrentVersion_ShouldSaveAndPublish() {
+        // Given
+        Book update = new Book("1984", "George Orwell", 1950);
+        Book saved = new Book("1984", "George Orwell", 1950, 8);
+        when(mockRepository.replaceIfVersion(update, 7)).thenReturn(Optional.of(saved));
+        
+        // When
+        Book result = bookService.replaceBook(update, 7);
+        
+        // Then
+        assertEquals(8, result.getVersion());
+        verify(mockEventPublisher).publishing(any());
+    }
+    
+    @Test
+    void replaceBook_WithStaleVersion_ShouldThrowVersionMismatch() {
+        // Given
+        Book update = new Book("1984", "George Orwell", 1950);
+        Book stored = new Book("1984", "George Orwell", 1949, 9);
+        when(mockRepository.replaceIfVersion(update, 7)).thenReturn(Optional.empty());
+        when(mockRepository.findByTitle("1984")).thenReturn(Optional.of(stored));
+        
+        // When & Then
+        BookVersionMismatchException exception = assertThrows(
+            BookVersionMismatchException.class,
+            () -> bookService.replaceBook(update, 7)
+        );
+        
+        assertEquals(9, exception.getCurrent().getVersion());
     }
     
     @Test
@@ -172,6 +424,95 @@ class BookServiceTest {
         verifyNoInteractions(mockRepository);
     }
     
+    @Test
+    void addBooks_ShouldSaveValidBooksAndReportInvalidOnes() {
+        // Given
+        Book valid = new Book("New Book", "New Author", 2023);
+        Book invalid = new Book("Title", null, 2023);
+        when(mockRepository.saveIfAbsent(valid)).thenReturn(Optional.of(valid));
+        
+        // When
+        BookBatchResult result = bookService.addBooks(Arrays.asList(valid, invalid, null));
+        
+        // Then
+        assertEquals(1, result.getSaved());
+        assertEquals(2, result.getRejected());
+        assertTrue(result.getItems().get(0).isSaved());
+        assertEquals("Book author is required", result.getItems().get(1).getError());
+        assertEquals("Book cannot be null", result.getItems().get(2).getError());
+        verify(mockRepository).saveIfAbsent(valid);
+        verify(mockRepository, never()).saveAll(any());
+    }
+    
+    @Test
+    void addBooks_ShouldReportTitlesAlreadyStoredAsConflicts() {
+        // Given
+        Book first = new Book("Dune", "Frank Herbert", 1965);
+        Book repeated = new Book("DUNE", "Frank Herbert", 1966);
+        when(mockRepository.saveIfAbsent(first)).thenReturn(Optional.of(first));
+        when(mockRepository.saveIfAbsent(repeated)).thenReturn(Optional.empty());
+        
+        // When
+        BookBatchResult result = bookService.addBooks(Arrays.asList(first, repeated));
+        
+        // Then
+        assertEquals(1, result.getSaved());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getItems().get(0).isSaved());
+        assertFalse(result.getItems().get(1).isSaved());
+        assertEquals("Book with title 'DUNE' already exists", result.getItems().get(1).getError());
+        verify(mockEventPublisher).booksSaved(1);
+        verify(mockRepository, never()).save(any());
+    }
+    
+    @Test
+    void addBooks_FromStream_ShouldSaveInChunksAndNumberItemsAcrossThem() {
+        // Given
+        List<Book> books = IntStream.range(0, 25_000)
+            .mapToObj(i -> new Book("Title " + i, "Author", 2000))
+            .collect(Collectors.toList());
+        when(mockRepository.saveIfAbsent(any())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        
+        // When
+        BookBatchResult result = bookService.addBooks(books.iterator());
+        
+        // Then
+        assertEquals(25_000, result.getSaved());
+        assertEquals(24_999, result.getItems().get(24_999).getIndex());
+        assertEquals("Title 24999", result.getItems().get(24_999).getTitle());
+        verify(mockEventPublisher, times(3)).booksSaved(anyInt());
+    }
+    
+    @Test
+    void addBooks_FromStream_WhenTooLarge_ShouldStopReadingAndThrow() {
+        // Given
+        AtomicInteger read = new AtomicInteger();
+        Iterator<Book> endless = Stream.generate(() -> {
+            read.incrementAndGet();
+            return (Book) null;
+        }).iterator();
+        
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> bookService.addBooks(endless)
+        );
+        assertEquals("Batch must not contain more than " + BookService.MAX_BATCH_SIZE + " books", exception.getMessage());
+        // hasNext of a stream iterator reads one ahead
+        assertEquals(BookService.MAX_BATCH_SIZE + 1, read.get());
+    }
+    
+    @Test
+    void addBooks_WhenAllBooksAreInvalid_ShouldNotTouchRepository() {
+        // When
+        BookBatchResult result = bookService.addBooks(Arrays.asList(new Book("", "Author", 2023)));
+        
+        // Then
+        assertEquals(0, result.getSaved());
+        assertEquals("Book title is required", result.getItems().get(0).getError());
+        verifyNoInteractions(mockRepository);
+    }
+    
     @Test
     void getBookCount_ShouldReturnCountFromRepository() {
         // Given
@@ -186,6 +527,105 @@ class BookServiceTest {
         verify(mockRepository).count();
     }
 
+    @Test
+    void importSnapshot_ShouldSaveSnapshotBooksAndDeleteTheRest() throws IOException {
+        // Given
+        List<Book> snapshotBooks = Arrays.asList(
+            new Book("1984", "George Orwell", 1949),
+            new Book("The Hobbit", "J.R.R. Tolkien", 1937)
+        );
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(snapshot, SnapshotCompression.NONE);
+        for (Book book : snapshotBooks) {
+            writer.write(book);
+        }
+        writer.finish();
+        when(mockRepository.streamAll()).thenReturn(Stream.of(
+            new Book("1984", "George Orwell", 1949, 1),
+            new Book("Dune", "Frank Herbert", 1965, 2),
+            new Book("THE HOBBIT", "J.R.R. Tolkien", 1937, 3)
+        ));
+        when(mockRepository.deleteIfVersion("Dune", 2)).thenReturn(true);
+        
+        // When
+        SnapshotImportResult result = bookService.importSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+        
+        // Then
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRemoved());
+        verify(mockRepository).saveAll(snapshotBooks);
+        verify(mockRepository).deleteIfVersion("Dune", 2);
+        verify(mockRepository, never()).deleteIfVersion(eq("THE HOBBIT"), anyLong());
+        verify(mockEventPublisher).publishing(any());
+    }
+    
+    @Test
+    void importSnapshot_ShouldKeepBooksOtherRequestsWriteMeanwhile() throws IOException {
+        // Given
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(snapshot, SnapshotCompression.NONE);
+        writer.write(new Book("1984", "George Orwell", 1949));
+        writer.finish();
+        Book dune = new Book("Dune", "Frank Herbert", 1965);
+        when(mockRepository.saveAll(any())).thenAnswer(invocation -> {
+            bookService.saveBook(dune);
+            return List.of();
+        });
+        when(mockRepository.streamAll()).thenReturn(Stream.of(
+            new Book("1984", "George Orwell", 1949, 1),
+            new Book("Dune", "Frank Herbert", 1965, 2),
+            new Book("Emma", "Jane Austen", 1815, 3)
+        ));
+        when(mockRepository.deleteIfVersion("Emma", 3)).thenReturn(true);
+        
+        // When
+        SnapshotImportResult result = bookService.importSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+        
+        // Then
+        assertEquals(1, result.getRemoved());
+        verify(mockRepository).save(dune);
+        verify(mockRepository, never()).deleteIfVersion(eq("Dune"), anyLong());
+    }
+    
+    @Test
+    void importSnapshot_WhenVersionChangesUnnoted_ShouldRetryWithTheStoredVersion() throws IOException {
+        // Given
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(snapshot, SnapshotCompression.NONE);
+        writer.write(new Book("1984", "George Orwell", 1949));
+        writer.finish();
+        when(mockRepository.streamAll()).thenReturn(Stream.of(new Book("Emma", "Jane Austen", 1815, 3)));
+        // As after a compaction moved the book
+        when(mockRepository.deleteIfVersion("Emma", 3)).thenReturn(false);
+        when(mockRepository.findByTitle("Emma")).thenReturn(Optional.of(new Book("Emma", "Jane Austen", 1815, 7)));
+        when(mockRepository.deleteIfVersion("Emma", 7)).thenReturn(true);
+        
+        // When
+        SnapshotImportResult result = bookService.importSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+        
+        // Then
+        assertEquals(1, result.getRemoved());
+    }
+
+    @Test
+    void importSnapshot_WithInvalidBook_ShouldThrowWithoutSavingOrDeleting() throws IOException {
+        // Given
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        CatalogSnapshotWriter writer = new CatalogSnapshotWriter(snapshot, SnapshotCompression.NONE);
+        writer.write(new Book("1984", "George Orwell", 1949));
+        writer.write(new Book("Anonymous", null, 1900));
+        writer.finish();
+        
+        // When & Then
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> bookService.importSnapshot(new ByteArrayInputStream(snapshot.toByteArray()))
+        );
+        assertTrue(exception.getMessage().contains("Book author is required"), exception.getMessage());
+        verify(mockRepository, never()).saveAll(any());
+        verify(mockRepository, never()).deleteIfVersion(any(), anyLong());
+    }
+
     @Test
     void deleteBookByTitle_WhenBookExists_ShouldDeleteSuccessfully() {
         // Given
@@ -195,6 +635,7 @@ class BookServiceTest {
         // When & Then
         assertDoesNotThrow(() -> bookService.deleteBookByTitle(title));
         verify(mockRepository).deleteByTitle(title);
+        verify(mockEventPublisher).publishing(any());
     }
     
     @Test
@@ -236,4 +677,24 @@ class BookServiceTest {
         assertEquals("Book title is required", exception.getMessage());
         verifyNoInteractions(mockRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getChanges_ShouldReturnChangesFromLog() {
+        // Given
+        BookChanges expected = new BookChanges(List.of(), 42L, false);
+        when(mockChangeLog.changesSince(42L, 100)).thenReturn(expected);
+        
+        // When
+        BookChanges result = bookService.getChanges(42L, 100);
+        
+        // Then
+        assertEquals(expected, result);
+    }
+    
+    @Test
+    void getChanges_WithInvalidLimit_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> bookService.getChanges(1L, 0));
+        assertThrows(IllegalArgumentException.class, () -> bookService.getChanges(1L, BookService.MAX_CHANGES + 1));
+        verifyNoInteractions(mockChangeLog);
+    }
+}